@@ -0,0 +1,94 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# === WebHostingService Archive Upload Benchmark ===
+# Builds a site archive with FILES small assets plus index.html, uploads it
+# ITERATIONS times and reports create-to-serving time and files/second.
+# The server-side unpack time alone is published as the hosting.upload.unpack
+# timer under /actuator/metrics.
+#
+# Environment variables:
+# - BASE_URL   (default http://localhost:8080)
+# - FILES      (default 1000)
+# - FORMAT     (default tar.gz, or zip)
+# - ITERATIONS (default 5)
+# - BACKEND    (optional hosting backend)
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+FILES="${FILES:-1000}"
+FORMAT="${FORMAT:-tar.gz}"
+ITERATIONS="${ITERATIONS:-5}"
+BACKEND="${BACKEND:-}"
+RANDOM_SUFFIX=$(head /dev/urandom | tr -dc a-z0-9 | head -c 6)
+PASSWORD="benchpass123"
+
+# --- helpers ---
+extract_field() {
+  local resp="$1" field="$2"
+  if command -v jq >/dev/null 2>&1; then
+    echo "$resp" | jq -r ".${field} // empty"
+  else
+    echo "$resp" | grep -o "\"${field}\":\"[^\"]*" | cut -d'"' -f4 || true
+  fi
+}
+
+now_ms() {
+  date +%s%3N
+}
+
+TMP_DIR="$(mktemp -d)"
+trap 'rm -rf "$TMP_DIR"' EXIT
+
+mkdir -p "$TMP_DIR/site/assets"
+echo '<!doctype html><html><head><link rel="stylesheet" href="assets/1/f1.css"></head><body><h1>Archive Benchmark</h1></body></html>' \
+  > "$TMP_DIR/site/index.html"
+for i in $(seq 1 "$FILES"); do
+  mkdir -p "$TMP_DIR/site/assets/$(( i % 20 ))"
+  head -c 4096 /dev/urandom | base64 > "$TMP_DIR/site/assets/$(( i % 20 ))/f$i.css"
+done
+ARCHIVE="$TMP_DIR/site.$FORMAT"
+if [ "$FORMAT" = "zip" ]; then
+  (cd "$TMP_DIR/site" && zip -qr "$ARCHIVE" .)
+else
+  tar -czf "$ARCHIVE" -C "$TMP_DIR/site" .
+fi
+echo "=== ARCHIVE UPLOAD BENCHMARK ==="
+echo "Archive: $FILES files + index.html, $(du -h "$ARCHIVE" | cut -f1) ($FORMAT)"
+echo ""
+
+EMAIL="archive_${RANDOM_SUFFIX}@example.com"
+curl -s -X POST "$BASE_URL/auth/user/signup" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" >/dev/null
+TOKEN=$(extract_field "$(curl -s -X POST "$BASE_URL/auth/user/login" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}")" token)
+[ -n "$TOKEN" ] || { echo "❌ Failed to get token for $EMAIL"; exit 1; }
+
+for i in $(seq 1 "$ITERATIONS"); do
+  START=$(now_ms)
+  CREATE_RESP=$(curl -s -X POST "$BASE_URL/api/container/create" \
+    -H "Authorization: Bearer $TOKEN" -F "file=@${ARCHIVE}" ${BACKEND:+-F "backend=${BACKEND}"})
+  STATUS_URL=$(extract_field "$CREATE_RESP" statusUrl)
+  [ -n "$STATUS_URL" ] || { echo "❌ Create failed: $CREATE_RESP"; exit 1; }
+
+  STATUS=""
+  until [ "$STATUS" = "running" ]; do
+    JOB_RESP=$(curl -s "$BASE_URL$STATUS_URL" -H "Authorization: Bearer $TOKEN")
+    STATUS=$(extract_field "$JOB_RESP" status)
+    [ "$STATUS" != "failed" ] || { echo "❌ Provisioning failed: $JOB_RESP"; exit 1; }
+    [ "$STATUS" = "running" ] || sleep 0.05
+  done
+  ELAPSED=$(( $(now_ms) - START ))
+  awk -v n="$FILES" -v ms="$ELAPSED" -v i="$i" \
+    'BEGIN { printf "  #%d create-to-running: %d ms (%.0f files/s)\n", i, ms, (n+1)/(ms/1000) }'
+
+  curl -s -X DELETE "$BASE_URL/api/container/delete" -H "Authorization: Bearer $TOKEN" >/dev/null
+  # Deletion finishes in the background; the next create needs the record gone
+  until [ "$(extract_field "$(curl -s "$BASE_URL/api/container/status" -H "Authorization: Bearer $TOKEN")" hasContainer)" = "false" ]; do
+    sleep 0.1
+  done
+done
+
+echo ""
+echo "Note: the benchmark user is left in the database; remove it via DELETE /api/admin/users."
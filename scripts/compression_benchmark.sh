@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# === WebHostingService Precompression Benchmark ===
+# Compares a site served without compression (what clients got before) with the
+# precompressed .gz siblings served via gzip_static / the in-JVM server:
+# - bytes on the wire per asset, without and with "Accept-Encoding: gzip"
+# - server CPU per request under load, read from the site container's cgroup
+#   usage (docker stats) while ab runs; skipped for in-JVM sites
+#
+# Usage: scripts/compression_benchmark.sh <site-url> [container-name] [paths...]
+#   e.g. scripts/compression_benchmark.sh http://192.168.1.81:8123 user-alice-1712345678 / /assets/app.css
+#
+# Environment variables:
+# - REQUESTS    (default 5000)
+# - CONCURRENCY (default 20)
+# - HOST_HEADER (optional, for host-routed sites reached by IP)
+
+SITE_URL="${1:?site URL required}"
+CONTAINER="${2:-}"
+shift $(( $# > 1 ? 2 : 1 ))
+PATHS=("$@")
+[ ${#PATHS[@]} -gt 0 ] || PATHS=("/")
+REQUESTS="${REQUESTS:-5000}"
+CONCURRENCY="${CONCURRENCY:-20}"
+HOST_HEADER="${HOST_HEADER:-}"
+
+HOST_ARGS=()
+[ -z "$HOST_HEADER" ] || HOST_ARGS=(-H "Host: $HOST_HEADER")
+
+echo "=== PRECOMPRESSION BENCHMARK ==="
+echo "Site: $SITE_URL"
+echo ""
+printf "%-40s %14s %14s %8s\n" path "plain (bytes)" "gzip (bytes)" saved
+for p in "${PATHS[@]}"; do
+  PLAIN=$(curl -s -o /dev/null -w '%{size_download}' "${HOST_ARGS[@]}" "$SITE_URL$p")
+  GZIP=$(curl -s -o /dev/null -w '%{size_download}' "${HOST_ARGS[@]}" -H "Accept-Encoding: gzip" "$SITE_URL$p")
+  awk -v p="$p" -v a="$PLAIN" -v b="$GZIP" \
+    'BEGIN { printf "%-40s %14d %14d %7.1f%%\n", p, a, b, a ? (a-b)*100/a : 0 }'
+done
+
+# CPU seconds used by the container so far, from its cgroup via docker
+container_cpu_seconds() {
+  docker exec "$CONTAINER" sh -c 'cat /sys/fs/cgroup/cpu.stat 2>/dev/null | awk "/usage_usec/ {print \$2/1000000}" || cat /sys/fs/cgroup/cpuacct/cpuacct.usage | awk "{print \$1/1000000000}"'
+}
+
+cpu_per_request() {
+  local label="$1"; shift
+  local before after
+  before=$(container_cpu_seconds)
+  ab -q -k -n "$REQUESTS" -c "$CONCURRENCY" "${HOST_ARGS[@]}" "$@" "$SITE_URL${PATHS[0]}" >/dev/null
+  after=$(container_cpu_seconds)
+  awk -v l="$label" -v a="$after" -v b="$before" -v n="$REQUESTS" \
+    'BEGIN { printf "%-28s %10.1f us CPU/request\n", l, (a-b)*1000000/n }'
+}
+
+if [ -n "$CONTAINER" ] && command -v ab >/dev/null 2>&1; then
+  echo ""
+  echo "CPU per request for ${PATHS[0]} ($REQUESTS requests, concurrency $CONCURRENCY):"
+  cpu_per_request "uncompressed (before)"
+  cpu_per_request "gzip_static (after)" -H "Accept-Encoding: gzip"
+else
+  echo ""
+  echo "CPU measurement skipped (needs a container name and ab)."
+fi
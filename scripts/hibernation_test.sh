@@ -0,0 +1,94 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# === WebHostingService Hibernation (scale-to-zero) Test ===
+# Creates a container site, waits until it is hibernated for lack of traffic, then
+# times the first request (cold start) and checks it is answered with HTTP 200.
+# Repeats ROUNDS times and reports cold-start percentiles.
+#
+# The service must run with hibernation enabled and a short idle timeout, e.g.
+#   HOSTING_HIBERNATION_ENABLED=true \
+#   --hosting.hibernation.idle-timeout-ms=10000 --hosting.hibernation.check-interval-ms=5000
+# and with host networking, since the wake proxy binds the sites' ports.
+#
+# Environment variables:
+# - BASE_URL      (default http://localhost:8080)
+# - ROUNDS        (default 5)
+# - MAX_WAIT_SECS (default 180) per hibernation
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+ROUNDS="${ROUNDS:-5}"
+MAX_WAIT_SECS="${MAX_WAIT_SECS:-180}"
+RANDOM_SUFFIX=$(head /dev/urandom | tr -dc a-z0-9 | head -c 6)
+EMAIL="hibernate_${RANDOM_SUFFIX}@example.com"
+PASSWORD="testpass123"
+
+# --- helpers ---
+extract_field() {
+  local resp="$1" field="$2"
+  if command -v jq >/dev/null 2>&1; then
+    echo "$resp" | jq -r ".${field} // empty"
+  else
+    echo "$resp" | grep -o "\"${field}\":\"\{0,1\}[^\",}]*" | sed -E "s/\"${field}\":\"?//" || true
+  fi
+}
+
+TMP_DIR="$(mktemp -d)"
+trap 'rm -rf "$TMP_DIR"' EXIT
+
+echo "=== HIBERNATION TEST ==="
+
+curl -s -X POST "$BASE_URL/auth/user/signup" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" >/dev/null
+TOKEN=$(extract_field "$(curl -s -X POST "$BASE_URL/auth/user/login" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}")" token)
+[ -n "$TOKEN" ] || { echo "❌ Failed to get token"; exit 1; }
+
+echo "<html><body><h1>sleepy site</h1></body></html>" > "$TMP_DIR/index.html"
+CREATE_RESP=$(curl -s -X POST "$BASE_URL/api/container/create" \
+  -H "Authorization: Bearer $TOKEN" -F "file=@$TMP_DIR/index.html" -F "backend=container")
+STATUS_URL=$(extract_field "$CREATE_RESP" statusUrl)
+[ -n "$STATUS_URL" ] || { echo "❌ Create failed: $CREATE_RESP"; exit 1; }
+
+JOB_RESP=""
+until [ "$(extract_field "$JOB_RESP" status)" = "running" ]; do
+  sleep 0.2
+  JOB_RESP=$(curl -s "$BASE_URL$STATUS_URL" -H "Authorization: Bearer $TOKEN")
+  [ "$(extract_field "$JOB_RESP" status)" != "failed" ] || { echo "❌ Provisioning failed: $JOB_RESP"; exit 1; }
+done
+SITE_URL=$(extract_field "$JOB_RESP" url)
+echo "Site running at $SITE_URL"
+
+RESULT=0
+COLD_STARTS=()
+for round in $(seq 1 "$ROUNDS"); do
+  WAITED=0
+  until [ "$(extract_field "$(curl -s "$BASE_URL/api/container/status" -H "Authorization: Bearer $TOKEN")" status)" = "hibernated" ]; do
+    sleep 1
+    WAITED=$((WAITED + 1))
+    [ "$WAITED" -lt "$MAX_WAIT_SECS" ] || { echo "❌ Site was not hibernated within ${MAX_WAIT_SECS}s"; exit 1; }
+  done
+  sleep 1
+
+  read -r CODE SECS < <(curl -s -o /dev/null -w '%{http_code} %{time_total}\n' --max-time 60 "$SITE_URL" || echo "000 0")
+  MS=$(awk -v s="$SECS" 'BEGIN { printf "%d", s * 1000 }')
+  echo "Round $round: hibernated after ${WAITED}s, first request HTTP $CODE in ${MS} ms"
+  [ "$CODE" = "200" ] || RESULT=1
+  COLD_STARTS+=("$MS")
+done
+
+SORTED=($(printf '%s\n' "${COLD_STARTS[@]}" | sort -n))
+echo ""
+echo "=== RESULTS ==="
+echo "Cold start: min ${SORTED[0]} ms, p50 ${SORTED[$(( ${#SORTED[@]} / 2 ))]} ms, max ${SORTED[$(( ${#SORTED[@]} - 1 ))]} ms"
+echo "Service-side percentiles: $BASE_URL/actuator/metrics/hosting.hibernation.wake (admin token)"
+if [ "$RESULT" = "0" ]; then
+  echo "✅ Every hibernated site woke up on its first request"
+else
+  echo "❌ Some first requests after hibernation failed"
+fi
+
+curl -s -X DELETE "$BASE_URL/api/container/delete" -H "Authorization: Bearer $TOKEN" >/dev/null
+exit "$RESULT"
@@ -0,0 +1,105 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# === WebHostingService Hot Content Update Test ===
+# Creates a site, then pushes UPDATES new versions through PUT /api/container/content
+# while a background loop keeps requesting the site. Passes when:
+# - every request during the updates answered HTTP 200 (no dropped requests)
+# - port and container ID are unchanged after the updates
+# - the site serves the last version
+# Reports the redeploy latency measured by the service (redeployMillis).
+#
+# Environment variables:
+# - BASE_URL (default http://localhost:8080)
+# - UPDATES  (default 20)
+# - BACKEND  (optional hosting backend)
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+UPDATES="${UPDATES:-20}"
+BACKEND="${BACKEND:-}"
+RANDOM_SUFFIX=$(head /dev/urandom | tr -dc a-z0-9 | head -c 6)
+EMAIL="hotupdate_${RANDOM_SUFFIX}@example.com"
+PASSWORD="testpass123"
+
+# --- helpers ---
+extract_field() {
+  local resp="$1" field="$2"
+  if command -v jq >/dev/null 2>&1; then
+    echo "$resp" | jq -r ".${field} // empty"
+  else
+    echo "$resp" | grep -o "\"${field}\":\"\{0,1\}[^\",}]*" | sed -E "s/\"${field}\":\"?//" || true
+  fi
+}
+
+TMP_DIR="$(mktemp -d)"
+LOAD_PID=""
+cleanup() {
+  [ -z "$LOAD_PID" ] || kill "$LOAD_PID" 2>/dev/null || true
+  rm -rf "$TMP_DIR"
+}
+trap cleanup EXIT
+
+echo "=== HOT CONTENT UPDATE TEST ==="
+
+curl -s -X POST "$BASE_URL/auth/user/signup" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" >/dev/null
+TOKEN=$(extract_field "$(curl -s -X POST "$BASE_URL/auth/user/login" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}")" token)
+[ -n "$TOKEN" ] || { echo "❌ Failed to get token"; exit 1; }
+
+echo "<html><body><h1>version 0</h1></body></html>" > "$TMP_DIR/v0.html"
+CREATE_RESP=$(curl -s -X POST "$BASE_URL/api/container/create" \
+  -H "Authorization: Bearer $TOKEN" -F "file=@$TMP_DIR/v0.html" ${BACKEND:+-F "backend=${BACKEND}"})
+STATUS_URL=$(extract_field "$CREATE_RESP" statusUrl)
+[ -n "$STATUS_URL" ] || { echo "❌ Create failed: $CREATE_RESP"; exit 1; }
+
+JOB_RESP=""
+until [ "$(extract_field "$JOB_RESP" status)" = "running" ]; do
+  sleep 0.2
+  JOB_RESP=$(curl -s "$BASE_URL$STATUS_URL" -H "Authorization: Bearer $TOKEN")
+  [ "$(extract_field "$JOB_RESP" status)" != "failed" ] || { echo "❌ Provisioning failed: $JOB_RESP"; exit 1; }
+done
+SITE_URL=$(extract_field "$JOB_RESP" url)
+PORT_BEFORE=$(extract_field "$JOB_RESP" port)
+ID_BEFORE=$(extract_field "$JOB_RESP" containerId)
+until [ "$(curl -s -o /dev/null -w '%{http_code}' "$SITE_URL" || true)" = "200" ]; do sleep 0.1; done
+echo "Site running at $SITE_URL"
+
+# Background load: one status code per line
+( while true; do curl -s -o /dev/null -w '%{http_code}\n' "$SITE_URL" || echo "000"; done ) > "$TMP_DIR/codes.txt" &
+LOAD_PID=$!
+
+LATENCIES=()
+for v in $(seq 1 "$UPDATES"); do
+  echo "<html><body><h1>version $v</h1></body></html>" > "$TMP_DIR/v$v.html"
+  UPDATE_RESP=$(curl -s -X PUT "$BASE_URL/api/container/content" \
+    -H "Authorization: Bearer $TOKEN" -F "file=@$TMP_DIR/v$v.html")
+  MS=$(extract_field "$UPDATE_RESP" redeployMillis)
+  [ -n "$MS" ] || { echo "❌ Update $v failed: $UPDATE_RESP"; exit 1; }
+  LATENCIES+=("$MS")
+  sleep 0.2
+done
+
+kill "$LOAD_PID"; wait "$LOAD_PID" 2>/dev/null || true; LOAD_PID=""
+
+TOTAL=$(wc -l < "$TMP_DIR/codes.txt")
+FAILED=$(grep -vc '^200$' "$TMP_DIR/codes.txt" || true)
+STATUS_RESP=$(curl -s "$BASE_URL/api/container/status" -H "Authorization: Bearer $TOKEN")
+SORTED=($(printf '%s\n' "${LATENCIES[@]}" | sort -n))
+
+echo ""
+echo "=== RESULTS ==="
+echo "Redeploy latency: min ${SORTED[0]} ms, p50 ${SORTED[$(( ${#SORTED[@]} / 2 ))]} ms, max ${SORTED[$(( ${#SORTED[@]} - 1 ))]} ms"
+echo "Requests during updates: $TOTAL, non-200: $FAILED"
+
+RESULT=0
+[ "$FAILED" = "0" ] || { echo "❌ Requests were dropped during the swap"; RESULT=1; }
+[ "$(extract_field "$STATUS_RESP" port)" = "$PORT_BEFORE" ] || { echo "❌ Port changed"; RESULT=1; }
+[ "$(extract_field "$STATUS_RESP" containerId)" = "$ID_BEFORE" ] || { echo "❌ Container ID changed"; RESULT=1; }
+curl -s "$SITE_URL" | grep -q "version $UPDATES" || { echo "❌ Site does not serve the last version"; RESULT=1; }
+[ "$RESULT" = "1" ] || echo "✅ Hot update kept the site serving with the same port and container"
+
+curl -s -X DELETE "$BASE_URL/api/container/delete" -H "Authorization: Bearer $TOKEN" >/dev/null
+exit "$RESULT"
@@ -0,0 +1,104 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# === WebHostingService Provisioning Benchmark ===
+# Measures create-to-serving latency: time from POST /api/container/create
+# until the returned site URL answers with HTTP 200.
+#
+# Run once per provisioning mode and compare, e.g.:
+#   HOSTING_PROVISIONING_MODE=image-build  -> restart service -> LABEL=image-build  scripts/provisioning_benchmark.sh
+#   HOSTING_PROVISIONING_MODE=shared-image -> restart service -> LABEL=shared-image scripts/provisioning_benchmark.sh
+#
+# Environment variables:
+# - BASE_URL   (default http://localhost:8080)
+# - ITERATIONS (default 10)
+# - LABEL      (free text printed with the results)
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+ITERATIONS="${ITERATIONS:-10}"
+LABEL="${LABEL:-unlabeled}"
+RANDOM_SUFFIX=$(head /dev/urandom | tr -dc a-z0-9 | head -c 6)
+PASSWORD="benchpass123"
+
+echo "=== PROVISIONING BENCHMARK ($LABEL) ==="
+echo "Base URL:   $BASE_URL"
+echo "Iterations: $ITERATIONS"
+echo ""
+
+# --- helpers ---
+extract_field() {
+  local resp="$1" field="$2"
+  if command -v jq >/dev/null 2>&1; then
+    echo "$resp" | jq -r ".${field} // empty"
+  else
+    echo "$resp" | grep -o "\"${field}\":\"[^\"]*" | cut -d'"' -f4 || true
+  fi
+}
+
+now_ms() {
+  date +%s%3N
+}
+
+TMP_HTML="$(mktemp --suffix=.html)"
+cat > "$TMP_HTML" <<'HTML'
+<!doctype html>
+<html><body><h1>Benchmark Page</h1></body></html>
+HTML
+
+RESULTS=()
+for i in $(seq 1 "$ITERATIONS"); do
+  EMAIL="bench_${RANDOM_SUFFIX}_${i}@example.com"
+  curl -s -X POST "$BASE_URL/auth/user/signup" \
+    -H "Content-Type: application/json" \
+    -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" >/dev/null
+  TOKEN=$(extract_field "$(curl -s -X POST "$BASE_URL/auth/user/login" \
+    -H "Content-Type: application/json" \
+    -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}")" token)
+  [ -n "$TOKEN" ] || { echo "❌ Failed to get token for $EMAIL"; exit 1; }
+
+  START=$(now_ms)
+  CREATE_RESP=$(curl -s -X POST "$BASE_URL/api/container/create" \
+    -H "Authorization: Bearer $TOKEN" -F "file=@${TMP_HTML}")
+  STATUS_URL=$(extract_field "$CREATE_RESP" statusUrl)
+  [ -n "$STATUS_URL" ] || { echo "❌ Create failed: $CREATE_RESP"; exit 1; }
+
+  # Provisioning is asynchronous: poll the job until it reports the site URL
+  SITE_URL=""
+  until [ -n "$SITE_URL" ]; do
+    JOB_RESP=$(curl -s "$BASE_URL$STATUS_URL" -H "Authorization: Bearer $TOKEN")
+    [ "$(extract_field "$JOB_RESP" status)" != "failed" ] || { echo "❌ Provisioning failed: $JOB_RESP"; exit 1; }
+    SITE_URL=$(extract_field "$JOB_RESP" url)
+    [ -n "$SITE_URL" ] || sleep 0.05
+  done
+
+  until [ "$(curl -s -o /dev/null -w '%{http_code}' "$SITE_URL" || true)" = "200" ]; do
+    if [ $(( $(now_ms) - START )) -gt 120000 ]; then
+      echo "❌ $SITE_URL not serving after 120s"; exit 1
+    fi
+    sleep 0.05
+  done
+  ELAPSED=$(( $(now_ms) - START ))
+  RESULTS+=("$ELAPSED")
+  echo "  #$i create-to-serving: ${ELAPSED} ms"
+
+  curl -s -X DELETE "$BASE_URL/api/container/delete" -H "Authorization: Bearer $TOKEN" >/dev/null
+  # Deletion finishes in the background; the next create needs the record gone
+  until [ "$(extract_field "$(curl -s "$BASE_URL/api/container/status" -H "Authorization: Bearer $TOKEN")" hasContainer)" = "false" ]; do
+    sleep 0.1
+  done
+done
+
+rm -f "$TMP_HTML"
+
+SORTED=($(printf '%s\n' "${RESULTS[@]}" | sort -n))
+COUNT=${#SORTED[@]}
+SUM=0
+for v in "${SORTED[@]}"; do SUM=$(( SUM + v )); done
+echo ""
+echo "=== RESULTS ($LABEL) ==="
+echo "min:  ${SORTED[0]} ms"
+echo "p50:  ${SORTED[$(( COUNT / 2 ))]} ms"
+echo "max:  ${SORTED[$(( COUNT - 1 ))]} ms"
+echo "mean: $(( SUM / COUNT )) ms"
+echo ""
+echo "Note: benchmark users are left in the database; remove them via DELETE /api/admin/users."
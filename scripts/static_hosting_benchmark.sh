@@ -0,0 +1,135 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# === WebHostingService Static Hosting Benchmark ===
+# Compares the `container` and `in-jvm` backends for plain static sites:
+# - requests/second against one site (ab, or wrk when available)
+# - memory cost per site: summed `docker stats` usage of the site containers
+#   vs. the growth of the service's jvm.memory.used
+#
+# Environment variables:
+# - BASE_URL     (default http://localhost:8080)
+# - SITES        (default 20, sites created per backend)
+# - REQUESTS     (default 20000)
+# - CONCURRENCY  (default 50)
+# - ADMIN_TOKEN  (optional, admin JWT used to read /actuator/metrics)
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+SITES="${SITES:-20}"
+REQUESTS="${REQUESTS:-20000}"
+CONCURRENCY="${CONCURRENCY:-50}"
+ADMIN_TOKEN="${ADMIN_TOKEN:-}"
+RANDOM_SUFFIX=$(head /dev/urandom | tr -dc a-z0-9 | head -c 6)
+PASSWORD="benchpass123"
+
+# --- helpers ---
+extract_field() {
+  local resp="$1" field="$2"
+  if command -v jq >/dev/null 2>&1; then
+    echo "$resp" | jq -r ".${field} // empty"
+  else
+    echo "$resp" | grep -o "\"${field}\":\"[^\"]*" | cut -d'"' -f4 || true
+  fi
+}
+
+jvm_memory_used() {
+  [ -n "$ADMIN_TOKEN" ] || { echo 0; return; }
+  curl -s "$BASE_URL/actuator/metrics/jvm.memory.used" -H "Authorization: Bearer $ADMIN_TOKEN" \
+    | grep -o '"value":[0-9.E+]*' | head -1 | cut -d: -f2 | awk '{printf "%d", $1}'
+}
+
+# Prints requests/second for a URL, optionally sending a Host header
+requests_per_second() {
+  local url="$1" host="${2:-}"
+  if command -v wrk >/dev/null 2>&1; then
+    wrk -t4 -c"$CONCURRENCY" -d15s ${host:+-H "Host: $host"} "$url" | awk '/Requests\/sec/ {print $2}'
+  else
+    ab -q -k -n "$REQUESTS" -c "$CONCURRENCY" ${host:+-H "Host: $host"} "$url" | awk '/Requests per second/ {print $4}'
+  fi
+}
+
+TMP_HTML="$(mktemp --suffix=.html)"
+cat > "$TMP_HTML" <<'HTML'
+<!doctype html>
+<html><body><h1>Benchmark Page</h1><p>Static hosting benchmark.</p></body></html>
+HTML
+
+TOKENS=()
+cleanup() {
+  for t in "${TOKENS[@]}"; do
+    curl -s -X DELETE "$BASE_URL/api/container/delete" -H "Authorization: Bearer $t" >/dev/null || true
+  done
+  rm -f "$TMP_HTML"
+}
+trap cleanup EXIT
+
+# Creates SITES sites on a backend and prints the URL of the last one
+create_sites() {
+  local backend="$1" url=""
+  for i in $(seq 1 "$SITES"); do
+    local email="static_${RANDOM_SUFFIX}_${backend}_${i}@example.com"
+    curl -s -X POST "$BASE_URL/auth/user/signup" \
+      -H "Content-Type: application/json" \
+      -d "{\"email\":\"$email\",\"password\":\"$PASSWORD\"}" >/dev/null
+    local token
+    token=$(extract_field "$(curl -s -X POST "$BASE_URL/auth/user/login" \
+      -H "Content-Type: application/json" \
+      -d "{\"email\":\"$email\",\"password\":\"$PASSWORD\"}")" token)
+    [ -n "$token" ] || { echo "❌ Failed to get token for $email" >&2; exit 1; }
+    TOKENS+=("$token")
+
+    local status_url
+    status_url=$(extract_field "$(curl -s -X POST "$BASE_URL/api/container/create" \
+      -H "Authorization: Bearer $token" -F "file=@${TMP_HTML}" -F "backend=${backend}")" statusUrl)
+    [ -n "$status_url" ] || { echo "❌ Create failed on $backend" >&2; exit 1; }
+
+    url=""
+    until [ -n "$url" ]; do
+      local job
+      job=$(curl -s "$BASE_URL$status_url" -H "Authorization: Bearer $token")
+      [ "$(extract_field "$job" status)" != "failed" ] || { echo "❌ Provisioning failed: $job" >&2; exit 1; }
+      url=$(extract_field "$job" url)
+      [ -n "$url" ] || sleep 0.1
+    done
+  done
+  echo "$url"
+}
+
+echo "=== STATIC HOSTING BENCHMARK ==="
+echo "Base URL: $BASE_URL, $SITES sites per backend, concurrency $CONCURRENCY"
+echo ""
+
+# --- container backend ---
+CONTAINER_URL=$(create_sites container)
+sleep 2
+CONTAINER_RPS=$(requests_per_second "$CONTAINER_URL/")
+CONTAINER_MEM=$(docker stats --no-stream --format '{{.Name}} {{.MemUsage}}' \
+  | awk '$1 ~ /^user-/ { v=$2; u=v; gsub(/[0-9.]/, "", u); gsub(/[^0-9.]/, "", v);
+      m = (u=="GiB") ? 1024 : (u=="KiB") ? 1/1024 : 1; sum += v*m; n++ }
+      END { if (n) printf "%.1f", sum/n; else print "n/a" }')
+
+# --- in-jvm backend ---
+JVM_BEFORE=$(jvm_memory_used)
+INJVM_URL=$(create_sites in-jvm)
+JVM_AFTER=$(jvm_memory_used)
+# Site hostnames need DNS; target the server directly and route by Host header
+INJVM_HOST=$(echo "$INJVM_URL" | sed -E 's#^https?://([^:/]+).*#\1#')
+INJVM_PORT=$(echo "$INJVM_URL" | sed -E 's#^https?://[^:/]+:?([0-9]*).*#\1#')
+INJVM_TARGET="http://$(echo "$BASE_URL" | sed -E 's#^https?://([^:/]+).*#\1#'):${INJVM_PORT:-80}/"
+# Warm the file cache before measuring
+curl -s -o /dev/null -H "Host: $INJVM_HOST" "$INJVM_TARGET"
+INJVM_RPS=$(requests_per_second "$INJVM_TARGET" "$INJVM_HOST")
+if [ "$JVM_BEFORE" -gt 0 ]; then
+  INJVM_MEM=$(awk -v a="$JVM_AFTER" -v b="$JVM_BEFORE" -v n="$SITES" 'BEGIN { printf "%.3f", (a-b)/n/1048576 }')
+else
+  INJVM_MEM="n/a (set ADMIN_TOKEN)"
+fi
+
+echo ""
+echo "=== RESULTS ==="
+printf "%-10s %15s %22s\n" backend "requests/sec" "memory/site (MiB)"
+printf "%-10s %15s %22s\n" container "$CONTAINER_RPS" "$CONTAINER_MEM"
+printf "%-10s %15s %22s\n" in-jvm "$INJVM_RPS" "$INJVM_MEM"
+echo ""
+echo "Note: jvm.memory.used is noisy (GC); use larger SITES values for a stable per-site figure."
+echo "Benchmark users are left in the database; remove them via DELETE /api/admin/users."
@@ -0,0 +1,84 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# === WebHostingService Upload Heap Benchmark ===
+# Checks that heap allocation per upload stays flat as the uploaded file grows.
+# For each file size, UPLOADS sites are created and deleted, and the growth of
+# the jvm.gc.memory.allocated counter is divided by the number of uploads.
+# With the streamed upload path the figure should not scale with file size.
+#
+# jvm.gc.memory.allocated is only updated when a young GC runs, so every size
+# uses several uploads and the results are approximate.
+#
+# Environment variables:
+# - BASE_URL    (default http://localhost:8080)
+# - ADMIN_TOKEN (required, admin JWT used to read /actuator/metrics)
+# - SIZES_MB    (default "1 10 50 100", must stay under HOSTING_UPLOAD_MAX_SIZE)
+# - UPLOADS     (default 10, uploads per size)
+# - BACKEND     (default in-jvm, keeps Docker out of the measurement)
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+ADMIN_TOKEN="${ADMIN_TOKEN:?ADMIN_TOKEN must be set to an admin JWT}"
+SIZES_MB="${SIZES_MB:-1 10 50 100}"
+UPLOADS="${UPLOADS:-10}"
+BACKEND="${BACKEND:-in-jvm}"
+RANDOM_SUFFIX=$(head /dev/urandom | tr -dc a-z0-9 | head -c 6)
+PASSWORD="benchpass123"
+
+# --- helpers ---
+extract_field() {
+  local resp="$1" field="$2"
+  if command -v jq >/dev/null 2>&1; then
+    echo "$resp" | jq -r ".${field} // empty"
+  else
+    echo "$resp" | grep -o "\"${field}\":\"[^\"]*" | cut -d'"' -f4 || true
+  fi
+}
+
+allocated_bytes() {
+  curl -s "$BASE_URL/actuator/metrics/jvm.gc.memory.allocated" -H "Authorization: Bearer $ADMIN_TOKEN" \
+    | grep -o '"value":[0-9.E+]*' | head -1 | cut -d: -f2 | awk '{printf "%d", $1}'
+}
+
+EMAIL="upload_${RANDOM_SUFFIX}@example.com"
+curl -s -X POST "$BASE_URL/auth/user/signup" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" >/dev/null
+TOKEN=$(extract_field "$(curl -s -X POST "$BASE_URL/auth/user/login" \
+  -H "Content-Type: application/json" \
+  -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}")" token)
+[ -n "$TOKEN" ] || { echo "❌ Failed to get token for $EMAIL"; exit 1; }
+
+TMP_DIR="$(mktemp -d)"
+trap 'rm -rf "$TMP_DIR"' EXIT
+
+echo "=== UPLOAD HEAP BENCHMARK (backend: $BACKEND, $UPLOADS uploads per size) ==="
+printf "%10s %26s\n" "size (MB)" "allocated/upload (MB)"
+
+for size in $SIZES_MB; do
+  FILE="$TMP_DIR/site_${size}mb.html"
+  { echo "<!doctype html><html><body><!--"; head -c $(( size * 1024 * 1024 )) /dev/zero | tr '\0' 'x'; echo "--></body></html>"; } > "$FILE"
+
+  BEFORE=$(allocated_bytes)
+  for i in $(seq 1 "$UPLOADS"); do
+    CREATE_RESP=$(curl -s -X POST "$BASE_URL/api/container/create" \
+      -H "Authorization: Bearer $TOKEN" -F "file=@${FILE}" -F "backend=${BACKEND}")
+    STATUS_URL=$(extract_field "$CREATE_RESP" statusUrl)
+    [ -n "$STATUS_URL" ] || { echo "❌ Create failed: $CREATE_RESP"; exit 1; }
+    until [ "$(extract_field "$(curl -s "$BASE_URL$STATUS_URL" -H "Authorization: Bearer $TOKEN")" status)" = "running" ]; do
+      sleep 0.1
+    done
+    curl -s -X DELETE "$BASE_URL/api/container/delete" -H "Authorization: Bearer $TOKEN" >/dev/null
+    # Deletion finishes in the background; the next create needs the record gone
+    until [ "$(extract_field "$(curl -s "$BASE_URL/api/container/status" -H "Authorization: Bearer $TOKEN")" hasContainer)" = "false" ]; do
+      sleep 0.1
+    done
+  done
+  AFTER=$(allocated_bytes)
+
+  awk -v s="$size" -v a="$AFTER" -v b="$BEFORE" -v n="$UPLOADS" \
+    'BEGIN { printf "%10s %26.2f\n", s, (a-b)/n/1048576 }'
+done
+
+echo ""
+echo "Note: the benchmark user is left in the database; remove it via DELETE /api/admin/users."
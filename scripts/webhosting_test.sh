@@ -73,7 +73,16 @@ echo "3) Create container"
 CREATE_OUT=$(curl -s -w "\nHTTP_STATUS:%{http_code}" -X POST "$BASE_URL/api/container/create" \
   -H "Authorization: Bearer $USER_TOKEN" -F "file=@${TMP_HTML}")
 CREATE_CODE=$(http_code "$CREATE_OUT")
-[ "$CREATE_CODE" -lt 300 ] && echo "✅ Container created" || { echo "❌ Create failed ($CREATE_CODE)"; exit 1; }
+[ "$CREATE_CODE" -lt 300 ] || { echo "❌ Create failed ($CREATE_CODE)"; exit 1; }
+STATUS_URL=$(http_body "$CREATE_OUT" | grep -o '"statusUrl":"[^"]*' | cut -d'"' -f4 || true)
+JOB_STATUS=""
+for _ in $(seq 1 120); do
+  JOB_STATUS=$(curl -s "$BASE_URL$STATUS_URL" -H "Authorization: Bearer $USER_TOKEN" \
+    | grep -o '"status":"[^"]*' | cut -d'"' -f4 || true)
+  [ "$JOB_STATUS" = "running" ] || [ "$JOB_STATUS" = "failed" ] && break
+  sleep 1
+done
+[ "$JOB_STATUS" = "running" ] && echo "✅ Container created" || { echo "❌ Provisioning ended as '$JOB_STATUS'"; exit 1; }
 echo ""
 
 # --- 4) Admin login ---
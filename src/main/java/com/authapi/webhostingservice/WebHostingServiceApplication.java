@@ -2,8 +2,10 @@ package com.authapi.webhostingservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class WebHostingServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(WebHostingServiceApplication.class, args);
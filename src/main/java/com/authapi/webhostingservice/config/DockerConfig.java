@@ -0,0 +1,110 @@
+package com.authapi.webhostingservice.config;
+
+import com.authapi.webhostingservice.service.ContainerRuntime;
+import com.authapi.webhostingservice.service.DockerContainerRuntime;
+import com.authapi.webhostingservice.service.DockerHostRegistry;
+import com.authapi.webhostingservice.service.SimulatedContainerRuntime;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientBuilder;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.github.dockerjava.transport.DockerHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class DockerConfig {
+
+    @Value("${docker.host:unix:///var/run/docker.sock}")
+    private String dockerHost;
+
+    // name=endpoint,... ; empty means a single host "local" at docker.host
+    @Value("${docker.hosts:}")
+    private String dockerHosts;
+
+    // name=address,... for hosts whose sites are not reached at hosting.public-host
+    @Value("${docker.public-addresses:}")
+    private String publicAddresses;
+
+    // "docker", or "simulated" for in-memory hosts (load tests without a daemon)
+    @Value("${hosting.runtime:docker}")
+    private String runtime;
+
+    @Value("${hosting.runtime.simulated.latency-ms:5}")
+    private long simulatedLatencyMillis;
+
+    @Value("${hosting.runtime.simulated.latency-jitter-ms:5}")
+    private long simulatedLatencyJitterMillis;
+
+    @Value("${hosting.runtime.simulated.image-latency-ms:500}")
+    private long simulatedImageLatencyMillis;
+
+    @Value("${hosting.runtime.simulated.failure-rate:0}")
+    private double simulatedFailureRate;
+
+    @Value("${hosting.runtime.simulated.memory-bytes:68719476736}")
+    private long simulatedMemoryBytes;
+
+    @Value("${hosting.runtime.simulated.cpus:16}")
+    private int simulatedCpus;
+
+    /**
+     * Every Docker daemon sites can be placed on, the first one being the default
+     */
+    @Bean
+    public DockerHostRegistry dockerHostRegistry() {
+        Map<String, String> endpoints = parseList(dockerHosts);
+        if (endpoints.isEmpty()) {
+            endpoints.put("local", dockerHost);
+        }
+        return new DockerHostRegistry(endpoints, parseList(publicAddresses), this::createRuntime);
+    }
+
+    private ContainerRuntime createRuntime(String endpoint) {
+        if ("simulated".equals(runtime)) {
+            System.out.println("Simulating Docker host " + endpoint + " in memory");
+            return new SimulatedContainerRuntime(endpoint, simulatedLatencyMillis, simulatedLatencyJitterMillis,
+                    simulatedImageLatencyMillis, simulatedFailureRate, simulatedMemoryBytes, simulatedCpus);
+        }
+        if (!"docker".equals(runtime)) {
+            throw new IllegalArgumentException("Unknown hosting.runtime: " + runtime);
+        }
+        return new DockerContainerRuntime(createClient(endpoint));
+    }
+
+    private DockerClient createClient(String endpoint) {
+        DefaultDockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
+                .withDockerHost(endpoint)
+                .build();
+
+        DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .sslConfig(config.getSSLConfig())
+                .maxConnections(100)
+                .connectionTimeout(Duration.ofSeconds(30))
+                .responseTimeout(Duration.ofSeconds(45))
+                .build();
+
+        return DockerClientBuilder.getInstance(config)
+                .withDockerHttpClient(httpClient)
+                .build();
+    }
+
+    private static Map<String, String> parseList(String list) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (String entry : list.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator > 0) {
+                entries.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+            } else if (!entry.isBlank()) {
+                throw new IllegalArgumentException("Expected name=value, got: " + entry);
+            }
+        }
+        return entries;
+    }
+}
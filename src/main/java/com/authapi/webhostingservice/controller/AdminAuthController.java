@@ -3,28 +3,33 @@ package com.authapi.webhostingservice.controller;
 import com.authapi.webhostingservice.model.Admin;
 import com.authapi.webhostingservice.repository.AdminRepository;
 import com.authapi.webhostingservice.security.JwtUtil;
+import com.authapi.webhostingservice.security.PasswordHasher;
+import com.authapi.webhostingservice.security.UserDetailsCache;
 
 import java.util.regex.Pattern;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/auth/admin")
 public class AdminAuthController {
     private final AdminRepository adminRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtil;
+    private final UserDetailsCache userDetailsCache;
         private static final Pattern EMAIL_PATTERN = 
         Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
     
 
-    public AdminAuthController(AdminRepository adminRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AdminAuthController(AdminRepository adminRepository, PasswordHasher passwordHasher, JwtUtil jwtUtil,
+                               UserDetailsCache userDetailsCache) {
         this.adminRepository = adminRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtUtil = jwtUtil;
+        this.userDetailsCache = userDetailsCache;
     }
 
     // Request DTO
@@ -73,9 +78,19 @@ public class AdminAuthController {
         Admin dbAdmin = adminRepository.findByEmail(request.getEmail());
 
                 // Generic error message - same as user login
-                if (dbAdmin == null || !passwordEncoder.matches(request.getPassword(), dbAdmin.getPassword())) {
-                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                            .body(new ErrorResponse("Invalid credentials"));
+                try {
+                    if (dbAdmin == null || !passwordHasher.matches(request.getPassword(), dbAdmin.getPassword(),
+                            rehashed -> {
+                                adminRepository.updatePassword(dbAdmin.getEmail(), rehashed);
+                                userDetailsCache.invalidate(dbAdmin.getEmail());
+                            })) {
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                .body(new ErrorResponse("Invalid credentials"));
+                    }
+                } catch (PasswordHasher.OverloadedException e) {
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                            .body(new ErrorResponse("Too many logins in progress, please try again later"));
                 }
         try {
             String token = jwtUtil.generateToken(dbAdmin.getEmail(), "ADMIN");
@@ -1,10 +1,19 @@
 package com.authapi.webhostingservice.controller;
 
 import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.service.BulkOperationService;
+import com.authapi.webhostingservice.service.ContainerReconciler;
+import com.authapi.webhostingservice.service.DockerHostRegistry;
+import com.authapi.webhostingservice.service.DockerPlacement;
+import com.authapi.webhostingservice.service.OrphanCollector;
 import com.authapi.webhostingservice.service.UserContainerService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,9 +23,40 @@ import java.util.Map;
 public class AdminContainerController {
 
     private final UserContainerService userContainerService;
+    private final ContainerReconciler containerReconciler;
+    private final BulkOperationService bulkOperationService;
+    private final OrphanCollector orphanCollector;
+    private final DockerHostRegistry dockerHosts;
+    private final DockerPlacement placement;
 
-    public AdminContainerController(UserContainerService userContainerService) {
+    public AdminContainerController(UserContainerService userContainerService,
+                                    ContainerReconciler containerReconciler,
+                                    BulkOperationService bulkOperationService,
+                                    OrphanCollector orphanCollector,
+                                    DockerHostRegistry dockerHosts,
+                                    DockerPlacement placement) {
         this.userContainerService = userContainerService;
+        this.containerReconciler = containerReconciler;
+        this.bulkOperationService = bulkOperationService;
+        this.orphanCollector = orphanCollector;
+        this.dockerHosts = dockerHosts;
+        this.placement = placement;
+    }
+
+    /**
+     * Sites selected by user email, or by status and/or hosting backend
+     */
+    public static class BulkContainerRequest {
+        private List<String> userEmails;
+        private String status;
+        private String backend;
+
+        public List<String> getUserEmails() { return userEmails; }
+        public void setUserEmails(List<String> userEmails) { this.userEmails = userEmails; }
+        public String getStatus() { return status; }
+        public void setStatus(String status) { this.status = status; }
+        public String getBackend() { return backend; }
+        public void setBackend(String backend) { this.backend = backend; }
     }
 
     @GetMapping("/containers")
@@ -24,14 +64,103 @@ public class AdminContainerController {
         return userContainerService.getAllContainers();
     }
 
+    /**
+     * GET /api/admin/containers/reconciliation
+     * Result of the last Docker/Mongo reconciliation cycle, including orphans on both sides.
+     */
+    @GetMapping("/containers/reconciliation")
+    public ResponseEntity<?> getReconciliationReport() {
+        ContainerReconciler.ReconciliationReport report = containerReconciler.getLastReport();
+        if (report == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "No reconciliation has completed yet"));
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * GET /api/admin/containers/gc
+     * Result of the last orphan collection: unreferenced containers, images and directories, and what was removed.
+     */
+    @GetMapping("/containers/gc")
+    public ResponseEntity<?> getCollectionReport() {
+        OrphanCollector.CollectionReport report = orphanCollector.getLastReport();
+        if (report == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "No orphan collection has completed yet"));
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * GET /api/admin/containers/hosts
+     * Docker hosts sites are placed on, with their capacity and site counts.
+     */
+    @GetMapping("/containers/hosts")
+    public Map<String, Object> getDockerHosts() {
+        List<Map<String, Object>> hosts = new ArrayList<>();
+        for (DockerHostRegistry.DockerHost host : dockerHosts.getHosts()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("name", host.getName());
+            entry.put("endpoint", host.getEndpoint());
+            entry.put("default", dockerHosts.isDefault(host.getName()));
+            entry.put("memoryBytes", host.getMemoryBytes());
+            entry.put("cpus", host.getCpus());
+            entry.put("sites", placement.getSiteCount(host.getName()));
+            hosts.add(entry);
+        }
+        return Map.of("placement", placement.getPolicy(), "hosts", hosts);
+    }
+
     @DeleteMapping("/containers")
     public ResponseEntity<?> deleteUserContainer(@RequestParam String userEmail) {
         try {
             userContainerService.deleteContainer(userEmail);
-            return ResponseEntity.ok(Map.of("message", "Container deleted successfully"));
+            return ResponseEntity.status(202).body(Map.of("message", "Container deletion started"));
         } catch (Exception e) {
             return ResponseEntity.status(500)
                     .body(Map.of("error", e.getMessage()));
         }
     }
+
+    @PostMapping("/containers/restart")
+    public ResponseEntity<?> restartUserContainer(@RequestParam String userEmail) {
+        try {
+            userContainerService.restartContainer(userEmail);
+            return ResponseEntity.ok(Map.of("message", "Container restarted"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /api/admin/containers/bulk/restart
+     * Restarts the selected sites in parallel; streams one JSON line per site, then a summary line.
+     */
+    @PostMapping("/containers/bulk/restart")
+    public void bulkRestart(@RequestBody BulkContainerRequest request, HttpServletResponse response) throws IOException {
+        runBulk(BulkOperationService.Action.RESTART_CONTAINER, request, response);
+    }
+
+    /**
+     * POST /api/admin/containers/bulk/delete
+     * Queues the selected sites for deletion in parallel; streams one JSON line per site, then a summary line.
+     */
+    @PostMapping("/containers/bulk/delete")
+    public void bulkDelete(@RequestBody BulkContainerRequest request, HttpServletResponse response) throws IOException {
+        runBulk(BulkOperationService.Action.DELETE_CONTAINER, request, response);
+    }
+
+    private void runBulk(BulkOperationService.Action action, BulkContainerRequest request,
+                         HttpServletResponse response) throws IOException {
+        List<String> targets;
+        try {
+            targets = bulkOperationService.selectContainers(request.getUserEmails(), request.getStatus(), request.getBackend());
+        } catch (IllegalArgumentException e) {
+            response.sendError(400, e.getMessage());
+            return;
+        }
+        response.setContentType(BulkOperationService.CONTENT_TYPE);
+        bulkOperationService.run(action, targets, response.getOutputStream());
+    }
 }
@@ -2,9 +2,11 @@ package com.authapi.webhostingservice.controller;
 
 import com.authapi.webhostingservice.model.User;
 import com.authapi.webhostingservice.repository.UserRepository;
-import com.authapi.webhostingservice.service.UserContainerService;
+import com.authapi.webhostingservice.service.BulkOperationService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -15,11 +17,18 @@ import java.util.Map;
 public class AdminUserController {
 
     private final UserRepository userRepository;
-    private final UserContainerService userContainerService;
+    private final BulkOperationService bulkOperationService;
 
-    public AdminUserController(UserRepository userRepository, UserContainerService userContainerService) {
+    public AdminUserController(UserRepository userRepository, BulkOperationService bulkOperationService) {
         this.userRepository = userRepository;
-        this.userContainerService = userContainerService;
+        this.bulkOperationService = bulkOperationService;
+    }
+
+    public static class BulkUserRequest {
+        private List<String> emails;
+
+        public List<String> getEmails() { return emails; }
+        public void setEmails(List<String> emails) { this.emails = emails; }
     }
 
     /**
@@ -28,23 +37,29 @@ public class AdminUserController {
      */
     @DeleteMapping("/users")
     public ResponseEntity<?> deleteUser(@RequestParam String email) {
-        // 1. Find user
-        User user = userRepository.findByEmail(email);
-        if (user == null) {
+        // Queues the container teardown, deletes the account and rejects the tokens already issued to it
+        if (!bulkOperationService.deleteUser(email)) {
             return ResponseEntity.status(404).body(Map.of("error", "User not found"));
         }
 
-        // 2. Delete containers belonging to that user (if any)
+        return ResponseEntity.ok(Map.of("message", "User deleted, their containers are being removed", "email", email));
+    }
+
+    /**
+     * POST /api/admin/users/bulk/delete
+     * Deletes the given users in parallel; streams one JSON line per user, then a summary line.
+     */
+    @PostMapping("/users/bulk/delete")
+    public void bulkDeleteUsers(@RequestBody BulkUserRequest request, HttpServletResponse response) throws IOException {
+        List<String> targets;
         try {
-            userContainerService.deleteContainer(email);
-        } catch (Exception e) {
-            System.err.println("Warning: failed to delete containers for " + email + ": " + e.getMessage());
+            targets = bulkOperationService.selectUsers(request.getEmails());
+        } catch (IllegalArgumentException e) {
+            response.sendError(400, e.getMessage());
+            return;
         }
-
-        // 3. Delete user from database
-        userRepository.deleteByEmail(email);
-
-        return ResponseEntity.ok(Map.of("message", "User and their containers deleted successfully", "email", email));
+        response.setContentType(BulkOperationService.CONTENT_TYPE);
+        bulkOperationService.run(BulkOperationService.Action.DELETE_USER, targets, response.getOutputStream());
     }
 
     @GetMapping("/users")
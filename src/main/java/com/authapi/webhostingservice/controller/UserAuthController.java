@@ -3,12 +3,14 @@ package com.authapi.webhostingservice.controller;
 import com.authapi.webhostingservice.model.User;
 import com.authapi.webhostingservice.repository.UserRepository;
 import com.authapi.webhostingservice.security.JwtUtil;
+import com.authapi.webhostingservice.security.PasswordHasher;
+import com.authapi.webhostingservice.security.UserDetailsCache;
 
 import java.util.regex.Pattern;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -16,13 +18,16 @@ import org.springframework.web.bind.annotation.*;
 public class UserAuthController {
     private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtil;
+    private final UserDetailsCache userDetailsCache;
 
-    public UserAuthController(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public UserAuthController(UserRepository userRepository, PasswordHasher passwordHasher, JwtUtil jwtUtil,
+                              UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
         this.jwtUtil = jwtUtil;
+        this.userDetailsCache = userDetailsCache;
     }
 
     // Request DTOs
@@ -92,11 +97,19 @@ public class UserAuthController {
         User user = new User();
         user.setEmail(request.getEmail());
         // BCrypt automatically handles salting - no need for separate salt
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        try {
+            user.setPassword(passwordHasher.encode(request.getPassword()));
+        } catch (PasswordHasher.OverloadedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new ErrorResponse("Too many sign-ups in progress, please try again later"));
+        }
         user.setSalt(""); // Leave empty for now (we'll remove this field later)
         
         try {
             userRepository.save(user);
+            // The email may be cached as unknown
+            userDetailsCache.invalidate(user.getEmail());
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(new SuccessResponse("User registered successfully"));
         } catch (Exception e) {
@@ -122,9 +135,19 @@ public class UserAuthController {
         User dbUser = userRepository.findByEmail(request.getEmail());
         
         // Generic error message to prevent email enumeration attacks
-        if (dbUser == null || !passwordEncoder.matches(request.getPassword(), dbUser.getPassword())) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(new ErrorResponse("Invalid credentials"));
+        try {
+            if (dbUser == null || !passwordHasher.matches(request.getPassword(), dbUser.getPassword(),
+                    rehashed -> {
+                        userRepository.updatePassword(dbUser.getEmail(), rehashed);
+                        userDetailsCache.invalidate(dbUser.getEmail());
+                    })) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(new ErrorResponse("Invalid credentials"));
+            }
+        } catch (PasswordHasher.OverloadedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new ErrorResponse("Too many logins in progress, please try again later"));
         }
 
         try {
@@ -1,7 +1,11 @@
 package com.authapi.webhostingservice.controller;
 
 import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.service.AdmissionController;
+import com.authapi.webhostingservice.service.PortAllocator;
+import com.authapi.webhostingservice.service.SiteContentService;
 import com.authapi.webhostingservice.service.UserContainerService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -9,19 +13,23 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/container")
 public class UserContainerController {
 
     private final UserContainerService userContainerService;
+    private final SiteContentService siteContentService;
 
-    public UserContainerController(UserContainerService userContainerService) {
+    public UserContainerController(UserContainerService userContainerService,
+                                   SiteContentService siteContentService) {
         this.userContainerService = userContainerService;
+        this.siteContentService = siteContentService;
     }
 
     @GetMapping("/status")
@@ -38,16 +46,20 @@ public class UserContainerController {
         }
 
         UserContainer container = containerOpt.get();
-        userContainerService.updateContainerStatus(userEmail);
         
         Map<String, Object> response = new HashMap<>();
         response.put("hasContainer", true);
+        response.put("jobId", container.getId());
         response.put("containerId", container.getContainerId());
         response.put("containerName", container.getContainerName());
         response.put("port", container.getPort());
-        response.put("status", container.getStatus());
-        response.put("url", "http://192.168.1.81:" + container.getPort());
+        response.put("status", userContainerService.getCurrentStatus(container));
+        response.put("url", userContainerService.getSiteUrl(container));
+        response.put("backend", container.getHostingBackend());
         response.put("createdAt", container.getCreatedAt());
+        if (container.getErrorMessage() != null) {
+            response.put("error", container.getErrorMessage());
+        }
         
         return ResponseEntity.ok(response);
     }
@@ -55,6 +67,7 @@ public class UserContainerController {
     @PostMapping("/create")
     public ResponseEntity<?> createContainer(
             @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "backend", required = false) String backend,
             Authentication authentication) {
         
         String userEmail = authentication.getName();
@@ -74,29 +87,54 @@ public class UserContainerController {
         }
 
         String filename = file.getOriginalFilename();
-        if (filename == null || !filename.toLowerCase().endsWith(".html")) {
+        if (!siteContentService.isSupportedUpload(filename)) {
             Map<String, String> error = new HashMap<>();
-            error.put("error", "Only HTML files are allowed");
+            error.put("error", "Upload an HTML file or a .zip, .tar or .tar.gz archive with index.html at its root");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        if (backend != null && !userContainerService.getBackendNames().contains(backend)) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Unknown hosting backend: " + backend);
+            error.put("backends", userContainerService.getBackendNames());
             return ResponseEntity.badRequest().body(error);
         }
 
         try {
-            // Read HTML content
-            String htmlContent = new String(file.getBytes(), StandardCharsets.UTF_8);
+            // Stage the upload on disk; it is never read into memory
+            Path content = siteContentService.stage(file);
 
-            // Create container
-            UserContainer container = userContainerService.createContainer(userEmail, htmlContent);
+            // Queue provisioning, the client polls the job until it is running
+            UserContainer job = userContainerService.createContainer(userEmail, content, backend);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("message", "Container created successfully");
-            response.put("containerId", container.getContainerId());
-            response.put("containerName", container.getContainerName());
-            response.put("port", container.getPort());
-            response.put("url", "http://192.168.1.81:" + container.getPort());
-            response.put("status", container.getStatus());
+            response.put("message", "Container provisioning started");
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("statusUrl", "/api/container/jobs/" + job.getId());
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
 
+        } catch (PortAllocator.PortRangeExhaustedException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "No hosting capacity available, please try again later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+        } catch (AdmissionController.CapacityExceededException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Hosting capacity is fully committed, please try again later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(error);
+        } catch (RejectedExecutionException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Too many deployments in progress, please try again later");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(error);
+        } catch (IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
         } catch (IOException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to create container: " + e.getMessage());
@@ -104,6 +142,80 @@ public class UserContainerController {
         }
     }
 
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getProvisioningJob(@PathVariable String jobId, Authentication authentication) {
+        Optional<UserContainer> jobOpt = userContainerService.getProvisioningJob(jobId)
+                .filter(job -> job.getUserEmail().equals(authentication.getName()));
+
+        if (jobOpt.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Job not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+
+        UserContainer job = jobOpt.get();
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus());
+        response.put("createdAt", job.getCreatedAt());
+        response.put("updatedAt", job.getUpdatedAt());
+        if (job.getErrorMessage() != null) {
+            response.put("error", job.getErrorMessage());
+        }
+        if (job.isProvisioned()) {
+            response.put("containerId", job.getContainerId());
+            response.put("containerName", job.getContainerName());
+            response.put("port", job.getPort());
+            response.put("url", userContainerService.getSiteUrl(job));
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/content")
+    public ResponseEntity<?> updateContent(
+            @RequestParam("file") MultipartFile file,
+            Authentication authentication) {
+
+        String userEmail = authentication.getName();
+
+        if (file.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "File is empty");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        if (!siteContentService.isSupportedUpload(file.getOriginalFilename())) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Upload an HTML file or a .zip, .tar or .tar.gz archive with index.html at its root");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        try {
+            Path content = siteContentService.stage(file);
+            long redeployMillis = userContainerService.updateContent(userEmail, content);
+
+            UserContainer container = userContainerService.getUserContainer(userEmail).orElseThrow();
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Site content updated");
+            response.put("containerId", container.getContainerId());
+            response.put("port", container.getPort());
+            response.put("url", userContainerService.getSiteUrl(container));
+            response.put("redeployMillis", redeployMillis);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalStateException | UnsupportedOperationException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+        } catch (IOException e) {
+            // Rejected archives end up here as well; the site keeps serving its previous content
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to update site content: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+        }
+    }
+
     @DeleteMapping("/delete")
     public ResponseEntity<?> deleteContainer(Authentication authentication) {
         String userEmail = authentication.getName();
@@ -111,9 +223,11 @@ public class UserContainerController {
         try {
             userContainerService.deleteContainer(userEmail);
             
+            // Teardown runs in the background; /status reports "deleting" until it is done
             Map<String, String> response = new HashMap<>();
-            response.put("message", "Container deleted successfully");
-            return ResponseEntity.ok(response);
+            response.put("message", "Container deletion started");
+            response.put("status", UserContainer.STATUS_DELETING);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
 
         } catch (IllegalStateException e) {
             Map<String, String> error = new HashMap<>();
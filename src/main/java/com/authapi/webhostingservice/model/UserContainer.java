@@ -7,13 +7,34 @@ import java.time.LocalDateTime;
 
 @Document(collection = "user_containers")
 public class UserContainer {
+    // Provisioning job states, followed by whatever Docker reports once the container exists
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_BUILDING = "building";
+    public static final String STATUS_STARTING = "starting";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_FAILED = "failed";
+    // Container stopped for lack of traffic, started again by the next request
+    public static final String STATUS_HIBERNATED = "hibernated";
+    // Deleted by the user, container and files are being removed in the background
+    public static final String STATUS_DELETING = "deleting";
+
+    // Hosting backends: a dedicated nginx container, a virtual host on a shared one, or the in-JVM server
+    public static final String BACKEND_CONTAINER = "container";
+    public static final String BACKEND_SHARED_NGINX = "shared-nginx";
+    public static final String BACKEND_IN_JVM = "in-jvm";
+
     @Id
     private String id;
     private String userEmail;
     private String containerId;
     private String containerName;
+    private String siteDirectory;
+    private String hostingBackend;
+    private String dockerHost;
+    private String hostname;
     private int port;
     private String status;
+    private String errorMessage;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -42,12 +63,34 @@ public class UserContainer {
     public String getContainerName() { return containerName; }
     public void setContainerName(String containerName) { this.containerName = containerName; }
 
+    // Directory under the sites root; records created before it was stored use the container name
+    public String getSiteDirectory() { return siteDirectory != null ? siteDirectory : containerName; }
+    public void setSiteDirectory(String siteDirectory) { this.siteDirectory = siteDirectory; }
+
+    // True once a backend created the site (in-JVM sites have a hostname but no container)
+    public boolean isProvisioned() { return containerId != null || hostname != null; }
+
+    // Records created before backends were stored all ran in dedicated containers
+    public String getHostingBackend() { return hostingBackend != null ? hostingBackend : BACKEND_CONTAINER; }
+    public void setHostingBackend(String hostingBackend) { this.hostingBackend = hostingBackend; }
+
+    // Docker host running the site's container; null for records created before hosts were stored (default host)
+    public String getDockerHost() { return dockerHost; }
+    public void setDockerHost(String dockerHost) { this.dockerHost = dockerHost; }
+
+    // Virtual host name for sites served by name, null for port-addressed sites
+    public String getHostname() { return hostname; }
+    public void setHostname(String hostname) { this.hostname = hostname; }
+
     public int getPort() { return port; }
     public void setPort(int port) { this.port = port; }
 
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -42,4 +42,9 @@ public class AdminRepository {
         String sql = "INSERT INTO admins (email, password, salt) VALUES (?, ?, ?)";
         jdbcTemplate.update(sql, admin.getEmail(), admin.getPassword(), admin.getSalt());
     }
+
+    public void updatePassword(String email, String password) {
+        String sql = "UPDATE admins SET password = ? WHERE email = ?";
+        jdbcTemplate.update(sql, password, email);
+    }
 }
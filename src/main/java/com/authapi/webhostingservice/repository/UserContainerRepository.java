@@ -4,6 +4,8 @@ import com.authapi.webhostingservice.model.UserContainer;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,6 @@ public interface UserContainerRepository extends MongoRepository<UserContainer,
     Optional<UserContainer> findByUserEmail(String userEmail);
     Optional<UserContainer> findByContainerId(String containerId);
     boolean existsByUserEmail(String userEmail);
+    List<UserContainer> findByStatusIn(Collection<String> statuses);
+    List<UserContainer> findByHostingBackend(String hostingBackend);
 }
\ No newline at end of file
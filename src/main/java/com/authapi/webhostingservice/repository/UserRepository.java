@@ -53,6 +53,11 @@ public class UserRepository {
         jdbcTemplate.update(sql, user.getEmail(), user.getPassword(), user.getSalt());
     }
 
+    public void updatePassword(String email, String password) {
+        String sql = "UPDATE users SET password = ? WHERE email = ?";
+        jdbcTemplate.update(sql, password, email);
+    }
+
     public void deleteByEmail(String email) {
         String sql = "DELETE FROM users WHERE email = ?";
         jdbcTemplate.update(sql, email);
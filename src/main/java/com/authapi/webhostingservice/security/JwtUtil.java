@@ -1,37 +1,83 @@
 package com.authapi.webhostingservice.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Signs and verifies the API's JWTs.
+ *
+ * Keys and the parser are built once at startup. New tokens are signed with jwt.secret
+ * and carry its jwt.key-id in the "kid" header; jwt.previous-secrets (kid=secret,...)
+ * keeps verifying tokens signed with retired keys until they expire, so the secret can
+ * be rotated without logging everyone out. Tokens without a kid predate rotation and
+ * are verified with the current key.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final long expiration;
+    private final String currentKeyId;
+    private final SecretKey currentKey;
+    private final Map<String, SecretKey> verificationKeys = new HashMap<>();
+    private final JwtParser parser;
 
-    @Value("${jwt.expiration}")
-    private long expiration;
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") long expiration,
+                   @Value("${jwt.key-id:primary}") String keyId,
+                   @Value("${jwt.previous-secrets:}") String previousSecrets) {
+        this.expiration = expiration;
+        this.currentKeyId = keyId;
+        this.currentKey = signingKey(secret);
+        verificationKeys.put(keyId, currentKey);
+        for (String entry : previousSecrets.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator > 0) {
+                verificationKeys.putIfAbsent(entry.substring(0, separator).trim(),
+                        signingKey(entry.substring(separator + 1).trim()));
+            } else if (!entry.isBlank()) {
+                throw new IllegalArgumentException("jwt.previous-secrets expects kid=secret, got: " + entry);
+            }
+        }
+        // JwtParser is immutable and thread-safe
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        String kid = header.getKeyId();
+                        SecretKey key = verificationKeys.get(kid != null ? kid : currentKeyId);
+                        if (key == null) {
+                            throw new JwtException("Unknown JWT key id: " + kid);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
 
-    private SecretKey getSigningKey() {
+    private static SecretKey signingKey(String secret) {
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        
+
         if (keyBytes.length < 32) {
             throw new IllegalArgumentException(
                 "JWT secret must be at least 32 characters (256 bits) for HS256. Current length: " + keyBytes.length
             );
         }
-        
+
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
@@ -44,45 +90,66 @@ public class JwtUtil {
         if (role != null) {
             claims.put("role", role);
         }
-        
+
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, currentKeyId)
                 .setClaims(claims)
                 .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(currentKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies a token once and returns what the request needs from it
+     *
+     * @throws JwtException when the token is malformed, expired, or not signed by an active key
+     */
+    public JwtPrincipal parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        return new JwtPrincipal(claims.getSubject(), claims.get("role", String.class),
+                claims.getIssuedAt(), claims.getExpiration());
+    }
+
     public String extractUsername(String token) {
-        Claims claims = extractAllClaims(token);
-        
-        if (claims.getExpiration().before(new Date())) {
-            throw new ExpiredJwtException(null, claims, "Token expired");
-        }
-        
-        return claims.getSubject();
+        return parse(token).getUsername();
     }
 
     public String extractRole(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("role", String.class);
+        return parse(token).getRole();
     }
 
     public boolean validateToken(String token) {
         try {
-            extractAllClaims(token);
+            parse(token);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * The verified contents of a token
+     */
+    public static class JwtPrincipal {
+        private final String username;
+        private final String role;
+        private final Date issuedAt;
+        private final Date expiresAt;
+
+        public JwtPrincipal(String username, String role, Date issuedAt, Date expiresAt) {
+            this.username = username;
+            this.role = role;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUsername() { return username; }
+        // Null for user tokens
+        public String getRole() { return role; }
+        public Date getIssuedAt() { return issuedAt; }
+        public Date getExpiresAt() { return expiresAt; }
     }
-}
\ No newline at end of file
+}
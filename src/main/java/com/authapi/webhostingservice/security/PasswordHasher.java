@@ -0,0 +1,165 @@
+package com.authapi.webhostingservice.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs BCrypt off the request threads.
+ *
+ * Hashing is CPU-bound, so it gets one pool of security.password.threads (default: one
+ * per core) with a bounded queue. When the queue is full, or a hash waited in it longer
+ * than max-wait-ms, callers get an OverloadedException to answer 503 with Retry-After, so a
+ * credential-stuffing burst costs at most those cores and every other request keeps
+ * its Tomcat thread. Hashes with a lower cost than security.password.bcrypt-cost are
+ * re-hashed in the background after a successful login.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private final int retryAfterSeconds;
+    private final Timer hashTimer;
+    private final Counter rejected;
+    private final Counter rehashed;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${security.password.threads:0}") int threads,
+                          @Value("${security.password.queue-capacity:64}") int queueCapacity,
+                          @Value("${security.password.max-wait-ms:5000}") long maxWaitMillis,
+                          @Value("${security.password.retry-after-seconds:5}") int retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("hosting.auth.password.hash")
+                .description("Time from submitting a password hash or check until it completed")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = meterRegistry.counter("hosting.auth.password.rejected");
+        this.rehashed = meterRegistry.counter("hosting.auth.password.rehashed");
+        Gauge.builder("hosting.auth.password.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws OverloadedException when the hashing pool is saturated
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks a password; on success, a hash below the configured cost is upgraded
+     * in the background and handed to onRehash
+     *
+     * @throws OverloadedException when the hashing pool is saturated
+     */
+    public boolean matches(String rawPassword, String encodedPassword, Consumer<String> onRehash) {
+        boolean matches = run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+        if (matches && passwordEncoder.upgradeEncoding(encodedPassword)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        onRehash.accept(passwordEncoder.encode(rawPassword));
+                        rehashed.increment();
+                    } catch (Exception e) {
+                        System.err.println("Password rehash failed: " + e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Busy: the next login upgrades it
+            }
+        }
+        return matches;
+    }
+
+    private <T> T run(Callable<T> task) {
+        long start = System.nanoTime();
+        // Claimed by whichever comes first: the hashing thread starting it, or the caller giving up
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> claimed.compareAndSet(false, true) ? task.call() : null);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new OverloadedException("Password hashing queue is full", retryAfterSeconds);
+        }
+        try {
+            T result;
+            try {
+                result = future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    // Still queued: skipped when its turn comes instead of hashing for nobody
+                    rejected.increment();
+                    throw new OverloadedException("Password hashing timed out in the queue", retryAfterSeconds);
+                }
+                // Already hashing: finishing it is cheaper than having the client retry
+                result = future.get();
+            }
+            hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Interrupted while waiting for password hashing", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The hashing pool cannot take the request; retry after the given delay
+     */
+    public static class OverloadedException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public OverloadedException(String message, int retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -1,35 +1,46 @@
 package com.authapi.webhostingservice.security;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits /auth/ requests per client address.
+ *
+ * X-Forwarded-For and X-Real-IP are only believed when the request comes from one of
+ * rate.limit.trusted-proxies (addresses or CIDR ranges); otherwise anyone could pick a new
+ * address per request and get a new bucket each time.
+ */
 @Component
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    @Value("${rate.limit.capacity:5}")
-    private int capacity;
-
-    @Value("${rate.limit.refill.tokens:5}")
-    private int refillTokens;
-
-    @Value("${rate.limit.refill.duration.minutes:1}")
-    private int refillDurationMinutes;
-
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    private final RateLimitBucketStore bucketStore;
+    private final List<IpAddressMatcher> trustedProxies = new ArrayList<>();
+    private final Counter rejected;
+
+    public RateLimitFilter(RateLimitBucketStore bucketStore,
+                           MeterRegistry meterRegistry,
+                           @Value("${rate.limit.trusted-proxies:127.0.0.1,::1}") String trustedProxies) {
+        this.bucketStore = bucketStore;
+        this.rejected = meterRegistry.counter("hosting.ratelimit.rejected");
+        for (String proxy : trustedProxies.split(",")) {
+            if (!proxy.isBlank()) {
+                this.trustedProxies.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -40,11 +51,10 @@ public class RateLimitFilter extends OncePerRequestFilter {
         String path = request.getRequestURI();
 
         if (path.startsWith("/auth/")) {
-            Bucket bucket = resolveBucket(clientIP);
-
-            if (bucket.tryConsume(1)) {
+            if (bucketStore.resolve(clientIP).tryConsume(1)) {
                 filterChain.doFilter(request, response);
             } else {
+                rejected.increment();
                 response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
                 response.setContentType("application/json");
                 response.getWriter().write("{\"error\":\"Too many requests. Please try again later.\"}");
@@ -54,31 +64,46 @@ public class RateLimitFilter extends OncePerRequestFilter {
         }
     }
 
-    private Bucket resolveBucket(String clientIP) {
-        return cache.computeIfAbsent(clientIP, k -> createNewBucket());
-    }
-
-    private Bucket createNewBucket() {
-        Bandwidth limit = Bandwidth.classic(
-            capacity, 
-            Refill.intervally(refillTokens, Duration.ofMinutes(refillDurationMinutes))
-        );
-        return Bucket.builder()
-                .addLimit(limit)
-                .build();
-    }
-
+    /**
+     * The peer address, or when the peer is a trusted proxy, the nearest forwarded hop that is not.
+     * X-Forwarded-For is read from the right: the leftmost entries are whatever the client sent.
+     */
     private String getClientIP(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+            String[] hops = xForwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!hop.isEmpty() && !isTrustedProxy(hop)) {
+                    return hop;
+                }
+            }
         }
 
         String xRealIP = request.getHeader("X-Real-IP");
         if (xRealIP != null && !xRealIP.isEmpty()) {
-            return xRealIP;
+            return xRealIP.trim();
         }
 
-        return request.getRemoteAddr();
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher proxy : trustedProxies) {
+            try {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not an IP address (e.g. "unknown" from a proxy), so not a proxy we trust
+                return false;
+            }
+        }
+        return false;
     }
 }
\ No newline at end of file
@@ -38,45 +38,64 @@ public class SecurityConfig {
     private final AdminRepository adminRepository;
     private final JwtUtil jwtUtil;
     private final RateLimitFilter rateLimitFilter;
+    private final TokenDenylist tokenDenylist;
+    private final UserDetailsCache userDetailsCache;
+
+    // Build the principal from the token's claims instead of loading the account per request
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
 
     public SecurityConfig(UserRepository userRepository,
                           AdminRepository adminRepository,
                           JwtUtil jwtUtil,
-                          RateLimitFilter rateLimitFilter) {
+                          RateLimitFilter rateLimitFilter,
+                          TokenDenylist tokenDenylist,
+                          UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
         this.adminRepository = adminRepository;
         this.jwtUtil = jwtUtil;
         this.rateLimitFilter = rateLimitFilter;
+        this.tokenDenylist = tokenDenylist;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return email -> {
-            var user = userRepository.findByEmail(email);
-            if (user != null) {
-                return org.springframework.security.core.userdetails.User
-                        .withUsername(user.getEmail())
-                        .password(user.getPassword())
-                        .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")))
-                        .build();
-            }
+        return email -> userDetailsCache.get(email, this::loadAccount);
+    }
 
-            var admin = adminRepository.findByEmail(email);
-            if (admin != null) {
-                return org.springframework.security.core.userdetails.User
-                        .withUsername(admin.getEmail())
-                        .password(admin.getPassword())
-                        .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN")))
-                        .build();
-            }
+    /**
+     * Looks the email up as a user, then as an admin; null when it is neither
+     */
+    private UserDetails loadAccount(String email) {
+        var user = userRepository.findByEmail(email);
+        if (user != null) {
+            return org.springframework.security.core.userdetails.User
+                    .withUsername(user.getEmail())
+                    .password(user.getPassword())
+                    .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")))
+                    .build();
+        }
 
-            throw new UsernameNotFoundException("User not found");
-        };
+        var admin = adminRepository.findByEmail(email);
+        if (admin != null) {
+            return org.springframework.security.core.userdetails.User
+                    .withUsername(admin.getEmail())
+                    .password(admin.getPassword())
+                    .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN")))
+                    .build();
+        }
+
+        return null;
     }
 
+    // Raising it upgrades existing hashes on their next login (see PasswordHasher)
+    @Value("${security.password.bcrypt-cost:10}")
+    private int bcryptCost;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptCost);
     }
 
     @Bean
@@ -114,6 +133,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/actuator/health", "/actuator/info").permitAll()
+                        .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/container/**").hasAnyRole("USER", "ADMIN")
                         .anyRequest().authenticated()
@@ -147,13 +167,18 @@ public class SecurityConfig {
                                         FilterChain filterChain) throws ServletException, IOException {
 
             final String authHeader = request.getHeader("Authorization");
+            JwtUtil.JwtPrincipal principal = null;
             String username = null;
-            String jwt = null;
 
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                jwt = authHeader.substring(7);
                 try {
-                    username = jwtUtil.extractUsername(jwt);
+                    // Verified once; everything later in the request reads the principal
+                    principal = jwtUtil.parse(authHeader.substring(7));
+                    if (tokenDenylist.isRevoked(principal)) {
+                        System.err.println("Revoked token presented for " + principal.getUsername());
+                    } else {
+                        username = principal.getUsername();
+                    }
                 } catch (Exception e) {
                     System.err.println("JWT extraction failed: " + e.getMessage());
                 }
@@ -162,11 +187,14 @@ public class SecurityConfig {
             if (username != null &&
                     org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication() == null) {
                 try {
-                    UserDetails userDetails = userDetailsService().loadUserByUsername(username);
+                    UserDetails userDetails = stateless
+                            ? fromClaims(principal)
+                            : userDetailsService().loadUserByUsername(username);
                     if (userDetails != null) {
                         var authToken = new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities()
                         );
+                        authToken.setDetails(principal);
                         org.springframework.security.core.context.SecurityContextHolder.getContext().setAuthentication(authToken);
                     }
                 } catch (UsernameNotFoundException e) {
@@ -176,5 +204,17 @@ public class SecurityConfig {
 
             filterChain.doFilter(request, response);
         }
+
+        /**
+         * The account as the verified token describes it: admin tokens carry role ADMIN, user tokens no role
+         */
+        private UserDetails fromClaims(JwtUtil.JwtPrincipal principal) {
+            String role = "ADMIN".equals(principal.getRole()) ? "ROLE_ADMIN" : "ROLE_USER";
+            return org.springframework.security.core.userdetails.User
+                    .withUsername(principal.getUsername())
+                    .password("")
+                    .authorities(Collections.singletonList(new SimpleGrantedAuthority(role)))
+                    .build();
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.authapi.webhostingservice.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accounts whose already issued tokens must no longer be accepted.
+ *
+ * Stores one timestamp per revoked account rather than token ids: every token of that
+ * account issued up to the revocation is rejected, tokens from a later login are not.
+ * An entry is dropped once every token it covers has expired (jwt.expiration), so the
+ * list only holds accounts revoked within the last token lifetime. It is kept in memory,
+ * so each instance of the service only knows the revocations it performed itself.
+ */
+@Component
+public class TokenDenylist {
+
+    private final long tokenLifetimeMillis;
+    // username -> revocation time, in epoch seconds like the iat claim
+    private final Map<String, Long> revokedAt = new ConcurrentHashMap<>();
+
+    public TokenDenylist(@Value("${jwt.expiration}") long tokenLifetimeMillis, MeterRegistry meterRegistry) {
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        Gauge.builder("hosting.auth.denylist.size", revokedAt, Map::size)
+                .description("Accounts whose issued tokens are revoked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rejects every token issued to the account so far
+     */
+    public void revoke(String username) {
+        revokedAt.put(username, System.currentTimeMillis() / 1000);
+    }
+
+    public boolean isRevoked(JwtUtil.JwtPrincipal principal) {
+        Long revoked = revokedAt.get(principal.getUsername());
+        if (revoked == null) {
+            return false;
+        }
+        // iat has second precision: a token from the revocation's second counts as revoked
+        return principal.getIssuedAt() == null || principal.getIssuedAt().getTime() / 1000 <= revoked;
+    }
+
+    public int size() {
+        return revokedAt.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.denylist.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        long cutoff = (System.currentTimeMillis() - tokenLifetimeMillis) / 1000;
+        revokedAt.values().removeIf(revoked -> revoked < cutoff);
+    }
+}
@@ -0,0 +1,161 @@
+package com.authapi.webhostingservice.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * LRU cache of accounts in front of the UserDetailsService, so DB-backed authentication
+ * does not query MySQL on every request.
+ *
+ * Entries expire after security.user-cache.ttl-ms; emails that matched no account are
+ * remembered for the shorter negative-ttl-ms. Deleting or registering an account
+ * invalidates its entry right away, so only changes made outside this instance wait
+ * for the TTL. A load that overlapped an invalidation is returned but not cached, since
+ * it may have read the account from before the change. Fresh UserDetails are built on every hit, because Spring erases the
+ * credentials of the instance it authenticated.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final LinkedHashMap<String, CachedAccount> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // Bumped by every invalidation, of any email: they are rare, and a skipped store only costs
+    // one more load. A load only caches its result if no invalidation happened meanwhile
+    private long generation;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public UserDetailsCache(@Value("${security.user-cache.enabled:true}") boolean enabled,
+                            @Value("${security.user-cache.max-entries:10000}") int maxEntries,
+                            @Value("${security.user-cache.ttl-ms:60000}") long ttlMillis,
+                            @Value("${security.user-cache.negative-ttl-ms:10000}") long negativeTtlMillis,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.hits = meterRegistry.counter("hosting.auth.user-cache.hits");
+        this.misses = meterRegistry.counter("hosting.auth.user-cache.misses");
+        this.sizeEvictions = meterRegistry.counter("hosting.auth.user-cache.evictions", "cause", "size");
+        this.expiredEvictions = meterRegistry.counter("hosting.auth.user-cache.evictions", "cause", "expired");
+        Gauge.builder("hosting.auth.user-cache.size", this, UserDetailsCache::size)
+                .description("Accounts (including unknown emails) held by the user details cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached account, or the loader's result (null for no such account) which is then cached
+     *
+     * @throws UsernameNotFoundException when there is no account for the email
+     */
+    public UserDetails get(String email, Function<String, UserDetails> loader) {
+        if (!enabled) {
+            UserDetails loaded = loader.apply(email);
+            if (loaded == null) {
+                throw new UsernameNotFoundException("User not found");
+            }
+            return loaded;
+        }
+
+        long loadGeneration;
+        CachedAccount cached;
+        synchronized (this) {
+            loadGeneration = generation;
+            cached = lookup(email);
+        }
+        if (cached == null) {
+            misses.increment();
+            // Loaded outside the lock; concurrent misses for one email may both load it
+            UserDetails loaded = loader.apply(email);
+            cached = loaded != null
+                    ? new CachedAccount(loaded.getUsername(), loaded.getPassword(), loaded.getAuthorities(),
+                            System.currentTimeMillis() + ttlMillis)
+                    : new CachedAccount(null, null, null, System.currentTimeMillis() + negativeTtlMillis);
+            store(email, cached, loadGeneration);
+        } else {
+            hits.increment();
+        }
+
+        if (cached.username == null) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        return User.withUsername(cached.username)
+                .password(cached.password)
+                .authorities(cached.authorities)
+                .build();
+    }
+
+    /**
+     * Drops an account after it was created, deleted or changed
+     */
+    public synchronized void invalidate(String email) {
+        entries.remove(email);
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized CachedAccount lookup(String email) {
+        CachedAccount cached = entries.get(email);
+        if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(email);
+            expiredEvictions.increment();
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * Caches a loaded account unless an invalidation happened since the load started
+     */
+    private synchronized void store(String email, CachedAccount account, long loadGeneration) {
+        if (generation != loadGeneration) {
+            return;
+        }
+        entries.put(email, account);
+        Iterator<Map.Entry<String, CachedAccount>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            sizeEvictions.increment();
+        }
+    }
+
+    /**
+     * What is needed to rebuild the UserDetails; username is null for an email without account
+     */
+    private static class CachedAccount {
+        private final String username;
+        private final String password;
+        private final Collection<? extends GrantedAuthority> authorities;
+        private final long expiresAt;
+
+        CachedAccount(String username, String password, Collection<? extends GrantedAuthority> authorities,
+                      long expiresAt) {
+            this.username = username;
+            this.password = password;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Applies per-site resource limits and admits new containers only while the host has room for them.
+ *
+ * Every site container gets the same memory, CPU and PIDs limits. Committed
+ * resources are the number of container-backed sites (plus the warm pools) times
+ * those limits, compared against the summed capacity of the Docker hosts scaled
+ * by the configured overcommit factors. The count is kept in memory, reserved on admit,
+ * released on delete or failure and recounted from Mongo periodically.
+ */
+@Service
+public class AdmissionController {
+
+    private final DockerHostRegistry dockerHosts;
+    private final MongoTemplate mongoTemplate;
+    private final Counter rejections;
+
+    @Value("${hosting.limits.memory-bytes:67108864}")
+    private long memoryLimitBytes;
+
+    @Value("${hosting.limits.cpus:0.25}")
+    private double cpuLimit;
+
+    @Value("${hosting.limits.pids:64}")
+    private long pidsLimit;
+
+    // 0 means "ask the Docker hosts"
+    @Value("${hosting.capacity.memory-bytes:0}")
+    private long configuredMemoryBytes;
+
+    @Value("${hosting.capacity.cpus:0}")
+    private double configuredCpus;
+
+    @Value("${hosting.capacity.memory-overcommit:1.0}")
+    private double memoryOvercommit;
+
+    @Value("${hosting.capacity.cpu-overcommit:4.0}")
+    private double cpuOvercommit;
+
+    @Value("${hosting.capacity.retry-after-seconds:120}")
+    private int retryAfterSeconds;
+
+    @Value("${hosting.warm-pool.size:0}")
+    private int warmPoolSize;
+
+    // Only shared-image mode keeps a warm pool (see UserDockerService)
+    @Value("${hosting.provisioning.mode:shared-image}")
+    private String provisioningMode;
+
+    private long hostMemoryBytes;
+    private double hostCpus;
+    private int committedSites;
+
+    public AdmissionController(DockerHostRegistry dockerHosts, MongoTemplate mongoTemplate, MeterRegistry meterRegistry) {
+        this.dockerHosts = dockerHosts;
+        this.mongoTemplate = mongoTemplate;
+        this.rejections = meterRegistry.counter("hosting.admission.rejected");
+
+        Gauge.builder("hosting.capacity.memory.committed", this, c -> c.committedContainers() * (double) c.memoryLimitBytes)
+                .baseUnit("bytes")
+                .description("Memory promised to site containers")
+                .register(meterRegistry);
+        Gauge.builder("hosting.capacity.memory.total", this, c -> c.memoryCapacity())
+                .baseUnit("bytes")
+                .description("Memory site containers may be promised in total")
+                .register(meterRegistry);
+        Gauge.builder("hosting.capacity.cpu.committed", this, c -> c.committedContainers() * c.cpuLimit)
+                .description("CPUs promised to site containers")
+                .register(meterRegistry);
+        Gauge.builder("hosting.capacity.cpu.total", this, c -> c.cpuCapacity())
+                .description("CPUs site containers may be promised in total")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds the per-site limits to a container spec
+     */
+    public ContainerRuntime.ContainerSpec withLimits(ContainerRuntime.ContainerSpec spec) {
+        if (memoryLimitBytes > 0) {
+            spec.withMemory(memoryLimitBytes);
+        }
+        if (cpuLimit > 0) {
+            spec.withNanoCpus((long) (cpuLimit * 1_000_000_000L));
+        }
+        if (pidsLimit > 0) {
+            spec.withPidsLimit(pidsLimit);
+        }
+        return spec;
+    }
+
+    public long getMemoryLimitBytes() {
+        return memoryLimitBytes;
+    }
+
+    /**
+     * Warm containers kept on each Docker host; none when sites get images of their own
+     */
+    public int getWarmPoolSize() {
+        return "image-build".equalsIgnoreCase(provisioningMode) ? 0 : Math.max(0, warmPoolSize);
+    }
+
+    /**
+     * Reserves room for one more site container
+     *
+     * @throws CapacityExceededException when the host is full
+     */
+    public synchronized void admit() {
+        int next = committedContainers() + 1;
+        boolean memoryFull = memoryLimitBytes > 0 && next * (double) memoryLimitBytes > memoryCapacity();
+        boolean cpuFull = cpuLimit > 0 && next * cpuLimit > cpuCapacity();
+        if (memoryFull || cpuFull) {
+            rejections.increment();
+            throw new CapacityExceededException(
+                    "Hosting capacity reached (" + (memoryFull ? "memory" : "cpu") + ")", retryAfterSeconds);
+        }
+        committedSites++;
+    }
+
+    /**
+     * Gives back a reservation (site deleted or provisioning failed)
+     */
+    public synchronized void release() {
+        if (committedSites > 0) {
+            committedSites--;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        detectHostCapacity();
+        recount();
+    }
+
+    /**
+     * Recounts committed sites from user_containers, correcting missed releases
+     */
+    @Scheduled(fixedDelayString = "${hosting.capacity.recount-interval-ms:60000}",
+               initialDelayString = "${hosting.capacity.recount-interval-ms:60000}")
+    public void recount() {
+        int before;
+        synchronized (this) {
+            before = committedSites;
+        }
+        long count;
+        try {
+            // Records written before backends existed have no hostingBackend and are containers
+            Query query = Query.query(new Criteria().orOperator(
+                            Criteria.where("hostingBackend").is(UserContainer.BACKEND_CONTAINER),
+                            Criteria.where("hostingBackend").exists(false))
+                    .and("status").nin(UserContainer.STATUS_FAILED, UserContainer.STATUS_DELETING));
+            count = mongoTemplate.count(query, UserContainer.class);
+        } catch (Exception e) {
+            System.err.println("Admission recount skipped: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            // Admits and releases made while counting are applied on top rather than lost;
+            // one whose record was already saved is counted twice until the next recount
+            committedSites = Math.max(0, (int) count + committedSites - before);
+        }
+    }
+
+    private void detectHostCapacity() {
+        // Placement needs every host's memory even when admission uses configured totals
+        dockerHosts.detectCapacity();
+        long memory = 0;
+        double cpus = 0;
+        for (DockerHostRegistry.DockerHost host : dockerHosts.getHosts()) {
+            memory += host.getMemoryBytes();
+            cpus += host.getCpus();
+        }
+        synchronized (this) {
+            hostMemoryBytes = memory;
+            hostCpus = cpus;
+        }
+    }
+
+    private synchronized int committedContainers() {
+        return committedSites + getWarmPoolSize() * dockerHosts.size();
+    }
+
+    private synchronized double memoryCapacity() {
+        long memory = configuredMemoryBytes > 0 ? configuredMemoryBytes : hostMemoryBytes;
+        return memory > 0 ? memory * memoryOvercommit : Double.MAX_VALUE;
+    }
+
+    /**
+     * Memory one host with the given physical memory may promise to site containers
+     */
+    double memoryCapacity(long hostMemoryBytes) {
+        return hostMemoryBytes * memoryOvercommit;
+    }
+
+    private synchronized double cpuCapacity() {
+        double cpus = configuredCpus > 0 ? configuredCpus : hostCpus;
+        return cpus > 0 ? cpus * cpuOvercommit : Double.MAX_VALUE;
+    }
+
+    /**
+     * Thrown when admitting another container would exceed host capacity
+     */
+    public static class CapacityExceededException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public CapacityExceededException(String message, int retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.authapi.webhostingservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a gzip sibling (style.css -> style.css.gz) next to every compressible file of a
+ * site tree at upload time, so nginx (gzip_static) and the in-JVM server send compressed
+ * bytes without compressing on each request.
+ *
+ * Files are compressed in parallel on a pool shared by all uploads. A sibling is only
+ * kept when it saves at least 10%.
+ */
+@Service
+public class AssetCompressor {
+
+    private static final Set<String> COMPRESSIBLE = Set.of(
+            "html", "htm", "css", "js", "mjs", "json", "map", "svg", "xml", "txt", "ico", "wasm", "webmanifest");
+
+    // A name segment of 8+ characters with at least one digit before the extension, e.g. app.3f9a2c1b.js or index-Bk3x9aQz.css
+    private static final String FINGERPRINT_REGEX =
+            "[.-](?=[0-9a-z_]*[0-9])[0-9a-z_]{8,}\\.(css|js|mjs|woff2?|ttf|png|jpe?g|gif|svg|webp|avif|ico)$";
+    private static final Pattern FINGERPRINTED = Pattern.compile(FINGERPRINT_REGEX, Pattern.CASE_INSENSITIVE);
+
+    static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /**
+     * Server block directives serving the precompressed siblings and caching fingerprinted assets for a year
+     */
+    static final String NGINX_DIRECTIVES =
+            "    gzip_static on;\n" +
+            "    gzip_vary on;\n" +
+            "    location ~* \"" + FINGERPRINT_REGEX + "\" {\n" +
+            "        add_header Cache-Control \"" + IMMUTABLE_CACHE_CONTROL + "\";\n" +
+            "        try_files $uri =404;\n" +
+            "    }\n";
+
+    private final ExecutorService executor;
+    private final Timer compressTimer;
+    private final Counter savedBytes;
+
+    @Value("${hosting.uploads.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hosting.uploads.compression.min-bytes:256}")
+    private long minBytes;
+
+    public AssetCompressor(MeterRegistry meterRegistry,
+                           @Value("${hosting.uploads.compression.threads:0}") int threads) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "asset-compressor-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compressTimer = meterRegistry.timer("hosting.upload.compress");
+        this.savedBytes = Counter.builder("hosting.upload.compression.saved.bytes")
+                .description("Bytes saved by precompressed siblings, per copy served")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public static boolean isFingerprinted(String filename) {
+        return FINGERPRINTED.matcher(filename).find();
+    }
+
+    /**
+     * Adds .gz siblings to the compressible files of a site tree
+     */
+    public void compress(Path tree) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(tree)) {
+            files = walk.filter(f -> Files.isRegularFile(f, LinkOption.NOFOLLOW_LINKS))
+                    .filter(AssetCompressor::isCompressible)
+                    .collect(Collectors.toList());
+        }
+
+        List<Future<?>> pending = new ArrayList<>();
+        for (Path file : files) {
+            pending.add(executor.submit(() -> {
+                compressFile(file);
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach(f -> f.cancel(true));
+            throw new IOException("Compression was interrupted", e);
+        } catch (ExecutionException e) {
+            pending.forEach(f -> f.cancel(true));
+            throw new IOException("Failed to compress site assets: " + e.getCause().getMessage(), e.getCause());
+        }
+        compressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void compressFile(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < minBytes) {
+            return;
+        }
+        Path compressed = file.resolveSibling(file.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed), 64 * 1024) {
+                 {
+                     def.setLevel(Deflater.BEST_COMPRESSION);
+                 }
+             }) {
+            in.transferTo(out);
+        }
+
+        long compressedSize = Files.size(compressed);
+        if (compressedSize > size * 0.9) {
+            Files.delete(compressed);
+            return;
+        }
+        // Same timestamp as the original so both variants carry the same Last-Modified
+        Files.setLastModifiedTime(compressed, Files.getLastModifiedTime(file));
+        savedBytes.increment(size - compressedSize);
+    }
+
+    private static boolean isCompressible(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && COMPRESSIBLE.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
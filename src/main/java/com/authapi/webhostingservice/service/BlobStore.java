@@ -0,0 +1,318 @@
+package com.authapi.webhostingservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store that lets identical files across sites share one copy on disk.
+ *
+ * Every file of a published release is hashed (SHA-256) and hard-linked with
+ * BASE_HTML_DIR/.blobs/<first two hex chars>/<hash>. A file whose hash is already
+ * stored is replaced by a link to the stored blob. The filesystem link count is the
+ * reference count: a blob with no link besides its own entry here is garbage and is
+ * removed by the next collection, which runs shortly after a site or release is deleted.
+ * Blobs are made read-only because every site linking them shares the same inode.
+ * The link count also covers kept previous releases, so the saved-bytes figure is
+ * computed from the links under each site's current release instead.
+ *
+ * A precompressed sibling (see AssetCompressor) is stored under its original's hash as
+ * <hash>.gz, so the two variants a site serves always come from the same upload and
+ * carry the same modification time, which nginx sends as Last-Modified. When that
+ * cannot be guaranteed the sibling stays a private copy stamped with the original's time.
+ */
+@Service
+public class BlobStore {
+
+    static final String BLOB_DIR = UserDockerService.BASE_HTML_DIR + "/.blobs";
+
+    private final Counter dedupHits;
+    private final Counter dedupMisses;
+    private final AtomicBoolean collectionRequested = new AtomicBoolean(false);
+
+    private volatile long blobCount;
+    private volatile long storedBytes;
+    private volatile long savedBytes;
+
+    @Value("${hosting.blobs.enabled:true}")
+    private boolean enabled;
+
+    // Holds one directory per site; only their current releases count towards the savings
+    private Path sitesRoot = Paths.get(UserDockerService.BASE_HTML_DIR);
+
+    public BlobStore(MeterRegistry meterRegistry) {
+        this.dedupHits = Counter.builder("hosting.blobs.dedup")
+                .tag("result", "hit")
+                .description("Uploaded files that were already stored")
+                .register(meterRegistry);
+        this.dedupMisses = Counter.builder("hosting.blobs.dedup")
+                .tag("result", "miss")
+                .description("Uploaded files stored for the first time")
+                .register(meterRegistry);
+
+        Gauge.builder("hosting.blobs.dedup.hit.rate", this, BlobStore::getHitRate)
+                .description("Share of uploaded files that were deduplicated")
+                .register(meterRegistry);
+        Gauge.builder("hosting.blobs.count", this, s -> s.blobCount)
+                .description("Distinct files in the blob store")
+                .register(meterRegistry);
+        Gauge.builder("hosting.blobs.stored.bytes", this, s -> s.storedBytes)
+                .description("Disk used by the blob store")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("hosting.blobs.saved.bytes", this, s -> s.savedBytes)
+                .description("Disk that separate copies per site's current release would have used on top")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public double getHitRate() {
+        double total = dedupHits.count() + dedupMisses.count();
+        return total == 0 ? 0 : dedupHits.count() / total;
+    }
+
+    /**
+     * Links every regular file in a site tree with the store, sharing files that are already stored.
+     * A file that cannot be linked is left as a private copy.
+     */
+    public void deduplicate(Path tree) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(tree)) {
+            files = walk.filter(f -> Files.isRegularFile(f, LinkOption.NOFOLLOW_LINKS))
+                    .collect(Collectors.toList());
+        }
+        Set<Path> all = new HashSet<>(files);
+        Set<Path> siblings = files.stream()
+                .filter(f -> f.getFileName().toString().endsWith(".gz"))
+                .filter(f -> all.contains(withoutGzSuffix(f)))
+                .collect(Collectors.toSet());
+        for (Path file : files) {
+            if (siblings.contains(file)) {
+                // Handled with its original below
+                continue;
+            }
+            try {
+                String hash = sha256(file);
+                link(file, hash);
+                Path sibling = file.resolveSibling(file.getFileName() + ".gz");
+                if (siblings.contains(sibling)) {
+                    linkSibling(sibling, hash, Files.getLastModifiedTime(file));
+                }
+            } catch (IOException | UnsupportedOperationException e) {
+                System.err.println("Could not deduplicate " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Shares a precompressed sibling keyed by its original's hash, if the stored one has the
+     * original's timestamp; otherwise keeps it private with that timestamp
+     */
+    private void linkSibling(Path sibling, String originalHash, FileTime originalTime) throws IOException {
+        Path blob = blobPath(originalHash + ".gz");
+        synchronized (this) {
+            if (Files.exists(blob) && !Files.getLastModifiedTime(blob).equals(originalTime)) {
+                // Stored alongside a different copy of the original (e.g. recollected since)
+                Files.setLastModifiedTime(sibling, originalTime);
+                return;
+            }
+            if (!Files.exists(blob)) {
+                // Still private to this upload, so its timestamp can be set before it is shared
+                Files.setLastModifiedTime(sibling, originalTime);
+            }
+            link(sibling, blob);
+        }
+    }
+
+    private static Path withoutGzSuffix(Path file) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - ".gz".length()));
+    }
+
+    private static Path blobPath(String name) {
+        return Paths.get(BLOB_DIR, name.substring(0, 2), name);
+    }
+
+    /**
+     * Asks for a collection once files were unlinked from sites
+     */
+    public void requestCollection() {
+        collectionRequested.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${hosting.blobs.gc-interval-ms:5000}")
+    public void collectIfRequested() {
+        if (collectionRequested.getAndSet(false)) {
+            collectGarbage();
+        }
+    }
+
+    /**
+     * Removes blobs no site links to anymore and recomputes the disk usage metrics
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void collectGarbage() {
+        Path root = Paths.get(BLOB_DIR);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        long count = 0;
+        long stored = 0;
+        int removed = 0;
+        Map<Object, Long> liveSizes = new HashMap<>();
+        List<Path> blobs;
+        try (Stream<Path> walk = Files.walk(root, 2)) {
+            blobs = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            System.err.println("Blob collection skipped: " + e.getMessage());
+            return;
+        }
+        for (Path blob : blobs) {
+            try {
+                int links = (Integer) Files.getAttribute(blob, "unix:nlink");
+                long size = Files.size(blob);
+                if (links <= 1) {
+                    Files.delete(blob);
+                    removed++;
+                    continue;
+                }
+                count++;
+                stored += size;
+                liveSizes.put(Files.readAttributes(blob, BasicFileAttributes.class).fileKey(), size);
+            } catch (IOException | UnsupportedOperationException e) {
+                System.err.println("Could not inspect blob " + blob + ": " + e.getMessage());
+            }
+        }
+
+        blobCount = count;
+        storedBytes = stored;
+        savedBytes = savedBytes(liveSizes);
+        if (removed > 0) {
+            System.out.println("Blob store: removed " + removed + " unreferenced blob(s)");
+        }
+    }
+
+    /**
+     * Bytes saved across current releases: a blob they link n times saves n - 1 copies.
+     * Previous releases kept for in-flight requests are not counted as separate sites.
+     */
+    private long savedBytes(Map<Object, Long> liveSizes) {
+        if (!Files.isDirectory(sitesRoot)) {
+            return 0;
+        }
+        Map<Object, Integer> references = new HashMap<>();
+        List<Path> currentLinks;
+        try (Stream<Path> sites = Files.list(sitesRoot)) {
+            currentLinks = sites.filter(site -> !site.getFileName().toString().startsWith("."))
+                    .map(site -> site.resolve("html").resolve(SiteContentService.CURRENT_LINK))
+                    .filter(Files::isSymbolicLink)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            System.err.println("Could not list sites for blob savings: " + e.getMessage());
+            return savedBytes;
+        }
+        for (Path currentLink : currentLinks) {
+            try (Stream<Path> walk = Files.walk(currentLink.toRealPath())) {
+                for (Path file : (Iterable<Path>) walk::iterator) {
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isRegularFile() && liveSizes.containsKey(attributes.fileKey())) {
+                        references.merge(attributes.fileKey(), 1, Integer::sum);
+                    }
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // Replaced or deleted while walking; counted again by the next collection
+            }
+        }
+        long saved = 0;
+        for (Map.Entry<Object, Integer> reference : references.entrySet()) {
+            saved += liveSizes.get(reference.getKey()) * (reference.getValue() - 1);
+        }
+        return saved;
+    }
+
+    private void link(Path file, String hash) throws IOException {
+        link(file, blobPath(hash));
+    }
+
+    private synchronized void link(Path file, Path blob) throws IOException {
+        Files.createDirectories(blob.getParent());
+        if (!Files.exists(blob)) {
+            try {
+                Files.createLink(blob, file);
+                makeReadOnly(blob);
+                dedupMisses.increment();
+                return;
+            } catch (FileAlreadyExistsException e) {
+                // Stored meanwhile, share it below
+            }
+        }
+
+        // Replace the file with a link to the stored copy in one rename
+        Path linked = file.resolveSibling("." + file.getFileName() + ".blob");
+        Files.createLink(linked, blob);
+        Files.move(linked, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dedupHits.increment();
+    }
+
+    private static void makeReadOnly(Path blob) {
+        try {
+            Files.setPosixFilePermissions(blob, PosixFilePermissions.fromString("r--r--r--"));
+        } catch (IOException | UnsupportedOperationException e) {
+            // Best effort: releases are never written in place anyway
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,233 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.User;
+import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.repository.UserRepository;
+import com.authapi.webhostingservice.security.TokenDenylist;
+import com.authapi.webhostingservice.security.UserDetailsCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an admin operation over many users or sites at once.
+ *
+ * Items fan out over one pool shared by all bulk requests, so the number of
+ * concurrent Docker operations stays at hosting.admin.bulk.concurrency however many
+ * bulk requests run. Each item's result is written as one JSON line as soon as it
+ * completes, followed by a summary line.
+ */
+@Service
+public class BulkOperationService {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    /**
+     * Operations available in bulk
+     */
+    public enum Action {
+        RESTART_CONTAINER, DELETE_CONTAINER, DELETE_USER
+    }
+
+    private final UserContainerService userContainerService;
+    private final UserRepository userRepository;
+    private final TokenDenylist tokenDenylist;
+    private final UserDetailsCache userDetailsCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+
+    @Value("${hosting.admin.bulk.max-items:1000}")
+    private int maxItems;
+
+    public BulkOperationService(UserContainerService userContainerService,
+                                UserRepository userRepository,
+                                TokenDenylist tokenDenylist,
+                                UserDetailsCache userDetailsCache,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${hosting.admin.bulk.concurrency:8}") int concurrency) {
+        this.userContainerService = userContainerService;
+        this.userRepository = userRepository;
+        this.tokenDenylist = tokenDenylist;
+        this.userDetailsCache = userDetailsCache;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "admin-bulk-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Emails of the users whose sites match: the given emails, or every site with the
+     * given status and/or backend
+     *
+     * @throws IllegalArgumentException when nothing selects the sites, or too many are selected
+     */
+    public List<String> selectContainers(List<String> userEmails, String status, String backend) {
+        List<String> targets;
+        if (userEmails != null && !userEmails.isEmpty()) {
+            targets = new ArrayList<>(new LinkedHashSet<>(userEmails));
+        } else if (status != null || backend != null) {
+            targets = new ArrayList<>();
+            for (UserContainer container : userContainerService.getAllContainers()) {
+                if ((status == null || status.equals(container.getStatus()))
+                        && (backend == null || backend.equals(container.getHostingBackend()))) {
+                    targets.add(container.getUserEmail());
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Give userEmails, or a status and/or backend filter");
+        }
+        checkSize(targets);
+        return targets;
+    }
+
+    /**
+     * @throws IllegalArgumentException when no emails are given, or too many
+     */
+    public List<String> selectUsers(List<String> emails) {
+        if (emails == null || emails.isEmpty()) {
+            throw new IllegalArgumentException("Give the emails of the users to delete");
+        }
+        List<String> targets = new ArrayList<>(new LinkedHashSet<>(emails));
+        checkSize(targets);
+        return targets;
+    }
+
+    /**
+     * Runs the action for every target and writes one JSON line per result, in completion order,
+     * then a summary line. Returns when every item has finished.
+     */
+    public void run(Action action, List<String> targets, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        CompletionService<Map<String, Object>> completion = new ExecutorCompletionService<>(executor);
+        for (String target : targets) {
+            completion.submit(() -> runItem(action, target));
+        }
+
+        int succeeded = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            Map<String, Object> result;
+            try {
+                Future<Map<String, Object>> done = completion.take();
+                result = done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Bulk operation was interrupted", e);
+            } catch (ExecutionException e) {
+                // runItem catches everything, this is not expected
+                throw new IOException("Bulk item failed: " + e.getCause().getMessage(), e.getCause());
+            }
+            if (Boolean.TRUE.equals(result.get("ok"))) {
+                succeeded++;
+            }
+            writeLine(out, result);
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("summary", true);
+        summary.put("action", action.name().toLowerCase());
+        summary.put("total", targets.size());
+        summary.put("succeeded", succeeded);
+        summary.put("failed", targets.size() - succeeded);
+        summary.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        writeLine(out, summary);
+    }
+
+    private Map<String, Object> runItem(Action action, String target) {
+        long start = System.nanoTime();
+        Map<String, Object> result = new HashMap<>();
+        result.put("target", target);
+        try {
+            switch (action) {
+                case RESTART_CONTAINER:
+                    userContainerService.restartContainer(target);
+                    break;
+                case DELETE_CONTAINER:
+                    userContainerService.deleteContainer(target);
+                    break;
+                case DELETE_USER:
+                    if (!deleteUser(target)) {
+                        throw new IllegalStateException("User not found");
+                    }
+                    break;
+            }
+            result.put("ok", true);
+        } catch (Exception e) {
+            result.put("ok", false);
+            result.put("error", e.getMessage());
+        }
+        long elapsed = System.nanoTime() - start;
+        result.put("millis", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        meterRegistry.timer("hosting.admin.bulk.item",
+                        "action", action.name().toLowerCase(),
+                        "outcome", Boolean.TRUE.equals(result.get("ok")) ? "success" : "failure")
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    /**
+     * Deletes an account, for DELETE /api/admin/users and the bulk delete alike: the user's
+     * site (if any) is queued for teardown, then the account is removed and its tokens revoked.
+     * A site that cannot be queued is logged and does not keep the account alive.
+     *
+     * @return false when there is no such account
+     */
+    public boolean deleteUser(String email) {
+        User user = userRepository.findByEmail(email);
+        if (user == null) {
+            return false;
+        }
+        try {
+            if (userContainerService.getUserContainer(email).isPresent()) {
+                userContainerService.deleteContainer(email);
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: failed to delete containers for " + email + ": " + e.getMessage());
+        }
+        userRepository.deleteByEmail(email);
+        tokenDenylist.revoke(email);
+        userDetailsCache.invalidate(email);
+        return true;
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    private void checkSize(List<String> targets) {
+        if (targets.size() > maxItems) {
+            throw new IllegalArgumentException("At most " + maxItems + " items per bulk request, got " + targets.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
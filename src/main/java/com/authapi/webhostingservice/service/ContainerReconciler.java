@@ -0,0 +1,192 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brings user_containers in line with what Docker actually runs.
+ *
+ * Each cycle does one container listing per Docker host and one Mongo scan, diffs them in
+ * memory and writes all status corrections in a single bulk operation. It
+ * also reports orphans in both directions: user containers Docker knows but
+ * Mongo does not, and records whose container no longer exists.
+ */
+@Service
+public class ContainerReconciler {
+
+    private static final String USER_CONTAINER_PREFIX = "user-";
+    private static final String NOT_FOUND = "not_found";
+
+    private final DockerHostRegistry dockerHosts;
+    private final MongoTemplate mongoTemplate;
+    private final ContainerStateCache containerStateCache;
+    private final Timer cycleTimer;
+    private final Counter corrections;
+
+    private volatile ReconciliationReport lastReport;
+
+    public ContainerReconciler(DockerHostRegistry dockerHosts,
+                               MongoTemplate mongoTemplate,
+                               ContainerStateCache containerStateCache,
+                               MeterRegistry meterRegistry) {
+        this.dockerHosts = dockerHosts;
+        this.mongoTemplate = mongoTemplate;
+        this.containerStateCache = containerStateCache;
+        this.cycleTimer = meterRegistry.timer("hosting.reconcile.duration");
+        this.corrections = meterRegistry.counter("hosting.reconcile.corrections");
+
+        Gauge.builder("hosting.reconcile.orphans", this, r -> r.lastReport == null ? 0 : r.lastReport.getOrphanContainers().size())
+                .tag("side", "docker")
+                .description("User containers in Docker without a user_containers record")
+                .register(meterRegistry);
+        Gauge.builder("hosting.reconcile.orphans", this, r -> r.lastReport == null ? 0 : r.lastReport.getOrphanRecords().size())
+                .tag("side", "mongo")
+                .description("user_containers records whose container no longer exists")
+                .register(meterRegistry);
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${hosting.reconcile.interval-ms:60000}",
+               initialDelayString = "${hosting.reconcile.interval-ms:60000}")
+    public void reconcile() {
+        long start = System.nanoTime();
+        containerStateCache.ensureSubscribed();
+
+        List<ContainerRuntime.ContainerInfo> containers = new ArrayList<>();
+        List<UserContainer> records;
+        try {
+            dockerHosts.listContainers(false).values().forEach(containers::addAll);
+            Query scan = new Query();
+            scan.fields().include("userEmail", "containerId", "containerName", "status");
+            records = mongoTemplate.find(scan, UserContainer.class);
+        } catch (Exception e) {
+            System.err.println("Reconciliation skipped: " + e.getMessage());
+            return;
+        }
+        containerStateCache.refresh(containers);
+
+        Map<String, ContainerRuntime.ContainerInfo> containersById = new HashMap<>();
+        for (ContainerRuntime.ContainerInfo container : containers) {
+            containersById.put(container.getId(), container);
+        }
+
+        Set<String> recordedIds = new HashSet<>();
+        List<String> orphanRecords = new ArrayList<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserContainer.class);
+        int corrected = 0;
+        for (UserContainer record : records) {
+            if (record.getContainerId() == null) {
+                // Still provisioning or failed, nothing in Docker to compare against
+                continue;
+            }
+            recordedIds.add(record.getContainerId());
+            if (UserContainer.STATUS_DELETING.equals(record.getStatus())) {
+                // TeardownService owns it until the record is removed
+                continue;
+            }
+
+            ContainerRuntime.ContainerInfo container = containersById.get(record.getContainerId());
+            String actual = container != null ? container.getState() : NOT_FOUND;
+            if (container == null) {
+                orphanRecords.add(record.getUserEmail());
+            }
+            boolean hibernating = UserContainer.STATUS_HIBERNATED.equals(record.getStatus()) && "exited".equals(actual);
+            if (!actual.equals(record.getStatus()) && !hibernating) {
+                bulk.updateOne(
+                        Query.query(Criteria.where("_id").is(record.getId())
+                                .and("status").is(record.getStatus())),
+                        new Update().set("status", actual).set("updatedAt", LocalDateTime.now()));
+                corrected++;
+            }
+        }
+        if (corrected > 0) {
+            try {
+                bulk.execute();
+                corrections.increment(corrected);
+            } catch (Exception e) {
+                System.err.println("Error applying reconciliation updates: " + e.getMessage());
+            }
+        }
+
+        List<String> orphanContainers = new ArrayList<>();
+        for (ContainerRuntime.ContainerInfo container : containers) {
+            String name = container.getName();
+            if (name != null && name.startsWith(USER_CONTAINER_PREFIX) && !recordedIds.contains(container.getId())) {
+                orphanContainers.add(name);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        cycleTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        lastReport = new ReconciliationReport(LocalDateTime.now(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                containers.size(), records.size(), corrected, orphanContainers, orphanRecords);
+
+        if (corrected > 0 || !orphanContainers.isEmpty() || !orphanRecords.isEmpty()) {
+            System.out.println("Reconciliation: " + corrected + " status correction(s), "
+                    + orphanContainers.size() + " container(s) without record, "
+                    + orphanRecords.size() + " record(s) without container");
+        }
+    }
+
+    /**
+     * Outcome of the most recent reconciliation cycle
+     */
+    public static class ReconciliationReport {
+        private final LocalDateTime completedAt;
+        private final long durationMillis;
+        private final int dockerContainers;
+        private final int mongoRecords;
+        private final int corrected;
+        private final List<String> orphanContainers;
+        private final List<String> orphanRecords;
+
+        public ReconciliationReport(LocalDateTime completedAt, long durationMillis, int dockerContainers,
+                                    int mongoRecords, int corrected,
+                                    List<String> orphanContainers, List<String> orphanRecords) {
+            this.completedAt = completedAt;
+            this.durationMillis = durationMillis;
+            this.dockerContainers = dockerContainers;
+            this.mongoRecords = mongoRecords;
+            this.corrected = corrected;
+            this.orphanContainers = orphanContainers;
+            this.orphanRecords = orphanRecords;
+        }
+
+        public LocalDateTime getCompletedAt() { return completedAt; }
+        public long getDurationMillis() { return durationMillis; }
+        public int getDockerContainers() { return dockerContainers; }
+        public int getMongoRecords() { return mongoRecords; }
+        public int getCorrected() { return corrected; }
+        public List<String> getOrphanContainers() { return orphanContainers; }
+        public List<String> getOrphanRecords() { return orphanRecords; }
+    }
+}
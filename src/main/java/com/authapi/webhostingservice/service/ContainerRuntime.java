@@ -0,0 +1,262 @@
+package com.authapi.webhostingservice.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The operations the hosting services need from one container host.
+ *
+ * DockerContainerRuntime talks to a Docker daemon; SimulatedContainerRuntime keeps
+ * containers in memory so the API and provisioning can be load-tested without one
+ * (hosting.runtime). Containers and images are addressed by id or name, like Docker.
+ * Failures the callers act on are reported as the nested exceptions below.
+ */
+public interface ContainerRuntime {
+
+    /**
+     * Creates (without starting) a container, returning its id
+     *
+     * @throws ConflictException when the name is taken
+     * @throws NotFoundException when the image does not exist
+     */
+    String create(ContainerSpec spec);
+
+    /**
+     * @throws NotModifiedException when it is already running
+     * @throws ConflictException when its host port is taken
+     */
+    void start(String containerId);
+
+    /**
+     * @throws NotModifiedException when it is not running
+     */
+    void stop(String containerId, int timeoutSeconds);
+
+    void restart(String containerId, int timeoutSeconds);
+
+    /**
+     * @param force also removes a running container
+     */
+    void remove(String containerId, boolean force);
+
+    void rename(String containerId, String name);
+
+    ContainerInfo inspect(String containerId);
+
+    /**
+     * All containers, running or not; sizes are only filled in withSize
+     */
+    List<ContainerInfo> list(boolean withSize);
+
+    /**
+     * Runs a command in a running container and returns its exit code
+     */
+    long exec(String containerId, String... command) throws IOException;
+
+    /**
+     * Memory (bytes) and CPUs of the host, 0 when unknown
+     */
+    HostCapacity capacity();
+
+    /**
+     * Pulls an image unless the host already has it
+     */
+    void ensureImage(String image) throws IOException;
+
+    /**
+     * Builds an image from a context directory holding a Dockerfile
+     */
+    void buildImage(String tag, File contextDirectory, File dockerfile) throws IOException;
+
+    /**
+     * @throws ConflictException when a container still uses it and force is false
+     */
+    void removeImage(String image, boolean force);
+
+    List<ImageInfo> listImages();
+
+    /**
+     * Streams container lifecycle events ("create", "start", "die", "destroy", ...) until closed
+     */
+    Closeable subscribe(ContainerEvents listener);
+
+    /**
+     * Whether the container wrote to stdout since the given epoch second
+     */
+    boolean hasOutputSince(String containerId, int sinceEpochSeconds);
+
+    /**
+     * Current memory usage in bytes, 0 when unknown
+     */
+    long memoryUsage(String containerId);
+
+    /**
+     * Receives the events of a subscription
+     */
+    interface ContainerEvents {
+        void onEvent(String containerId, String action);
+
+        /**
+         * The stream ended; error is null when it was closed normally
+         */
+        void onClosed(Throwable error);
+    }
+
+    /**
+     * What to create: an image, a name, one published port (container port 80),
+     * bind mounts and resource limits. Containers always restart unless stopped.
+     */
+    class ContainerSpec {
+        private final String image;
+        private final String name;
+        private int hostPort;
+        private final List<String[]> binds = new ArrayList<>();
+        private long memoryBytes;
+        private long nanoCpus;
+        private long pidsLimit;
+
+        public ContainerSpec(String image, String name) {
+            this.image = image;
+            this.name = name;
+        }
+
+        public ContainerSpec withHostPort(int hostPort) {
+            this.hostPort = hostPort;
+            return this;
+        }
+
+        /**
+         * Mounts a host path read-only
+         */
+        public ContainerSpec withReadOnlyBind(String hostPath, String containerPath) {
+            binds.add(new String[] {hostPath, containerPath});
+            return this;
+        }
+
+        public ContainerSpec withMemory(long memoryBytes) {
+            this.memoryBytes = memoryBytes;
+            return this;
+        }
+
+        public ContainerSpec withNanoCpus(long nanoCpus) {
+            this.nanoCpus = nanoCpus;
+            return this;
+        }
+
+        public ContainerSpec withPidsLimit(long pidsLimit) {
+            this.pidsLimit = pidsLimit;
+            return this;
+        }
+
+        public String getImage() { return image; }
+        public String getName() { return name; }
+        // 0 when no port is published
+        public int getHostPort() { return hostPort; }
+        // {host path, container path} pairs
+        public List<String[]> getBinds() { return binds; }
+        public long getMemoryBytes() { return memoryBytes; }
+        public long getNanoCpus() { return nanoCpus; }
+        public long getPidsLimit() { return pidsLimit; }
+    }
+
+    /**
+     * A container as listed or inspected
+     */
+    class ContainerInfo {
+        private final String id;
+        private final String name;
+        private final String image;
+        private final String state;
+        private final long createdEpochSeconds;
+        private final List<Integer> publicPorts;
+        private final List<String> mountDestinations;
+        private final long sizeBytes;
+
+        public ContainerInfo(String id, String name, String image, String state, long createdEpochSeconds,
+                             List<Integer> publicPorts, List<String> mountDestinations, long sizeBytes) {
+            this.id = id;
+            this.name = name;
+            this.image = image;
+            this.state = state;
+            this.createdEpochSeconds = createdEpochSeconds;
+            this.publicPorts = publicPorts;
+            this.mountDestinations = mountDestinations;
+            this.sizeBytes = sizeBytes;
+        }
+
+        public String getId() { return id; }
+        // Without Docker's leading slash
+        public String getName() { return name; }
+        public String getImage() { return image; }
+        // Docker state names: created, running, exited, paused, ...
+        public String getState() { return state; }
+        public long getCreatedEpochSeconds() { return createdEpochSeconds; }
+        public List<Integer> getPublicPorts() { return publicPorts; }
+        // Only filled in by inspect
+        public List<String> getMountDestinations() { return mountDestinations; }
+        // Writable layer size, only filled in by list(true)
+        public long getSizeBytes() { return sizeBytes; }
+    }
+
+    class ImageInfo {
+        private final String id;
+        private final List<String> tags;
+        private final long sizeBytes;
+        private final long createdEpochSeconds;
+
+        public ImageInfo(String id, List<String> tags, long sizeBytes, long createdEpochSeconds) {
+            this.id = id;
+            this.tags = tags;
+            this.sizeBytes = sizeBytes;
+            this.createdEpochSeconds = createdEpochSeconds;
+        }
+
+        public String getId() { return id; }
+        public List<String> getTags() { return tags; }
+        public long getSizeBytes() { return sizeBytes; }
+        public long getCreatedEpochSeconds() { return createdEpochSeconds; }
+    }
+
+    class HostCapacity {
+        private final long memoryBytes;
+        private final int cpus;
+
+        public HostCapacity(long memoryBytes, int cpus) {
+            this.memoryBytes = memoryBytes;
+            this.cpus = cpus;
+        }
+
+        public long getMemoryBytes() { return memoryBytes; }
+        public int getCpus() { return cpus; }
+    }
+
+    /**
+     * The container or image does not exist
+     */
+    class NotFoundException extends RuntimeException {
+        public NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Name taken, port taken, or still in use
+     */
+    class ConflictException extends RuntimeException {
+        public ConflictException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Already in the requested state
+     */
+    class NotModifiedException extends RuntimeException {
+        public NotModifiedException(String message) {
+            super(message);
+        }
+    }
+}
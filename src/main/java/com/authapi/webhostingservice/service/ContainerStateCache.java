@@ -0,0 +1,203 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of container states fed by the event streams of all Docker hosts.
+ *
+ * Status reads are served from memory; user_containers is only written when a
+ * container actually changes state. ContainerReconciler periodically refreshes
+ * the cache from a full listing, repairing anything missed while an event
+ * stream was down, and reconnects the streams.
+ */
+@Service
+public class ContainerStateCache {
+
+    private static final String NOT_FOUND = "not_found";
+
+    private final DockerHostRegistry dockerHosts;
+    private final MongoTemplate mongoTemplate;
+    private final UserDockerService userDockerService;
+    private final Map<String, String> states = new ConcurrentHashMap<>();
+
+    // Event subscriptions and whether they are connected, by Docker host
+    private final Map<String, Closeable> eventSubscriptions = new ConcurrentHashMap<>();
+    private final Set<String> connectedHosts = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopped = false;
+
+    public ContainerStateCache(DockerHostRegistry dockerHosts,
+                               MongoTemplate mongoTemplate,
+                               UserDockerService userDockerService,
+                               MeterRegistry meterRegistry) {
+        this.dockerHosts = dockerHosts;
+        this.mongoTemplate = mongoTemplate;
+        this.userDockerService = userDockerService;
+
+        Gauge.builder("hosting.container.state.cached", states, Map::size)
+                .description("Containers tracked by the state cache")
+                .register(meterRegistry);
+        Gauge.builder("hosting.container.state.stream.connected", connectedHosts, Set::size)
+                .description("Docker hosts whose event stream is connected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Current state of a container, inspecting it only when the cache has never seen it
+     */
+    public String getStatus(String containerId) {
+        String status = states.get(containerId);
+        if (status == null) {
+            status = userDockerService.getContainerStatus(containerId);
+            if (!NOT_FOUND.equals(status)) {
+                states.put(containerId, status);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Reconnects the event streams that are not connected
+     */
+    public void ensureSubscribed() {
+        if (stopped) {
+            return;
+        }
+        for (String host : dockerHosts.getHostNames()) {
+            if (!connectedHosts.contains(host)) {
+                subscribe(host);
+            }
+        }
+    }
+
+    /**
+     * Replaces the in-memory states with a full container listing.
+     * Persisting drift is left to the caller (see ContainerReconciler).
+     */
+    public void refresh(List<ContainerRuntime.ContainerInfo> containers) {
+        Map<String, String> observed = new HashMap<>();
+        for (ContainerRuntime.ContainerInfo container : containers) {
+            observed.put(container.getId(), container.getState());
+        }
+        states.putAll(observed);
+        states.keySet().retainAll(observed.keySet());
+    }
+
+    private void subscribe(String host) {
+        try {
+            closeSubscription(host);
+            eventSubscriptions.put(host, dockerHosts.runtime(host).subscribe(new ContainerRuntime.ContainerEvents() {
+                @Override
+                public void onEvent(String containerId, String action) {
+                    String status = statusForAction(action);
+                    if (status != null) {
+                        applyState(containerId, status);
+                    }
+                }
+
+                @Override
+                public void onClosed(Throwable error) {
+                    if (error != null) {
+                        System.err.println("Docker event stream of " + host + " failed: " + error.getMessage());
+                    }
+                    connectedHosts.remove(host);
+                }
+            }));
+            connectedHosts.add(host);
+        } catch (Exception e) {
+            System.err.println("Could not subscribe to Docker events of " + host + ": " + e.getMessage());
+            connectedHosts.remove(host);
+        }
+    }
+
+    private void applyState(String containerId, String status) {
+        String previous = NOT_FOUND.equals(status)
+                ? states.remove(containerId)
+                : states.put(containerId, status);
+        if (!status.equals(previous)) {
+            persistTransition(containerId, status);
+        }
+    }
+
+    /**
+     * Writes the new state only to records that hold a different one
+     */
+    private void persistTransition(String containerId, String status) {
+        try {
+            Criteria criteria = Criteria.where("containerId").is(containerId);
+            // A hibernated site's container is stopped on purpose, only a start ends hibernation;
+            // a site being deleted keeps that status until its record is removed
+            criteria = "running".equals(status)
+                    ? criteria.and("status").nin(status, UserContainer.STATUS_DELETING)
+                    : criteria.and("status").nin(status, UserContainer.STATUS_HIBERNATED, UserContainer.STATUS_DELETING);
+            Query query = Query.query(criteria);
+            Update update = new Update()
+                    .set("status", status)
+                    .set("updatedAt", LocalDateTime.now());
+            // Sites on a shared nginx instance all carry that instance's container id
+            mongoTemplate.updateMulti(query, update, UserContainer.class);
+        } catch (Exception e) {
+            System.err.println("Error persisting state of " + containerId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a container event action to the state Docker reports after it, null for irrelevant events
+     */
+    private static String statusForAction(String action) {
+        if (action == null) {
+            return null;
+        }
+        switch (action) {
+            case "start":
+            case "restart":
+            case "unpause":
+                return "running";
+            case "die":
+            case "stop":
+                return "exited";
+            case "pause":
+                return "paused";
+            case "create":
+                return "created";
+            case "destroy":
+                return NOT_FOUND;
+            default:
+                return null;
+        }
+    }
+
+    private void closeSubscription(String host) {
+        Closeable subscription = eventSubscriptions.remove(host);
+        if (subscription != null) {
+            try {
+                subscription.close();
+            } catch (Exception e) {
+                // Already closed
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true; // keep the reconciler from resubscribing during shutdown
+        for (String host : dockerHosts.getHostNames()) {
+            closeSubscription(host);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.authapi.webhostingservice.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.CreateContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.ContainerPort;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import com.github.dockerjava.api.model.ExposedPort;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Image;
+import com.github.dockerjava.api.model.Info;
+import com.github.dockerjava.api.model.Ports;
+import com.github.dockerjava.api.model.RestartPolicy;
+import com.github.dockerjava.api.model.Statistics;
+import com.github.dockerjava.api.model.Volume;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ContainerRuntime backed by one Docker daemon through docker-java
+ */
+public class DockerContainerRuntime implements ContainerRuntime {
+
+    private final DockerClient dockerClient;
+
+    public DockerContainerRuntime(DockerClient dockerClient) {
+        this.dockerClient = dockerClient;
+    }
+
+    @Override
+    public String create(ContainerSpec spec) {
+        HostConfig hostConfig = HostConfig.newHostConfig()
+                .withRestartPolicy(RestartPolicy.unlessStoppedRestart());
+        if (!spec.getBinds().isEmpty()) {
+            List<Bind> binds = new ArrayList<>();
+            for (String[] bind : spec.getBinds()) {
+                binds.add(new Bind(bind[0], new Volume(bind[1]), AccessMode.ro));
+            }
+            hostConfig.withBinds(binds);
+        }
+        if (spec.getMemoryBytes() > 0) {
+            // Same value for memory+swap: no swap on top of the limit
+            hostConfig.withMemory(spec.getMemoryBytes()).withMemorySwap(spec.getMemoryBytes());
+        }
+        if (spec.getNanoCpus() > 0) {
+            hostConfig.withNanoCPUs(spec.getNanoCpus());
+        }
+        if (spec.getPidsLimit() > 0) {
+            hostConfig.withPidsLimit(spec.getPidsLimit());
+        }
+
+        CreateContainerCmd cmd = dockerClient.createContainerCmd(spec.getImage()).withName(spec.getName());
+        if (spec.getHostPort() > 0) {
+            Ports portBindings = new Ports();
+            portBindings.bind(ExposedPort.tcp(80), Ports.Binding.bindPort(spec.getHostPort()));
+            hostConfig.withPortBindings(portBindings);
+            cmd.withExposedPorts(ExposedPort.tcp(80));
+        }
+        return call(() -> cmd.withHostConfig(hostConfig).exec().getId());
+    }
+
+    @Override
+    public void start(String containerId) {
+        run(() -> dockerClient.startContainerCmd(containerId).exec());
+    }
+
+    @Override
+    public void stop(String containerId, int timeoutSeconds) {
+        run(() -> dockerClient.stopContainerCmd(containerId).withTimeout(timeoutSeconds).exec());
+    }
+
+    @Override
+    public void restart(String containerId, int timeoutSeconds) {
+        run(() -> dockerClient.restartContainerCmd(containerId).withTimeout(timeoutSeconds).exec());
+    }
+
+    @Override
+    public void remove(String containerId, boolean force) {
+        run(() -> dockerClient.removeContainerCmd(containerId).withForce(force).withRemoveVolumes(true).exec());
+    }
+
+    @Override
+    public void rename(String containerId, String name) {
+        run(() -> dockerClient.renameContainerCmd(containerId).withName(name).exec());
+    }
+
+    @Override
+    public ContainerInfo inspect(String containerId) {
+        InspectContainerResponse inspection = call(() -> dockerClient.inspectContainerCmd(containerId).exec());
+        List<String> mounts = new ArrayList<>();
+        if (inspection.getMounts() != null) {
+            for (InspectContainerResponse.Mount mount : inspection.getMounts()) {
+                if (mount.getDestination() != null) {
+                    mounts.add(mount.getDestination().getPath());
+                }
+            }
+        }
+        List<Integer> ports = new ArrayList<>();
+        if (inspection.getHostConfig() != null && inspection.getHostConfig().getPortBindings() != null) {
+            for (Ports.Binding[] bindings : inspection.getHostConfig().getPortBindings().getBindings().values()) {
+                for (Ports.Binding binding : bindings != null ? bindings : new Ports.Binding[0]) {
+                    if (binding.getHostPortSpec() != null) {
+                        ports.add(Integer.parseInt(binding.getHostPortSpec()));
+                    }
+                }
+            }
+        }
+        String state = inspection.getState() != null && inspection.getState().getStatus() != null
+                ? inspection.getState().getStatus()
+                : "unknown";
+        String name = inspection.getName() != null && inspection.getName().startsWith("/")
+                ? inspection.getName().substring(1)
+                : inspection.getName();
+        long created = inspection.getCreated() != null ? Instant.parse(inspection.getCreated()).getEpochSecond() : 0;
+        return new ContainerInfo(inspection.getId(), name, inspection.getConfig() != null ? inspection.getConfig().getImage() : null,
+                state, created, ports, mounts, 0);
+    }
+
+    @Override
+    public List<ContainerInfo> list(boolean withSize) {
+        List<Container> containers = call(() -> dockerClient.listContainersCmd()
+                .withShowAll(true)
+                .withShowSize(withSize)
+                .exec());
+        List<ContainerInfo> infos = new ArrayList<>(containers.size());
+        for (Container container : containers) {
+            List<Integer> ports = new ArrayList<>();
+            if (container.getPorts() != null) {
+                for (ContainerPort port : container.getPorts()) {
+                    if (port.getPublicPort() != null) {
+                        ports.add(port.getPublicPort());
+                    }
+                }
+            }
+            String name = container.getNames() != null && container.getNames().length > 0
+                    ? container.getNames()[0]
+                    : null;
+            if (name != null && name.startsWith("/")) {
+                name = name.substring(1);
+            }
+            infos.add(new ContainerInfo(container.getId(), name, container.getImage(), container.getState(),
+                    container.getCreated() != null ? container.getCreated() : 0, ports, List.of(),
+                    container.getSizeRw() != null ? container.getSizeRw() : 0));
+        }
+        return infos;
+    }
+
+    @Override
+    public long exec(String containerId, String... command) throws IOException {
+        String execId = call(() -> dockerClient.execCreateCmd(containerId)
+                .withCmd(command)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec()
+                .getId());
+        try {
+            dockerClient.execStartCmd(execId)
+                    .exec(new ResultCallback.Adapter<Frame>())
+                    .awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Command was interrupted", e);
+        }
+        Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+        return exitCode != null ? exitCode : -1;
+    }
+
+    @Override
+    public HostCapacity capacity() {
+        Info info = dockerClient.infoCmd().exec();
+        return new HostCapacity(info.getMemTotal() != null ? info.getMemTotal() : 0,
+                info.getNCPU() != null ? info.getNCPU() : 0);
+    }
+
+    @Override
+    public void ensureImage(String image) throws IOException {
+        try {
+            dockerClient.inspectImageCmd(image).exec();
+        } catch (com.github.dockerjava.api.exception.NotFoundException e) {
+            try {
+                System.out.println("Pulling image: " + image);
+                dockerClient.pullImageCmd(image).start().awaitCompletion();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Image pull was interrupted", ie);
+            }
+        }
+    }
+
+    @Override
+    public void buildImage(String tag, File contextDirectory, File dockerfile) throws IOException {
+        try {
+            dockerClient.buildImageCmd()
+                    .withDockerfile(dockerfile)
+                    .withBaseDirectory(contextDirectory)
+                    .withTags(new HashSet<>(Arrays.asList(tag)))
+                    .start()
+                    .awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Image build was interrupted", e);
+        }
+    }
+
+    @Override
+    public void removeImage(String image, boolean force) {
+        run(() -> dockerClient.removeImageCmd(image).withForce(force).exec());
+    }
+
+    @Override
+    public List<ImageInfo> listImages() {
+        List<Image> images = call(() -> dockerClient.listImagesCmd().exec());
+        List<ImageInfo> infos = new ArrayList<>(images.size());
+        for (Image image : images) {
+            infos.add(new ImageInfo(image.getId(),
+                    image.getRepoTags() != null ? Arrays.asList(image.getRepoTags()) : List.of(),
+                    image.getSize() != null ? image.getSize() : 0,
+                    image.getCreated() != null ? image.getCreated() : 0));
+        }
+        return infos;
+    }
+
+    @Override
+    public Closeable subscribe(ContainerEvents listener) {
+        return dockerClient.eventsCmd()
+                .withEventTypeFilter(EventType.CONTAINER)
+                .exec(new ResultCallback.Adapter<Event>() {
+                    @Override
+                    public void onNext(Event event) {
+                        if (event.getId() != null && event.getAction() != null) {
+                            listener.onEvent(event.getId(), event.getAction());
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        listener.onClosed(throwable);
+                        super.onError(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        listener.onClosed(null);
+                        super.onComplete();
+                    }
+                });
+    }
+
+    @Override
+    public boolean hasOutputSince(String containerId, int sinceEpochSeconds) {
+        AtomicBoolean logged = new AtomicBoolean(false);
+        try {
+            dockerClient.logContainerCmd(containerId)
+                    .withStdOut(true)
+                    .withStdErr(false)
+                    .withSince(sinceEpochSeconds)
+                    .withTail(1)
+                    .exec(new ResultCallback.Adapter<Frame>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            logged.set(true);
+                        }
+                    })
+                    .awaitCompletion(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Log read was interrupted", e);
+        }
+        return logged.get();
+    }
+
+    @Override
+    public long memoryUsage(String containerId) {
+        AtomicLong usage = new AtomicLong();
+        try {
+            dockerClient.statsCmd(containerId)
+                    .withNoStream(true)
+                    .exec(new ResultCallback.Adapter<Statistics>() {
+                        @Override
+                        public void onNext(Statistics stats) {
+                            if (stats.getMemoryStats() != null && stats.getMemoryStats().getUsage() != null) {
+                                usage.set(stats.getMemoryStats().getUsage());
+                            }
+                        }
+                    })
+                    .awaitCompletion(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return usage.get();
+    }
+
+    private static void run(Runnable command) {
+        call(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+    /**
+     * Translates docker-java's status exceptions (same simple names) into the runtime's
+     */
+    private static <T> T call(Supplier<T> command) {
+        try {
+            return command.get();
+        } catch (com.github.dockerjava.api.exception.NotFoundException e) {
+            throw new NotFoundException(e.getMessage());
+        } catch (com.github.dockerjava.api.exception.NotModifiedException e) {
+            throw new NotModifiedException(e.getMessage());
+        } catch (com.github.dockerjava.api.exception.ConflictException e) {
+            throw new ConflictException(e.getMessage());
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("port is already allocated")) {
+                throw new ConflictException(e.getMessage());
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The Docker daemons site containers can be placed on, by name.
+ *
+ * Built by DockerConfig from docker.hosts. The first host is the default: it runs
+ * the shared nginx instances, and records written before hosts were stored live
+ * on it. Every daemon is only reached through the ContainerRuntime of its entry here.
+ */
+public class DockerHostRegistry {
+
+    private final Map<String, DockerHost> hosts = new LinkedHashMap<>();
+    private final String defaultHost;
+
+    /**
+     * @param endpoints host name to Docker endpoint (unix:// or tcp://), default host first
+     * @param publicAddresses host name to the address visitors use for its sites, may be partial
+     */
+    public DockerHostRegistry(Map<String, String> endpoints, Map<String, String> publicAddresses,
+                              Function<String, ContainerRuntime> runtimeFactory) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one Docker host is required");
+        }
+        for (Map.Entry<String, String> entry : endpoints.entrySet()) {
+            String name = entry.getKey();
+            hosts.put(name, new DockerHost(name, entry.getValue(), publicAddresses.get(name),
+                    runtimeFactory.apply(entry.getValue())));
+        }
+        this.defaultHost = endpoints.keySet().iterator().next();
+    }
+
+    public String getDefaultHost() {
+        return defaultHost;
+    }
+
+    public List<String> getHostNames() {
+        return new ArrayList<>(hosts.keySet());
+    }
+
+    public List<DockerHost> getHosts() {
+        return Collections.unmodifiableList(new ArrayList<>(hosts.values()));
+    }
+
+    public int size() {
+        return hosts.size();
+    }
+
+    /**
+     * Host by name; null means the default host
+     *
+     * @throws IllegalStateException for a host that is no longer configured
+     */
+    public DockerHost get(String name) {
+        DockerHost host = hosts.get(name != null ? name : defaultHost);
+        if (host == null) {
+            throw new IllegalStateException("Docker host " + name + " is not configured");
+        }
+        return host;
+    }
+
+    public ContainerRuntime runtime(String name) {
+        return get(name).getRuntime();
+    }
+
+    /**
+     * Runtime of the daemon running a site
+     */
+    public ContainerRuntime runtimeFor(UserContainer site) {
+        return runtime(site.getDockerHost());
+    }
+
+    /**
+     * Address visitors reach a host's sites on, null when it is the platform's public host
+     */
+    public String getPublicAddress(String name) {
+        DockerHost host = hosts.get(name != null ? name : defaultHost);
+        return host != null ? host.getPublicAddress() : null;
+    }
+
+    public boolean isDefault(String name) {
+        return name == null || defaultHost.equals(name);
+    }
+
+    /**
+     * All containers (running or not) of every host, by host name.
+     * Fails when any host cannot be listed, so callers never take a missing host for missing containers.
+     */
+    public Map<String, List<ContainerRuntime.ContainerInfo>> listContainers(boolean withSize) {
+        Map<String, List<ContainerRuntime.ContainerInfo>> containers = new LinkedHashMap<>();
+        for (DockerHost host : hosts.values()) {
+            containers.put(host.getName(), host.getRuntime().list(withSize));
+        }
+        return containers;
+    }
+
+    /**
+     * Reads memory and CPU count of every host; hosts that cannot be reached keep their previous values
+     */
+    public void detectCapacity() {
+        for (DockerHost host : hosts.values()) {
+            try {
+                ContainerRuntime.HostCapacity capacity = host.getRuntime().capacity();
+                host.memoryBytes = capacity.getMemoryBytes();
+                host.cpus = capacity.getCpus();
+                System.out.println("Docker host " + host.getName() + " capacity: " + host.cpus + " CPUs, "
+                        + (host.memoryBytes >> 20) + " MB");
+            } catch (Exception e) {
+                System.err.println("Could not read capacity of Docker host " + host.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One Docker daemon
+     */
+    public static class DockerHost {
+        private final String name;
+        private final String endpoint;
+        private final String publicAddress;
+        private final ContainerRuntime runtime;
+        private volatile long memoryBytes;
+        private volatile int cpus;
+
+        DockerHost(String name, String endpoint, String publicAddress, ContainerRuntime runtime) {
+            this.name = name;
+            this.endpoint = endpoint;
+            this.publicAddress = publicAddress;
+            this.runtime = runtime;
+        }
+
+        public String getName() { return name; }
+        public String getEndpoint() { return endpoint; }
+        // Null means the platform's own public host
+        public String getPublicAddress() { return publicAddress; }
+        public ContainerRuntime getRuntime() { return runtime; }
+        // 0 until detected
+        public long getMemoryBytes() { return memoryBytes; }
+        public int getCpus() { return cpus; }
+    }
+}
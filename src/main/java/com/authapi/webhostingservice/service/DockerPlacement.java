@@ -0,0 +1,200 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Chooses the Docker host a new site container runs on.
+ *
+ * docker.placement selects the policy:
+ * "least-loaded" takes the host with the lowest share of its memory committed, among the
+ * hosts whose capacity is known (the fewest sites only when no host's is), "bin-pack" fills the fullest host that still fits one more
+ * site so the others stay free, and "consistent-hash" maps each user to a host on a
+ * hash ring, so a user keeps landing on the same host and adding a host only moves a
+ * small share of users. Site counts per host are kept in memory like AdmissionController's:
+ * taken on placement, given back on removal or failure, and recounted from Mongo periodically.
+ */
+@Service
+public class DockerPlacement {
+
+    static final String LEAST_LOADED = "least-loaded";
+    static final String BIN_PACK = "bin-pack";
+    static final String CONSISTENT_HASH = "consistent-hash";
+    private static final int VIRTUAL_NODES = 128;
+
+    private final DockerHostRegistry dockerHosts;
+    private final MongoTemplate mongoTemplate;
+    private final AdmissionController admissionController;
+    private final String policy;
+    private final Map<String, Integer> sites = new HashMap<>();
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public DockerPlacement(DockerHostRegistry dockerHosts, MongoTemplate mongoTemplate,
+                           AdmissionController admissionController, MeterRegistry meterRegistry,
+                           @Value("${docker.placement:" + LEAST_LOADED + "}") String policy) {
+        if (!policy.equals(LEAST_LOADED) && !policy.equals(BIN_PACK) && !policy.equals(CONSISTENT_HASH)) {
+            throw new IllegalArgumentException("Unknown docker.placement: " + policy);
+        }
+        this.dockerHosts = dockerHosts;
+        this.mongoTemplate = mongoTemplate;
+        this.admissionController = admissionController;
+        this.policy = policy;
+
+        for (String host : dockerHosts.getHostNames()) {
+            sites.put(host, 0);
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(host + "#" + i), host);
+            }
+            Gauge.builder("hosting.docker.host.sites", this, p -> p.getSiteCount(host))
+                    .tag("host", host)
+                    .description("Site containers placed on a Docker host")
+                    .register(meterRegistry);
+        }
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public synchronized int getSiteCount(String host) {
+        return sites.getOrDefault(host, 0);
+    }
+
+    /**
+     * Picks the host for a user's new container and counts the site on it
+     */
+    public synchronized String place(String userEmail) {
+        String host;
+        if (dockerHosts.size() == 1) {
+            host = dockerHosts.getDefaultHost();
+        } else if (CONSISTENT_HASH.equals(policy)) {
+            Map.Entry<Long, String> owner = ring.ceilingEntry(hash(userEmail));
+            host = owner != null ? owner.getValue() : ring.firstEntry().getValue();
+        } else if (BIN_PACK.equals(policy)) {
+            host = fullestFitting();
+            if (host == null) {
+                host = leastLoaded();
+            }
+        } else {
+            host = leastLoaded();
+        }
+        sites.merge(host, 1, Integer::sum);
+        return host;
+    }
+
+    /**
+     * Gives back a placement (site removed or provisioning failed)
+     */
+    public synchronized void release(String host) {
+        String name = host != null ? host : dockerHosts.getDefaultHost();
+        sites.computeIfPresent(name, (key, count) -> count > 0 ? count - 1 : 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${hosting.capacity.recount-interval-ms:60000}",
+               initialDelayString = "${hosting.capacity.recount-interval-ms:60000}")
+    public void recount() {
+        Map<String, Integer> counted = new HashMap<>();
+        try {
+            for (String host : dockerHosts.getHostNames()) {
+                Criteria onHost = dockerHosts.isDefault(host)
+                        ? new Criteria().orOperator(Criteria.where("dockerHost").is(host), Criteria.where("dockerHost").exists(false))
+                        : Criteria.where("dockerHost").is(host);
+                // Records written before backends existed have no hostingBackend and are containers
+                Query query = Query.query(new Criteria().andOperator(onHost, new Criteria().orOperator(
+                                Criteria.where("hostingBackend").is(UserContainer.BACKEND_CONTAINER),
+                                Criteria.where("hostingBackend").exists(false)))
+                        .and("status").nin(UserContainer.STATUS_FAILED, UserContainer.STATUS_DELETING));
+                counted.put(host, (int) mongoTemplate.count(query, UserContainer.class));
+            }
+        } catch (Exception e) {
+            System.err.println("Placement recount skipped: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            sites.putAll(counted);
+        }
+    }
+
+    /**
+     * Compares memory shares only between hosts with known memory; a host whose capacity
+     * could not be read is only used while no host's is known
+     */
+    private String leastLoaded() {
+        String best = null;
+        double bestLoad = Double.MAX_VALUE;
+        for (DockerHostRegistry.DockerHost host : dockerHosts.getHosts()) {
+            if (host.getMemoryBytes() <= 0) {
+                continue;
+            }
+            double load = sites.getOrDefault(host.getName(), 0) / (double) host.getMemoryBytes();
+            if (load < bestLoad) {
+                best = host.getName();
+                bestLoad = load;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        int bestCount = Integer.MAX_VALUE;
+        for (String host : dockerHosts.getHostNames()) {
+            int count = sites.getOrDefault(host, 0);
+            if (count < bestCount) {
+                best = host;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Host with the least memory left that still fits one more site, null when none does
+     */
+    private String fullestFitting() {
+        long perSite = admissionController.getMemoryLimitBytes();
+        String best = null;
+        double bestFree = Double.MAX_VALUE;
+        for (DockerHostRegistry.DockerHost host : dockerHosts.getHosts()) {
+            if (host.getMemoryBytes() <= 0 || perSite <= 0) {
+                continue;
+            }
+            double free = admissionController.memoryCapacity(host.getMemoryBytes())
+                    - (sites.getOrDefault(host.getName(), 0) + admissionController.getWarmPoolSize()) * (double) perSite;
+            if (free >= perSite && free < bestFree) {
+                best = host.getName();
+                bestFree = free;
+            }
+        }
+        return best;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (digest[i] & 0xff);
+            }
+            return value;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.repository.UserContainerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops idle site containers and starts them again on their next request (scale to zero).
+ *
+ * A container-backed site whose nginx logged no request for hosting.hibernation.idle-timeout-ms
+ * is marked hibernated and stopped; WakeOnRequestProxy then holds its port. The first
+ * connection starts the container, waits until nginx answers and forwards the held
+ * connections. Activity is read from the container's access log (stdout) since the previous
+ * check, which costs one Docker call per running site and check. Only sites on the default
+ * Docker host hibernate, since the proxy can only hold ports of the machine it runs on.
+ */
+@Service
+public class HibernationService {
+
+    private final ContainerRuntime runtime;
+    private final String defaultHost;
+    private final MongoTemplate mongoTemplate;
+    private final UserContainerRepository userContainerRepository;
+    private final WakeOnRequestProxy wakeProxy;
+    private final Timer coldStart;
+    private final Counter hibernations;
+    private final Counter wakeFailures;
+    // containerId -> last time traffic was seen (or the site was first seen)
+    private final Map<String, Long> lastActivity = new ConcurrentHashMap<>();
+    // containerId -> memory the container used when it was stopped
+    private final Map<String, Long> reclaimedMemory = new ConcurrentHashMap<>();
+
+    @Value("${hosting.hibernation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${hosting.hibernation.idle-timeout-ms:1800000}")
+    private long idleTimeoutMillis;
+
+    @Value("${hosting.hibernation.wake-timeout-ms:30000}")
+    private long wakeTimeoutMillis;
+
+    @Value("${hosting.hibernation.upstream-host:127.0.0.1}")
+    private String upstreamHost;
+
+    private volatile long previousCheckMillis;
+
+    public HibernationService(DockerHostRegistry dockerHosts, MongoTemplate mongoTemplate,
+                              UserContainerRepository userContainerRepository,
+                              WakeOnRequestProxy wakeProxy, MeterRegistry meterRegistry) {
+        this.runtime = dockerHosts.runtime(null);
+        this.defaultHost = dockerHosts.getDefaultHost();
+        this.mongoTemplate = mongoTemplate;
+        this.userContainerRepository = userContainerRepository;
+        this.wakeProxy = wakeProxy;
+        this.coldStart = Timer.builder("hosting.hibernation.wake")
+                .description("Time from the first request to a hibernated site until it is served")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.hibernations = meterRegistry.counter("hosting.hibernation.hibernated");
+        this.wakeFailures = meterRegistry.counter("hosting.hibernation.wake.failures");
+
+        Gauge.builder("hosting.hibernation.sleeping", wakeProxy, WakeOnRequestProxy::getListenerCount)
+                .description("Hibernated sites waiting for a request")
+                .register(meterRegistry);
+        Gauge.builder("hosting.hibernation.memory.reclaimed", reclaimedMemory,
+                        m -> m.values().stream().mapToLong(Long::longValue).sum())
+                .baseUnit("bytes")
+                .description("Memory the hibernated containers used before they were stopped")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Puts back the wake listeners of sites that were hibernated before a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        for (UserContainer site : userContainerRepository.findByStatusIn(List.of(UserContainer.STATUS_HIBERNATED))) {
+            listen(site);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hosting.hibernation.check-interval-ms:60000}",
+               initialDelayString = "${hosting.hibernation.check-interval-ms:60000}")
+    public void hibernateIdleSites() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int since = (int) (previousCheckMillis / 1000);
+            previousCheckMillis = now;
+
+            // Records written before backends existed have no hostingBackend and are containers
+            Query query = Query.query(new Criteria().andOperator(
+                            new Criteria().orOperator(
+                                    Criteria.where("hostingBackend").is(UserContainer.BACKEND_CONTAINER),
+                                    Criteria.where("hostingBackend").exists(false)),
+                            new Criteria().orOperator(
+                                    Criteria.where("dockerHost").is(defaultHost),
+                                    Criteria.where("dockerHost").exists(false)))
+                    .and("status").is(UserContainer.STATUS_RUNNING)
+                    .and("containerId").ne(null));
+            Set<String> seen = new HashSet<>();
+            for (UserContainer site : mongoTemplate.find(query, UserContainer.class)) {
+                String containerId = site.getContainerId();
+                seen.add(containerId);
+                Long last = lastActivity.putIfAbsent(containerId, now);
+                if (last == null) {
+                    continue;
+                }
+                if (hadRequests(containerId, since)) {
+                    lastActivity.put(containerId, now);
+                } else if (now - last >= idleTimeoutMillis) {
+                    hibernate(site);
+                }
+            }
+            lastActivity.keySet().retainAll(seen);
+        } catch (Exception e) {
+            System.err.println("Idle check skipped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops listening for a hibernated site that is deleted or restarted by the user
+     */
+    public void release(UserContainer site) {
+        if (UserContainer.STATUS_HIBERNATED.equals(site.getStatus())) {
+            wakeProxy.release(site.getPort());
+            reclaimedMemory.remove(site.getContainerId());
+        }
+    }
+
+    private void hibernate(UserContainer site) {
+        String containerId = site.getContainerId();
+        long memory = memoryUsage(containerId);
+
+        // Claim the record first so the stop event is not taken for a crash
+        Query running = Query.query(Criteria.where("_id").is(site.getId())
+                .and("status").is(UserContainer.STATUS_RUNNING));
+        Update update = new Update()
+                .set("status", UserContainer.STATUS_HIBERNATED)
+                .set("updatedAt", LocalDateTime.now());
+        if (mongoTemplate.updateFirst(running, update, UserContainer.class).getModifiedCount() == 0) {
+            return;
+        }
+
+        try {
+            runtime.stop(containerId, 10);
+        } catch (ContainerRuntime.NotModifiedException e) {
+            // Already stopped
+        } catch (Exception e) {
+            System.err.println("Could not hibernate " + site.getContainerName() + ": " + e.getMessage());
+            setStatus(site.getId(), UserContainer.STATUS_HIBERNATED, UserContainer.STATUS_RUNNING);
+            return;
+        }
+        site.setStatus(UserContainer.STATUS_HIBERNATED);
+        lastActivity.remove(containerId);
+        if (listen(site)) {
+            reclaimedMemory.put(containerId, memory);
+            hibernations.increment();
+            System.out.println("Hibernated idle site " + site.getContainerName() + " (port " + site.getPort() + ")");
+        }
+    }
+
+    private boolean listen(UserContainer site) {
+        String siteId = site.getId();
+        try {
+            wakeProxy.listen(site.getPort(), () -> wake(siteId));
+            return true;
+        } catch (IOException e) {
+            // Nobody could reach the site, serve it from its container again
+            System.err.println("Cannot hold port " + site.getPort() + " for " + site.getContainerName()
+                    + ", keeping it running: " + e.getMessage());
+            try {
+                runtime.start(site.getContainerId());
+                setStatus(siteId, UserContainer.STATUS_HIBERNATED, UserContainer.STATUS_RUNNING);
+            } catch (Exception startError) {
+                System.err.println("Could not start " + site.getContainerName() + ": " + startError.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Starts a hibernated site's container and returns once nginx answers on its port
+     */
+    private void wake(String siteId) throws Exception {
+        long start = System.nanoTime();
+        UserContainer site = userContainerRepository.findById(siteId)
+                .orElseThrow(() -> new IllegalStateException("Site was deleted"));
+        try {
+            try {
+                runtime.start(site.getContainerId());
+            } catch (ContainerRuntime.NotModifiedException e) {
+                // Already running
+            }
+            waitUntilServing(site.getPort());
+        } catch (Exception e) {
+            wakeFailures.increment();
+            // Hold the port again so the next request retries
+            if (userContainerRepository.existsById(siteId)) {
+                listen(site);
+            }
+            throw e;
+        }
+
+        setStatus(siteId, UserContainer.STATUS_HIBERNATED, UserContainer.STATUS_RUNNING);
+        reclaimedMemory.remove(site.getContainerId());
+        lastActivity.put(site.getContainerId(), System.currentTimeMillis());
+        coldStart.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void waitUntilServing(int port) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + wakeTimeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(upstreamHost, port), 500);
+                socket.setSoTimeout(1000);
+                OutputStream out = socket.getOutputStream();
+                out.write("HEAD / HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                InputStream in = socket.getInputStream();
+                byte[] status = in.readNBytes(5);
+                if ("HTTP/".equals(new String(status, StandardCharsets.US_ASCII))) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(25);
+        }
+        throw new IOException("Site did not answer on port " + port + " within " + wakeTimeoutMillis + " ms");
+    }
+
+    /**
+     * Whether nginx wrote an access log line (stdout) since the given epoch second
+     */
+    private boolean hadRequests(String containerId, int sinceEpochSeconds) {
+        try {
+            return runtime.hasOutputSince(containerId, sinceEpochSeconds);
+        } catch (Exception e) {
+            // Never stop a site we could not inspect
+            return true;
+        }
+    }
+
+    private long memoryUsage(String containerId) {
+        try {
+            return runtime.memoryUsage(containerId);
+        } catch (Exception e) {
+            // Metrics only
+            return 0;
+        }
+    }
+
+    private void setStatus(String siteId, String expected, String status) {
+        Query query = Query.query(Criteria.where("_id").is(siteId).and("status").is(expected));
+        mongoTemplate.updateFirst(query, new Update()
+                .set("status", status)
+                .set("updatedAt", LocalDateTime.now()), UserContainer.class);
+    }
+}
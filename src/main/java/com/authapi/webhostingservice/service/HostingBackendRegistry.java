@@ -0,0 +1,54 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Looks up hosting backends by name
+ */
+@Component
+public class HostingBackendRegistry {
+
+    private final Map<String, SiteHostingBackend> backends = new HashMap<>();
+    private final String defaultBackend;
+
+    public HostingBackendRegistry(List<SiteHostingBackend> backends,
+                                  @Value("${hosting.backend.default:" + UserContainer.BACKEND_CONTAINER + "}") String defaultBackend) {
+        for (SiteHostingBackend backend : backends) {
+            this.backends.put(backend.getName(), backend);
+        }
+        if (!this.backends.containsKey(defaultBackend)) {
+            throw new IllegalArgumentException("Unknown default hosting backend: " + defaultBackend);
+        }
+        this.defaultBackend = defaultBackend;
+    }
+
+    public String getDefaultBackend() {
+        return defaultBackend;
+    }
+
+    public Set<String> getBackendNames() {
+        return backends.keySet();
+    }
+
+    public SiteHostingBackend get(String name) {
+        SiteHostingBackend backend = backends.get(name);
+        if (backend == null) {
+            throw new IllegalArgumentException("Unknown hosting backend: " + name);
+        }
+        return backend;
+    }
+
+    /**
+     * Backend responsible for an existing site
+     */
+    public SiteHostingBackend forSite(UserContainer site) {
+        return get(site.getHostingBackend());
+    }
+}
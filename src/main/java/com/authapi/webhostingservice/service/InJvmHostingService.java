@@ -0,0 +1,101 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.repository.UserContainerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * Serves plain static sites from the application's own StaticSiteServer, no container involved
+ */
+@Service
+public class InJvmHostingService implements SiteHostingBackend {
+
+    private final StaticSiteServer staticSiteServer;
+    private final SiteContentService siteContentService;
+    private final UserContainerRepository userContainerRepository;
+
+    @Value("${hosting.sites.domain:sites.localhost}")
+    private String sitesDomain;
+
+    public InJvmHostingService(StaticSiteServer staticSiteServer,
+                               SiteContentService siteContentService,
+                               UserContainerRepository userContainerRepository) {
+        this.staticSiteServer = staticSiteServer;
+        this.siteContentService = siteContentService;
+        this.userContainerRepository = userContainerRepository;
+    }
+
+    @Override
+    public String getName() {
+        return UserContainer.BACKEND_IN_JVM;
+    }
+
+    @Override
+    public UserDockerService.ContainerCreationResult createSite(String userEmail, Path content,
+                                                                Consumer<String> stageListener) throws IOException {
+        String sanitizedEmail = UserDockerService.sanitizeEmail(userEmail).toLowerCase();
+        long timestamp = System.currentTimeMillis();
+        String siteDirectory = "site-" + sanitizedEmail + "-" + timestamp;
+        String hostname = sanitizedEmail + "-" + Long.toString(timestamp, 36) + "." + sitesDomain;
+
+        Path htmlDir = Paths.get(UserDockerService.BASE_HTML_DIR, siteDirectory, "html");
+        siteContentService.install(content, htmlDir);
+
+        stageListener.accept(UserContainer.STATUS_STARTING);
+        staticSiteServer.registerSite(hostname, siteContentService.siteRoot(htmlDir));
+
+        return new UserDockerService.ContainerCreationResult(
+                null,
+                siteDirectory,
+                staticSiteServer.getPort(),
+                UserContainer.STATUS_RUNNING,
+                null,
+                siteDirectory,
+                hostname
+        );
+    }
+
+    /**
+     * Nothing to restart; dropping cached files makes the next request read from disk
+     */
+    @Override
+    public void restartSite(UserContainer site) {
+        staticSiteServer.invalidateSite(site.getHostname());
+    }
+
+    @Override
+    public void updateSite(UserContainer site, Path siteTree) throws IOException {
+        Path htmlDir = Paths.get(UserDockerService.BASE_HTML_DIR, site.getSiteDirectory(), "html");
+        siteContentService.install(siteTree, htmlDir);
+        staticSiteServer.registerSite(site.getHostname(), siteContentService.siteRoot(htmlDir));
+        staticSiteServer.invalidateSite(site.getHostname());
+    }
+
+    @Override
+    public void removeSite(UserContainer site) throws IOException {
+        staticSiteServer.unregisterSite(site.getHostname());
+
+        siteContentService.deleteSite(site.getSiteDirectory());
+    }
+
+    /**
+     * Re-registers the sites hosted here before the restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerExistingSites() {
+        for (UserContainer site : userContainerRepository.findByHostingBackend(UserContainer.BACKEND_IN_JVM)) {
+            if (site.getHostname() != null) {
+                staticSiteServer.registerSite(site.getHostname(), siteContentService.siteRoot(
+                        Paths.get(UserDockerService.BASE_HTML_DIR, site.getSiteDirectory(), "html")));
+            }
+        }
+    }
+}
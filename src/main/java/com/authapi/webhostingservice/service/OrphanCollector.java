@@ -0,0 +1,325 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Removes user containers, images and site directories that no user_containers record refers to.
+ *
+ * A provisioning job that fails halfway (image built, container not started, ...) leaves
+ * these behind. Each cycle lists every Docker host and BASE_HTML_DIR, compares them with one Mongo
+ * scan and marks what is unreferenced. Something is only removed when it is older than
+ * the grace period and was already marked in the previous cycle, so a site still being
+ * provisioned, or a warm container being claimed, is never taken. At most batch-size
+ * items are removed per cycle. With dry-run, orphans are only reported.
+ */
+@Service
+public class OrphanCollector {
+
+    private static final String USER_PREFIX = "user-";
+    static final String TYPE_CONTAINER = "container";
+    static final String TYPE_IMAGE = "image";
+    static final String TYPE_DIRECTORY = "directory";
+
+    private final DockerHostRegistry dockerHosts;
+    private final MongoTemplate mongoTemplate;
+    private final UserDockerService userDockerService;
+    private final SiteContentService siteContentService;
+    private final MeterRegistry meterRegistry;
+    private final Timer cycleTimer;
+    // "<type>:<host>:<id>" of the orphans found in the previous cycle
+    private final Set<String> marked = new HashSet<>();
+
+    @Value("${hosting.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hosting.gc.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${hosting.gc.grace-period-ms:3600000}")
+    private long gracePeriodMillis;
+
+    @Value("${hosting.gc.batch-size:50}")
+    private int batchSize;
+
+    private volatile CollectionReport lastReport;
+
+    public OrphanCollector(DockerHostRegistry dockerHosts, MongoTemplate mongoTemplate,
+                           UserDockerService userDockerService, SiteContentService siteContentService,
+                           MeterRegistry meterRegistry) {
+        this.dockerHosts = dockerHosts;
+        this.mongoTemplate = mongoTemplate;
+        this.userDockerService = userDockerService;
+        this.siteContentService = siteContentService;
+        this.meterRegistry = meterRegistry;
+        this.cycleTimer = meterRegistry.timer("hosting.gc.duration");
+
+        for (String type : List.of(TYPE_CONTAINER, TYPE_IMAGE, TYPE_DIRECTORY)) {
+            Gauge.builder("hosting.gc.orphans", this, c -> c.lastReport == null ? 0 : c.lastReport.getOrphans().get(type).size())
+                    .tag("type", type)
+                    .description("Unreferenced user " + type + "s found by the last collection")
+                    .register(meterRegistry);
+        }
+    }
+
+    public CollectionReport getLastReport() {
+        return lastReport;
+    }
+
+    @Scheduled(fixedDelayString = "${hosting.gc.interval-ms:600000}",
+               initialDelayString = "${hosting.gc.interval-ms:600000}")
+    public synchronized void collect() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        Map<String, List<ContainerRuntime.ContainerInfo>> containers;
+        Map<String, List<ContainerRuntime.ImageInfo>> images = new HashMap<>();
+        Set<String> referenced = new HashSet<>();
+        try {
+            containers = dockerHosts.listContainers(true);
+            for (DockerHostRegistry.DockerHost host : dockerHosts.getHosts()) {
+                images.put(host.getName(), host.getRuntime().listImages());
+            }
+            Query scan = new Query();
+            scan.fields().include("containerId", "containerName", "siteDirectory");
+            for (UserContainer record : mongoTemplate.find(scan, UserContainer.class)) {
+                if (record.getContainerId() != null) {
+                    referenced.add(record.getContainerId());
+                }
+                if (record.getContainerName() != null) {
+                    referenced.add(record.getContainerName());
+                    referenced.add(record.getSiteDirectory());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Orphan collection skipped: " + e.getMessage());
+            return;
+        }
+        // Idle warm containers are tracked in memory only
+        referenced.addAll(userDockerService.getWarmPoolMembers());
+
+        long cutoff = System.currentTimeMillis() - gracePeriodMillis;
+        List<Orphan> orphans = new ArrayList<>();
+        for (String host : dockerHosts.getHostNames()) {
+            for (ContainerRuntime.ContainerInfo container : containers.get(host)) {
+                String name = container.getName();
+                if (name == null || !(name.startsWith(USER_PREFIX) || name.startsWith(UserDockerService.WARM_CONTAINER_PREFIX))
+                        || referenced.contains(container.getId())) {
+                    continue;
+                }
+                orphans.add(new Orphan(TYPE_CONTAINER, host, container.getId(), name,
+                        container.getCreatedEpochSeconds() * 1000, container.getSizeBytes()));
+            }
+        }
+        for (String host : dockerHosts.getHostNames()) {
+            for (ContainerRuntime.ImageInfo image : images.get(host)) {
+                String name = userImageName(image);
+                if (name == null || referenced.contains(name)) {
+                    continue;
+                }
+                orphans.add(new Orphan(TYPE_IMAGE, host, image.getId(), name,
+                        image.getCreatedEpochSeconds() * 1000, image.getSizeBytes()));
+            }
+        }
+        File[] directories = new File(UserDockerService.BASE_HTML_DIR).listFiles(File::isDirectory);
+        if (directories != null) {
+            for (File directory : directories) {
+                String name = directory.getName();
+                // .uploads, .blobs and .shared-nginx belong to the service itself
+                if (name.startsWith(".") || referenced.contains(name)) {
+                    continue;
+                }
+                orphans.add(new Orphan(TYPE_DIRECTORY, null, name, name, directory.lastModified(), -1));
+            }
+        }
+
+        // Containers first, so their images are no longer in use when it is the images' turn
+        Map<String, List<String>> found = new HashMap<>();
+        Map<String, Integer> removed = new HashMap<>();
+        Map<String, Long> reclaimed = new HashMap<>();
+        for (String type : List.of(TYPE_CONTAINER, TYPE_IMAGE, TYPE_DIRECTORY)) {
+            found.put(type, new ArrayList<>());
+            removed.put(type, 0);
+            reclaimed.put(type, 0L);
+        }
+        Set<String> seen = new HashSet<>();
+        int budget = batchSize;
+        for (Orphan orphan : orphans) {
+            found.get(orphan.type).add(orphan.name);
+            String key = orphan.type + ":" + orphan.host + ":" + orphan.id;
+            seen.add(key);
+            if (orphan.createdMillis > cutoff || !marked.contains(key)) {
+                continue;
+            }
+            if (dryRun) {
+                // What a real run would free
+                reclaimed.merge(orphan.type, orphan.size >= 0 ? orphan.size : reclaimableBytes(orphan.name), Long::sum);
+                continue;
+            }
+            if (budget <= 0) {
+                continue;
+            }
+            budget--;
+            long bytes = remove(orphan);
+            if (bytes >= 0) {
+                removed.merge(orphan.type, 1, Integer::sum);
+                reclaimed.merge(orphan.type, bytes, Long::sum);
+                meterRegistry.counter("hosting.gc.removed", "type", orphan.type).increment();
+                meterRegistry.counter("hosting.gc.reclaimed.bytes", "type", orphan.type).increment(bytes);
+            }
+        }
+        marked.clear();
+        marked.addAll(seen);
+
+        long elapsed = System.nanoTime() - start;
+        cycleTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        lastReport = new CollectionReport(LocalDateTime.now(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                dryRun, found, removed, reclaimed);
+
+        int removedTotal = removed.values().stream().mapToInt(Integer::intValue).sum();
+        if (removedTotal > 0 || !orphans.isEmpty()) {
+            System.out.println("Orphan collection" + (dryRun ? " (dry run)" : "") + ": "
+                    + found.get(TYPE_CONTAINER).size() + " container(s), "
+                    + found.get(TYPE_IMAGE).size() + " image(s), "
+                    + found.get(TYPE_DIRECTORY).size() + " directory(ies) unreferenced, "
+                    + removedTotal + " removed");
+        }
+    }
+
+    /**
+     * Removes one orphan, returning the bytes it freed or -1 when it was left in place
+     */
+    private long remove(Orphan orphan) {
+        try {
+            switch (orphan.type) {
+                case TYPE_CONTAINER:
+                    dockerHosts.runtime(orphan.host).remove(orphan.id, true);
+                    return orphan.size;
+                case TYPE_IMAGE:
+                    // Not forced: an image some container still uses is kept
+                    dockerHosts.runtime(orphan.host).removeImage(orphan.id, false);
+                    return orphan.size;
+                default:
+                    long bytes = reclaimableBytes(orphan.name);
+                    siteContentService.deleteSite(orphan.name);
+                    return bytes;
+            }
+        } catch (ContainerRuntime.NotFoundException e) {
+            // Removed in the meantime
+            return 0;
+        } catch (ContainerRuntime.ConflictException e) {
+            System.out.println("Orphaned " + orphan.type + " " + orphan.name + " is in use, kept: " + e.getMessage());
+            return -1;
+        } catch (Exception e) {
+            System.err.println("Could not remove orphaned " + orphan.type + " " + orphan.name + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Bytes deleting a site directory frees: files no other site shares through the blob store
+     * (link count of at most two, the directory and the blob)
+     */
+    private static long reclaimableBytes(String siteDirectory) {
+        Path root = Paths.get(UserDockerService.BASE_HTML_DIR, siteDirectory);
+        long bytes = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)
+                        && (int) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS) <= 2) {
+                    bytes += Files.size(file);
+                }
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            // Reporting only
+        }
+        return bytes;
+    }
+
+    /**
+     * The site name of a per-site image built in image-build mode (user-...:latest), otherwise null
+     */
+    private static String userImageName(ContainerRuntime.ImageInfo image) {
+        for (String tag : image.getTags()) {
+            if (tag.startsWith(USER_PREFIX) && tag.endsWith(":latest")) {
+                return tag.substring(0, tag.length() - ":latest".length());
+            }
+        }
+        return null;
+    }
+
+    private static class Orphan {
+        private final String type;
+        // Docker host, null for directories
+        private final String host;
+        private final String id;
+        private final String name;
+        private final long createdMillis;
+        // -1 when only known after walking the directory
+        private final long size;
+
+        Orphan(String type, String host, String id, String name, long createdMillis, long size) {
+            this.type = type;
+            this.host = host;
+            this.id = id;
+            this.name = name;
+            this.createdMillis = createdMillis;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Outcome of the most recent collection; in a dry run, reclaimedBytes is what would have been freed
+     */
+    public static class CollectionReport {
+        private final LocalDateTime completedAt;
+        private final long durationMillis;
+        private final boolean dryRun;
+        private final Map<String, List<String>> orphans;
+        private final Map<String, Integer> removed;
+        private final Map<String, Long> reclaimedBytes;
+
+        public CollectionReport(LocalDateTime completedAt, long durationMillis, boolean dryRun,
+                                Map<String, List<String>> orphans, Map<String, Integer> removed,
+                                Map<String, Long> reclaimedBytes) {
+            this.completedAt = completedAt;
+            this.durationMillis = durationMillis;
+            this.dryRun = dryRun;
+            this.orphans = orphans;
+            this.removed = removed;
+            this.reclaimedBytes = reclaimedBytes;
+        }
+
+        public LocalDateTime getCompletedAt() { return completedAt; }
+        public long getDurationMillis() { return durationMillis; }
+        public boolean isDryRun() { return dryRun; }
+        public Map<String, List<String>> getOrphans() { return orphans; }
+        public Map<String, Integer> getRemoved() { return removed; }
+        public Map<String, Long> getReclaimedBytes() { return reclaimedBytes; }
+    }
+}
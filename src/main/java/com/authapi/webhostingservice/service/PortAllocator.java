@@ -0,0 +1,183 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.repository.UserContainerRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out host ports for user containers from a fixed range.
+ *
+ * Ports are tracked in a bitset instead of listing every container on each
+ * allocation. The bitset is seeded from Docker and Mongo at startup and
+ * reconciled periodically; ports handed out but not yet visible in Docker are
+ * kept as pending reservations so reconciliation does not free them.
+ * Ports are unique across all Docker hosts.
+ */
+@Service
+public class PortAllocator {
+
+    private final DockerHostRegistry dockerHosts;
+    private final UserContainerRepository userContainerRepository;
+    private final int minPort;
+    private final int maxPort;
+    private final long reservationGraceMillis;
+
+    private final BitSet usedPorts;
+    private final Map<Integer, Long> pendingReservations = new HashMap<>();
+    private int nextCandidate = 0;
+
+    public PortAllocator(DockerHostRegistry dockerHosts,
+                         UserContainerRepository userContainerRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${hosting.ports.min:8081}") int minPort,
+                         @Value("${hosting.ports.max:9000}") int maxPort,
+                         @Value("${hosting.ports.reservation-grace-seconds:300}") long reservationGraceSeconds) {
+        if (minPort <= 0 || maxPort < minPort || maxPort > 65535) {
+            throw new IllegalArgumentException("Invalid port range " + minPort + "-" + maxPort);
+        }
+        this.dockerHosts = dockerHosts;
+        this.userContainerRepository = userContainerRepository;
+        this.minPort = minPort;
+        this.maxPort = maxPort;
+        this.reservationGraceMillis = reservationGraceSeconds * 1000;
+        this.usedPorts = new BitSet(capacity());
+
+        Gauge.builder("hosting.ports.free", this, PortAllocator::getFreeCount)
+                .description("Host ports still available for user containers")
+                .register(meterRegistry);
+        Gauge.builder("hosting.ports.used", this, PortAllocator::getUsedCount)
+                .description("Host ports taken by user containers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserves a free port, failing immediately when the range is exhausted
+     */
+    public synchronized int allocate() {
+        int index = usedPorts.nextClearBit(nextCandidate);
+        if (index >= capacity()) {
+            index = usedPorts.nextClearBit(0);
+        }
+        if (index >= capacity()) {
+            throw new PortRangeExhaustedException(
+                    "No available ports in range " + minPort + "-" + maxPort);
+        }
+
+        usedPorts.set(index);
+        nextCandidate = index + 1;
+        int port = minPort + index;
+        pendingReservations.put(port, System.currentTimeMillis());
+        return port;
+    }
+
+    /**
+     * Returns a port to the pool (container removed or creation failed)
+     */
+    public synchronized void release(int port) {
+        if (port < minPort || port > maxPort) {
+            return;
+        }
+        usedPorts.clear(port - minPort);
+        pendingReservations.remove(port);
+    }
+
+    /**
+     * Whether any port in first..last could be handed out to a container
+     */
+    public boolean overlaps(int first, int last) {
+        return first <= maxPort && last >= minPort;
+    }
+
+    public String getRange() {
+        return minPort + "-" + maxPort;
+    }
+
+    public synchronized int getUsedCount() {
+        return usedPorts.cardinality();
+    }
+
+    public synchronized int getFreeCount() {
+        return capacity() - usedPorts.cardinality();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    /**
+     * Rebuilds the bitset from the ports Docker and Mongo actually know about
+     */
+    @Scheduled(fixedDelayString = "${hosting.ports.reconcile-interval-ms:60000}",
+               initialDelayString = "${hosting.ports.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        BitSet observed = new BitSet(capacity());
+        try {
+            var containers = dockerHosts.listContainers(false).values().stream().flatMap(List::stream).toList();
+            for (var container : containers) {
+                for (Integer port : container.getPublicPorts()) {
+                    markObserved(observed, port);
+                }
+            }
+            for (UserContainer userContainer : userContainerRepository.findAll()) {
+                markObserved(observed, userContainer.getPort());
+            }
+        } catch (Exception e) {
+            System.err.println("Port reconciliation skipped: " + e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<Integer, Long>> it = pendingReservations.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Long> reservation = it.next();
+                int index = reservation.getKey() - minPort;
+                if (observed.get(index) || now - reservation.getValue() > reservationGraceMillis) {
+                    it.remove();
+                } else {
+                    observed.set(index);
+                }
+            }
+
+            BitSet drift = (BitSet) usedPorts.clone();
+            drift.xor(observed);
+            if (!drift.isEmpty()) {
+                System.out.println("Port allocator corrected " + drift.cardinality() + " port(s) during reconciliation");
+            }
+            usedPorts.clear();
+            usedPorts.or(observed);
+        }
+    }
+
+    private void markObserved(BitSet observed, Integer port) {
+        if (port != null && port >= minPort && port <= maxPort) {
+            observed.set(port - minPort);
+        }
+    }
+
+    private int capacity() {
+        return maxPort - minPort + 1;
+    }
+
+    /**
+     * Thrown when every port in the configured range is taken
+     */
+    public static class PortRangeExhaustedException extends RuntimeException {
+        public PortRangeExhaustedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.repository.UserContainerRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs container provisioning jobs off the request thread.
+ *
+ * Each job is a user_containers record moving through
+ * queued -> building -> starting -> running (or failed). Jobs run on a
+ * bounded pool; when its queue is full submissions are rejected so the
+ * caller can answer 503 instead of piling up work.
+ *
+ * Every status change only applies if the record still has the status the job
+ * last wrote. A user deleting the site mid-provisioning removes the record, the
+ * next change then matches nothing, and the job tears down what it created
+ * instead of writing the record back.
+ */
+@Service
+public class ProvisioningService {
+
+    private static final List<String> IN_PROGRESS_STATUSES = List.of(
+            UserContainer.STATUS_QUEUED, UserContainer.STATUS_BUILDING, UserContainer.STATUS_STARTING);
+
+    private final UserContainerRepository userContainerRepository;
+    private final MongoTemplate mongoTemplate;
+    private final HostingBackendRegistry backendRegistry;
+    private final SiteContentService siteContentService;
+    private final AdmissionController admissionController;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+
+    public ProvisioningService(UserContainerRepository userContainerRepository,
+                               MongoTemplate mongoTemplate,
+                               HostingBackendRegistry backendRegistry,
+                               SiteContentService siteContentService,
+                               AdmissionController admissionController,
+                               MeterRegistry meterRegistry,
+                               @Value("${hosting.provisioning.workers:4}") int workers,
+                               @Value("${hosting.provisioning.queue-capacity:50}") int queueCapacity) {
+        this.userContainerRepository = userContainerRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.backendRegistry = backendRegistry;
+        this.siteContentService = siteContentService;
+        this.admissionController = admissionController;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "provisioning-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("hosting.provisioning.queue.depth", executor, e -> e.getQueue().size())
+                .description("Provisioning jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("hosting.provisioning.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Provisioning jobs currently running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enqueues provisioning for a saved job record. The job owns the staged
+     * content from here on and deletes it if it is never installed.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public void submit(UserContainer job, Path content) {
+        long queuedAt = System.nanoTime();
+        executor.execute(() -> {
+            // Whatever run() did not install: the upload, or the tree prepared from it
+            Path[] cleanup = { content };
+            try {
+                run(job.getId(), job.getUserEmail(), content, cleanup, queuedAt);
+            } finally {
+                siteContentService.discard(cleanup[0]);
+            }
+        });
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private void run(String jobId, String userEmail, Path content, Path[] cleanup, long queuedAt) {
+        long stageStart = System.nanoTime();
+        recordStage("queued", queuedAt, stageStart);
+
+        UserContainer job = userContainerRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            // Deleted while waiting in the queue
+            return;
+        }
+
+        long[] buildingStart = { stageStart };
+        long[] startingStart = { 0L };
+        // The status this job last wrote, which the record must still have for the next change
+        String[] current = { UserContainer.STATUS_QUEUED };
+        try {
+            if (!transition(job, current, UserContainer.STATUS_BUILDING, new Update())) {
+                // Deleted while waiting in the queue
+                return;
+            }
+
+            // Unpack archives before touching any backend, so bad content fails fast
+            Path siteTree = siteContentService.prepare(content);
+            cleanup[0] = siteTree;
+
+            SiteHostingBackend backend = backendRegistry.forSite(job);
+            UserDockerService.ContainerCreationResult result =
+                    backend.createSite(userEmail, siteTree, stage -> {
+                        startingStart[0] = System.nanoTime();
+                        recordStage(UserContainer.STATUS_BUILDING, buildingStart[0], startingStart[0]);
+                        // When the record is gone, the final transition fails too and removes the site
+                        transition(job, current, stage, new Update());
+                    });
+            recordStage(UserContainer.STATUS_STARTING, startingStart[0], System.nanoTime());
+
+            job.setContainerId(result.getContainerId());
+            job.setContainerName(result.getContainerName());
+            job.setSiteDirectory(result.getSiteDirectory());
+            job.setHostname(result.getHostname());
+            job.setDockerHost(result.getDockerHost());
+            job.setPort(result.getPort());
+            job.setErrorMessage(null);
+            Update site = new Update()
+                    .set("containerId", result.getContainerId())
+                    .set("containerName", result.getContainerName())
+                    .set("siteDirectory", result.getSiteDirectory())
+                    .set("hostname", result.getHostname())
+                    .set("dockerHost", result.getDockerHost())
+                    .set("port", result.getPort())
+                    .unset("errorMessage");
+            if (!transition(job, current, result.getStatus(), site)) {
+                // Deleted while provisioning, don't leave the site behind
+                backend.removeSite(job);
+                return;
+            }
+            recordTotal("success", queuedAt);
+        } catch (Exception e) {
+            System.err.println("Provisioning failed for " + userEmail + ": " + e.getMessage());
+            job.setErrorMessage(e.getMessage());
+            // Deleting the record already gave its capacity back
+            if (transition(job, current, UserContainer.STATUS_FAILED, new Update().set("errorMessage", e.getMessage()))
+                    && UserContainer.BACKEND_CONTAINER.equals(job.getHostingBackend())) {
+                admissionController.release();
+            }
+            recordTotal("failure", queuedAt);
+        }
+    }
+
+    /**
+     * Sets the job's status (plus the given fields) if its record still has current[0];
+     * false when nothing matched, i.e. the record was deleted
+     */
+    private boolean transition(UserContainer job, String[] current, String status, Update update) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(job.getId()).and("status").is(current[0]));
+        update.set("status", status).set("updatedAt", now);
+        if (mongoTemplate.updateFirst(query, update, UserContainer.class).getMatchedCount() == 0) {
+            return false;
+        }
+        current[0] = status;
+        job.setStatus(status);
+        job.setUpdatedAt(now);
+        return true;
+    }
+
+    private void recordStage(String stage, long startNanos, long endNanos) {
+        meterRegistry.timer("hosting.provisioning.stage", "stage", stage)
+                .record(endNanos - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordTotal(String outcome, long queuedAt) {
+        meterRegistry.timer("hosting.provisioning.total", "outcome", outcome)
+                .record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Jobs that were in flight when the service stopped will never finish, mark them failed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        for (UserContainer job : userContainerRepository.findByStatusIn(IN_PROGRESS_STATUSES)) {
+            transition(job, new String[] { job.getStatus() }, UserContainer.STATUS_FAILED,
+                    new Update().set("errorMessage", "Provisioning interrupted by service restart"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,268 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Serves many sites from a few shared nginx containers using name-based virtual hosts.
+ *
+ * Every instance mounts the whole sites directory read-only and its own conf.d
+ * directory. Creating or removing a site writes or deletes one server block
+ * keyed by the site's hostname and hot-reloads that instance.
+ */
+@Service
+public class SharedNginxHostingService implements SiteHostingBackend {
+
+    private static final String INSTANCE_PREFIX = "shared-nginx-";
+    private static final String SITES_MOUNT = "/srv/sites";
+    private static final String CONFIG_DIR = UserDockerService.BASE_HTML_DIR + "/.shared-nginx";
+
+    private final DockerHostRegistry dockerHosts;
+    private final UserDockerService userDockerService;
+    private final SiteContentService siteContentService;
+    private final Map<Integer, SharedInstance> instances = new HashMap<>();
+    private final int instanceCount;
+    private final int basePort;
+
+    @Value("${hosting.sites.domain:sites.localhost}")
+    private String sitesDomain;
+
+    @Value("${hosting.nginx.image:nginx:1.27-alpine}")
+    private String nginxImage;
+
+    @Value("${hosting.sites.host-dir:" + UserDockerService.BASE_HTML_DIR + "}")
+    private String hostSitesDir;
+
+    public SharedNginxHostingService(DockerHostRegistry dockerHosts, UserDockerService userDockerService,
+                                     SiteContentService siteContentService, PortAllocator portAllocator,
+                                     @Value("${hosting.shared-nginx.instances:2}") int instanceCount,
+                                     @Value("${hosting.shared-nginx.base-port:8070}") int basePort) {
+        // Instance ports are not allocated, so a site container could be handed the same one
+        int lastPort = basePort + instanceCount - 1;
+        if (instanceCount > 0 && portAllocator.overlaps(basePort, lastPort)) {
+            throw new IllegalArgumentException("Shared nginx ports " + basePort + "-" + lastPort
+                    + " overlap the container port range " + portAllocator.getRange());
+        }
+        this.dockerHosts = dockerHosts;
+        this.userDockerService = userDockerService;
+        this.siteContentService = siteContentService;
+        this.instanceCount = instanceCount;
+        this.basePort = basePort;
+    }
+
+    @Override
+    public String getName() {
+        return UserContainer.BACKEND_SHARED_NGINX;
+    }
+
+    @Override
+    public UserDockerService.ContainerCreationResult createSite(String userEmail, Path content,
+                                                                Consumer<String> stageListener) throws IOException {
+        String sanitizedEmail = UserDockerService.sanitizeEmail(userEmail).toLowerCase();
+        long timestamp = System.currentTimeMillis();
+        String siteDirectory = "site-" + sanitizedEmail + "-" + timestamp;
+        String hostname = sanitizedEmail + "-" + Long.toString(timestamp, 36) + "." + sitesDomain;
+
+        Path htmlDir = Paths.get(UserDockerService.BASE_HTML_DIR, siteDirectory, "html");
+        siteContentService.install(content, htmlDir);
+
+        try {
+            SharedInstance instance = leastLoadedInstance();
+            stageListener.accept(UserContainer.STATUS_STARTING);
+
+            synchronized (instance) {
+                Path siteConfig = instance.configDir.resolve(siteDirectory + ".conf");
+                Files.writeString(siteConfig, serverBlock(hostname, siteDirectory));
+                try {
+                    reload(instance);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(siteConfig);
+                    throw e;
+                }
+            }
+
+            return new UserDockerService.ContainerCreationResult(
+                    instance.containerId,
+                    instance.name,
+                    instance.port,
+                    UserContainer.STATUS_RUNNING,
+                    nginxImage,
+                    siteDirectory,
+                    hostname
+            );
+        } catch (IOException | RuntimeException e) {
+            UserDockerService.deleteDirectory(new File(UserDockerService.BASE_HTML_DIR, siteDirectory));
+            throw e;
+        }
+    }
+
+    /**
+     * Reloads the site's instance; other sites on it keep being served
+     */
+    @Override
+    public void restartSite(UserContainer site) {
+        SharedInstance instance = instanceFor(site);
+        synchronized (instance) {
+            try {
+                reload(instance);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to reload shared nginx: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Switches the site's release; nginx resolves the new root on the next request, no reload needed
+     */
+    @Override
+    public void updateSite(UserContainer site, Path siteTree) throws IOException {
+        siteContentService.install(siteTree, Paths.get(UserDockerService.BASE_HTML_DIR, site.getSiteDirectory(), "html"));
+    }
+
+    @Override
+    public void removeSite(UserContainer site) throws IOException {
+        SharedInstance instance;
+        try {
+            instance = instanceFor(site);
+        } catch (RuntimeException e) {
+            throw new IOException("Error removing virtual host for " + site.getHostname() + ": " + e.getMessage(), e);
+        }
+        synchronized (instance) {
+            Files.deleteIfExists(instance.configDir.resolve(site.getSiteDirectory() + ".conf"));
+            // Also when the file is already gone: an earlier attempt may have failed to reload
+            reload(instance);
+        }
+
+        siteContentService.deleteSite(site.getSiteDirectory());
+    }
+
+    private String serverBlock(String hostname, String siteDirectory) {
+        return "server {\n" +
+                "    listen 80;\n" +
+                "    server_name " + hostname + ";\n" +
+                "    root " + SITES_MOUNT + "/" + siteDirectory + "/html/" + SiteContentService.CURRENT_LINK + ";\n" +
+                "    index index.html;\n" +
+                AssetCompressor.NGINX_DIRECTIVES +
+                "    location / {\n" +
+                "        try_files $uri $uri/ =404;\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    /**
+     * Picks the instance currently serving the fewest sites, creating instances as needed
+     */
+    private SharedInstance leastLoadedInstance() throws IOException {
+        SharedInstance best = null;
+        long bestCount = Long.MAX_VALUE;
+        for (int i = 0; i < instanceCount; i++) {
+            SharedInstance instance = ensureInstance(i);
+            long count;
+            try (Stream<Path> files = Files.list(instance.configDir)) {
+                count = files.filter(f -> f.getFileName().toString().startsWith("site-")).count();
+            }
+            if (count < bestCount) {
+                best = instance;
+                bestCount = count;
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("No shared nginx instances configured");
+        }
+        return best;
+    }
+
+    private SharedInstance instanceFor(UserContainer site) {
+        String name = site.getContainerName();
+        int index = Integer.parseInt(name.substring(INSTANCE_PREFIX.length()));
+        try {
+            return ensureInstance(index);
+        } catch (IOException e) {
+            throw new RuntimeException("Shared nginx instance " + name + " unavailable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a running shared instance, creating or starting its container if needed
+     */
+    private synchronized SharedInstance ensureInstance(int index) throws IOException {
+        SharedInstance cached = instances.get(index);
+        if (cached != null && "running".equals(userDockerService.getContainerStatus(cached.containerId))) {
+            return cached;
+        }
+
+        String name = INSTANCE_PREFIX + index;
+        int port = basePort + index;
+        Path configDir = Paths.get(CONFIG_DIR, name, "conf.d");
+        Files.createDirectories(configDir);
+        // Requests for unknown hostnames get a 404 instead of some tenant's site
+        Files.writeString(configDir.resolve("00-default.conf"),
+                "server {\n    listen 80 default_server;\n    return 404;\n}\n");
+
+        // Shared instances run on the default Docker host
+        ContainerRuntime runtime = dockerHosts.runtime(null);
+        String containerId;
+        try {
+            ContainerRuntime.ContainerInfo existing = runtime.inspect(name);
+            containerId = existing.getId();
+            if (!"running".equals(existing.getState())) {
+                runtime.start(containerId);
+            }
+        } catch (ContainerRuntime.NotFoundException e) {
+            userDockerService.ensureNginxImagePresent();
+            containerId = runtime.create(new ContainerRuntime.ContainerSpec(nginxImage, name)
+                    .withReadOnlyBind(hostSitesDir, SITES_MOUNT)
+                    .withReadOnlyBind(hostSitesDir + "/.shared-nginx/" + name + "/conf.d", "/etc/nginx/conf.d")
+                    .withHostPort(port));
+            runtime.start(containerId);
+            System.out.println("Shared nginx instance started: " + name + " on port " + port);
+        }
+
+        SharedInstance instance = cached != null && cached.containerId.equals(containerId)
+                ? cached
+                : new SharedInstance(name, containerId, port, configDir);
+        instances.put(index, instance);
+        return instance;
+    }
+
+    /**
+     * Validates the configuration and hot-reloads nginx without dropping connections
+     */
+    private void reload(SharedInstance instance) throws IOException {
+        ContainerRuntime runtime = dockerHosts.runtime(null);
+        if (runtime.exec(instance.containerId, "nginx", "-t") != 0) {
+            throw new IOException("Generated nginx configuration is invalid on " + instance.name);
+        }
+        if (runtime.exec(instance.containerId, "nginx", "-s", "reload") != 0) {
+            throw new IOException("nginx reload failed on " + instance.name);
+        }
+    }
+
+    /**
+     * A shared nginx container and the directory holding its virtual hosts
+     */
+    private static class SharedInstance {
+        private final String name;
+        private final String containerId;
+        private final int port;
+        private final Path configDir;
+
+        SharedInstance(String name, String containerId, int port, Path configDir) {
+            this.name = name;
+            this.containerId = containerId;
+            this.port = port;
+            this.configDir = configDir;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.authapi.webhostingservice.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory ContainerRuntime for load tests and benchmarks on machines without Docker.
+ *
+ * Containers and images only exist as records, but follow Docker's rules: names and
+ * published ports are unique, starting a running or stopping a stopped container is
+ * "not modified", a running container or an image in use is only removed with force,
+ * and every state change is published as the event Docker would send. Like Docker's
+ * event stream, each subscription is delivered in order on its own callback thread, so
+ * a slow listener delays its own events but never the calls that produced them. Each call
+ * sleeps for the configured latency (image pulls and builds for image-latency-ms) and
+ * fails with the configured probability, so provisioning sees realistic timings and
+ * errors. Sites are not actually served.
+ */
+public class SimulatedContainerRuntime implements ContainerRuntime {
+
+    private final String hostName;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final long imageLatencyMillis;
+    private final double failureRate;
+    private final HostCapacity capacity;
+    private final Map<String, SimContainer> containers = new HashMap<>();
+    // Indexes so checks stay O(1) with tens of thousands of containers
+    private final Map<String, SimContainer> byName = new HashMap<>();
+    private final Map<Integer, SimContainer> byRunningPort = new HashMap<>();
+    private final Map<String, ImageInfo> images = new HashMap<>();
+    // Each subscriber's callback thread; publishing only queues, so it is safe under the lock
+    private final Map<ContainerEvents, ExecutorService> listeners = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    public SimulatedContainerRuntime(String hostName, long latencyMillis, long latencyJitterMillis,
+                                     long imageLatencyMillis, double failureRate,
+                                     long memoryBytes, int cpus) {
+        this.hostName = hostName;
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.imageLatencyMillis = imageLatencyMillis;
+        this.failureRate = failureRate;
+        this.capacity = new HostCapacity(memoryBytes, cpus);
+    }
+
+    @Override
+    public String create(ContainerSpec spec) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            if (findImage(spec.getImage()) == null) {
+                throw new NotFoundException("No such image: " + spec.getImage());
+            }
+            if (spec.getName() != null && byName.containsKey(spec.getName())) {
+                throw new ConflictException("Conflict. The container name \"/" + spec.getName() + "\" is already in use");
+            }
+            String id = newId();
+            String name = spec.getName() != null ? spec.getName() : "sim-" + id.substring(0, 12);
+            List<String> mounts = new ArrayList<>();
+            for (String[] bind : spec.getBinds()) {
+                mounts.add(bind[1]);
+            }
+            SimContainer container = new SimContainer(id, name, normalize(spec.getImage()), spec.getHostPort(), mounts);
+            containers.put(id, container);
+            byName.put(name, container);
+            publish(id, "create");
+            return id;
+        }
+    }
+
+    @Override
+    public void start(String containerId) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            SimContainer container = get(containerId);
+            if ("running".equals(container.state)) {
+                throw new NotModifiedException("Container already started");
+            }
+            if (container.hostPort > 0) {
+                if (byRunningPort.containsKey(container.hostPort)) {
+                    throw new ConflictException("Bind for 0.0.0.0:" + container.hostPort + " failed: port is already allocated");
+                }
+                byRunningPort.put(container.hostPort, container);
+            }
+            container.state = "running";
+            publish(container.id, "start");
+        }
+    }
+
+    @Override
+    public void stop(String containerId, int timeoutSeconds) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            SimContainer container = get(containerId);
+            if (!"running".equals(container.state)) {
+                throw new NotModifiedException("Container already stopped");
+            }
+            container.state = "exited";
+            byRunningPort.remove(container.hostPort, container);
+            publish(container.id, "die");
+            publish(container.id, "stop");
+        }
+    }
+
+    @Override
+    public void restart(String containerId, int timeoutSeconds) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            SimContainer container = get(containerId);
+            if ("running".equals(container.state)) {
+                publish(container.id, "die");
+            } else if (container.hostPort > 0) {
+                if (byRunningPort.containsKey(container.hostPort)) {
+                    throw new ConflictException("Bind for 0.0.0.0:" + container.hostPort + " failed: port is already allocated");
+                }
+                byRunningPort.put(container.hostPort, container);
+            }
+            container.state = "running";
+            publish(container.id, "start");
+            publish(container.id, "restart");
+        }
+    }
+
+    @Override
+    public void remove(String containerId, boolean force) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            SimContainer container = get(containerId);
+            if ("running".equals(container.state)) {
+                if (!force) {
+                    throw new ConflictException("You cannot remove a running container " + container.id
+                            + ". Stop the container before attempting removal or force remove");
+                }
+                byRunningPort.remove(container.hostPort, container);
+                publish(container.id, "kill");
+                publish(container.id, "die");
+            }
+            containers.remove(container.id);
+            byName.remove(container.name);
+            publish(container.id, "destroy");
+        }
+    }
+
+    @Override
+    public void rename(String containerId, String name) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            SimContainer container = get(containerId);
+            SimContainer existing = byName.get(name);
+            if (existing != null && existing != container) {
+                throw new ConflictException("Conflict. The container name \"/" + name + "\" is already in use");
+            }
+            byName.remove(container.name);
+            container.name = name;
+            byName.put(name, container);
+            publish(container.id, "rename");
+        }
+    }
+
+    @Override
+    public ContainerInfo inspect(String containerId) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            return get(containerId).toInfo(true);
+        }
+    }
+
+    @Override
+    public List<ContainerInfo> list(boolean withSize) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            List<ContainerInfo> infos = new ArrayList<>(containers.size());
+            for (SimContainer container : containers.values()) {
+                infos.add(container.toInfo(false));
+            }
+            return infos;
+        }
+    }
+
+    @Override
+    public long exec(String containerId, String... command) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            SimContainer container = get(containerId);
+            if (!"running".equals(container.state)) {
+                throw new ConflictException("Container " + container.id + " is not running");
+            }
+            return 0;
+        }
+    }
+
+    @Override
+    public HostCapacity capacity() {
+        simulateCall(latencyMillis);
+        return capacity;
+    }
+
+    @Override
+    public void ensureImage(String image) {
+        synchronized (this) {
+            if (findImage(image) != null) {
+                return;
+            }
+        }
+        // Pulled outside the lock, like concurrent pulls on a daemon
+        simulateCall(imageLatencyMillis);
+        addImage(image);
+    }
+
+    @Override
+    public void buildImage(String tag, File contextDirectory, File dockerfile) throws IOException {
+        if (!dockerfile.isFile()) {
+            throw new IOException("Cannot locate specified Dockerfile: " + dockerfile);
+        }
+        simulateCall(imageLatencyMillis);
+        addImage(tag);
+    }
+
+    @Override
+    public void removeImage(String image, boolean force) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            ImageInfo found = findImage(image);
+            if (found == null) {
+                throw new NotFoundException("No such image: " + image);
+            }
+            if (!force) {
+                for (SimContainer container : containers.values()) {
+                    if (found.getTags().contains(container.image) || found.getId().equals(container.image)) {
+                        throw new ConflictException("Unable to remove " + image + ": image is being used by "
+                                + "container " + container.id.substring(0, 12));
+                    }
+                }
+            }
+            images.remove(found.getId());
+        }
+    }
+
+    @Override
+    public List<ImageInfo> listImages() {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            return new ArrayList<>(images.values());
+        }
+    }
+
+    @Override
+    public Closeable subscribe(ContainerEvents listener) {
+        String threadName = "sim-events-" + hostName + "-" + subscriptionCount.incrementAndGet();
+        ExecutorService callbacks = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        listeners.put(listener, callbacks);
+        return () -> {
+            if (listeners.remove(listener, callbacks)) {
+                // After the events already queued, like the end of Docker's stream
+                callbacks.execute(() -> listener.onClosed(null));
+                callbacks.shutdown();
+            }
+        };
+    }
+
+    @Override
+    public boolean hasOutputSince(String containerId, int sinceEpochSeconds) {
+        simulateCall(latencyMillis);
+        // Simulated sites never receive traffic
+        return false;
+    }
+
+    @Override
+    public long memoryUsage(String containerId) {
+        simulateCall(latencyMillis);
+        synchronized (this) {
+            return "running".equals(get(containerId).state) ? 8L << 20 : 0;
+        }
+    }
+
+    public synchronized int getContainerCount() {
+        return containers.size();
+    }
+
+    private void addImage(String tag) {
+        synchronized (this) {
+            ImageInfo existing = findImage(tag);
+            if (existing != null) {
+                images.remove(existing.getId());
+            }
+            String id = "sha256:" + newId();
+            images.put(id, new ImageInfo(id, List.of(normalize(tag)),
+                    40L << 20, System.currentTimeMillis() / 1000));
+        }
+    }
+
+    private SimContainer get(String idOrName) {
+        SimContainer container = containers.get(idOrName);
+        if (container == null) {
+            container = byName.get(idOrName);
+        }
+        if (container == null) {
+            throw new NotFoundException("No such container: " + idOrName);
+        }
+        return container;
+    }
+
+    private ImageInfo findImage(String reference) {
+        String tag = normalize(reference);
+        for (ImageInfo image : images.values()) {
+            if (image.getId().equals(reference) || image.getTags().contains(tag)) {
+                return image;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queues the event for every subscriber; called under the lock so each sees the order of changes
+     */
+    private void publish(String containerId, String action) {
+        for (Map.Entry<ContainerEvents, ExecutorService> subscriber : listeners.entrySet()) {
+            ContainerEvents listener = subscriber.getKey();
+            try {
+                subscriber.getValue().execute(() -> {
+                    try {
+                        listener.onEvent(containerId, action);
+                    } catch (RuntimeException e) {
+                        System.err.println("Simulated event listener failed: " + e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed meanwhile
+            }
+        }
+    }
+
+    /**
+     * Waits like a daemon round trip and fails with the configured probability
+     */
+    private void simulateCall(long baseMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = baseMillis + (latencyJitterMillis > 0 ? random.nextLong(latencyJitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted", e);
+            }
+        }
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            throw new IllegalStateException("Simulated failure on " + hostName);
+        }
+    }
+
+    /**
+     * Image reference with Docker's implicit :latest tag
+     */
+    private static String normalize(String image) {
+        return image.startsWith("sha256:") || image.contains(":") ? image : image + ":latest";
+    }
+
+    private static String newId() {
+        return (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+    }
+
+    private static class SimContainer {
+        private final String id;
+        private String name;
+        private final String image;
+        private final int hostPort;
+        private final List<String> mounts;
+        private final long created = System.currentTimeMillis() / 1000;
+        private String state = "created";
+
+        SimContainer(String id, String name, String image, int hostPort, List<String> mounts) {
+            this.id = id;
+            this.name = name;
+            this.image = image;
+            this.hostPort = hostPort;
+            this.mounts = mounts;
+        }
+
+        ContainerInfo toInfo(boolean withMounts) {
+            return new ContainerInfo(id, name, image, state, created,
+                    hostPort > 0 ? List.of(hostPort) : List.of(),
+                    withMounts ? mounts : List.of(), 0);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.authapi.webhostingservice.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves uploaded site content from the request to a site directory without holding it on the heap.
+ *
+ * An upload is first staged as a file under BASE_HTML_DIR/.uploads (the multipart
+ * temp file is renamed there when possible, otherwise streamed). The provisioning
+ * job then prepares it into a site tree next to it: a single HTML file becomes
+ * index.html, a zip or tar archive is unpacked entry by entry within the configured
+ * limits, and compressible files get precompressed siblings (see AssetCompressor).
+ *
+ * A site's html directory holds immutable releases and a "current" symlink that
+ * nginx and the in-JVM server use as document root. Installing a tree renames it
+ * into releases/ and then atomically replaces the link, so a site can be updated
+ * while it is serving and a request never sees a half-written release.
+ */
+@Service
+public class SiteContentService {
+
+    static final String STAGING_DIR = UserDockerService.BASE_HTML_DIR + "/.uploads";
+    static final String INDEX_FILE = "index.html";
+    static final String CURRENT_LINK = "current";
+    private static final String RELEASES_DIR = "releases";
+
+    // Upload types by file name suffix, longest first
+    private static final List<String> UPLOAD_TYPES = List.of(".tar.gz", ".tgz", ".tar", ".zip", ".html", ".htm");
+
+    private final BlobStore blobStore;
+    private final AssetCompressor assetCompressor;
+    private final DistributionSummary uploadSize;
+    private final Timer stageTimer;
+    private final Timer unpackTimer;
+    private final DistributionSummary unpackedEntries;
+    // One lock per html directory: publishing a site only waits for other publishes of the same site
+    private final ConcurrentHashMap<Path, Object> installLocks = new ConcurrentHashMap<>();
+
+    @Value("${hosting.uploads.archive.max-entries:5000}")
+    private int maxArchiveEntries;
+
+    @Value("${hosting.uploads.archive.max-unpacked-bytes:524288000}")
+    private long maxUnpackedBytes;
+
+    public SiteContentService(BlobStore blobStore, AssetCompressor assetCompressor, MeterRegistry meterRegistry) {
+        this.blobStore = blobStore;
+        this.assetCompressor = assetCompressor;
+        this.uploadSize = DistributionSummary.builder("hosting.upload.size")
+                .description("Size of staged site uploads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.stageTimer = meterRegistry.timer("hosting.upload.stage");
+        this.unpackTimer = meterRegistry.timer("hosting.upload.unpack");
+        this.unpackedEntries = DistributionSummary.builder("hosting.upload.unpack.entries")
+                .description("Files unpacked per site archive")
+                .register(meterRegistry);
+
+        // Uploads staged before a restart belong to jobs that are failed on startup
+        File stagingDir = new File(STAGING_DIR);
+        if (stagingDir.exists()) {
+            UserDockerService.deleteDirectory(stagingDir);
+        }
+    }
+
+    /**
+     * Whether a file name is an HTML page or a zip/tar archive we can host
+     */
+    public boolean isSupportedUpload(String filename) {
+        return uploadType(filename) != null;
+    }
+
+    /**
+     * Stages an uploaded file, returning the path to hand to the provisioning job
+     */
+    public Path stage(MultipartFile file) throws IOException {
+        String type = uploadType(file.getOriginalFilename());
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported upload type: " + file.getOriginalFilename());
+        }
+
+        long start = System.nanoTime();
+        Path staged = Paths.get(STAGING_DIR, UUID.randomUUID() + type);
+        Files.createDirectories(staged.getParent());
+        try {
+            // Renames the multipart temp file, or copies it in chunks from disk
+            file.transferTo(staged.toFile());
+        } catch (IOException | RuntimeException e) {
+            discard(staged);
+            throw e;
+        }
+        uploadSize.record(Files.size(staged));
+        stageTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return staged;
+    }
+
+    /**
+     * Turns a staged upload into a directory holding the site tree, consuming the upload.
+     * Fails when an archive breaks a limit, escapes its root or has no index.html.
+     */
+    public Path prepare(Path staged) throws IOException {
+        Path siteTree = staged.resolveSibling(staged.getFileName() + ".d");
+        Files.createDirectories(siteTree);
+        try {
+            String name = staged.getFileName().toString();
+            if (name.endsWith(".html") || name.endsWith(".htm")) {
+                move(staged, siteTree.resolve(INDEX_FILE));
+            } else {
+                unpack(staged, siteTree);
+                Files.delete(staged);
+            }
+            if (!Files.isRegularFile(siteTree.resolve(INDEX_FILE))) {
+                throw new IOException("Archive must contain " + INDEX_FILE + " at its root");
+            }
+            assetCompressor.compress(siteTree);
+        } catch (IOException | RuntimeException e) {
+            discard(siteTree);
+            throw e;
+        }
+        return siteTree;
+    }
+
+    /**
+     * Publishes a prepared site tree as the html directory's current release and removes
+     * older releases. Sites created before releases existed are updated in place.
+     */
+    public void install(Path siteTree, Path htmlDir) throws IOException {
+        synchronized (installLocks.computeIfAbsent(htmlDir.toAbsolutePath().normalize(), dir -> new Object())) {
+            installLocked(siteTree, htmlDir);
+        }
+    }
+
+    private void installLocked(Path siteTree, Path htmlDir) throws IOException {
+        Files.createDirectories(htmlDir);
+        Path currentLink = htmlDir.resolve(CURRENT_LINK);
+        if (!Files.isSymbolicLink(currentLink) && !isEmpty(htmlDir)) {
+            replaceContents(siteTree, htmlDir);
+            return;
+        }
+
+        // Files identical to ones other sites already serve become links to a shared copy
+        blobStore.deduplicate(siteTree);
+
+        Path releases = Files.createDirectories(htmlDir.resolve(RELEASES_DIR));
+        String release = System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        move(siteTree, releases.resolve(release));
+
+        Path previous = Files.isSymbolicLink(currentLink) ? Files.readSymbolicLink(currentLink) : null;
+        // Relative target so the link also resolves where the directory is mounted into a container
+        Path nextLink = htmlDir.resolve("." + CURRENT_LINK + "-" + release);
+        Files.createSymbolicLink(nextLink, Paths.get(RELEASES_DIR, release));
+        Files.move(nextLink, currentLink, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Keep the previous release: requests that already resolved it can still finish
+        try (Stream<Path> existing = Files.list(releases)) {
+            for (Path old : existing.collect(Collectors.toList())) {
+                String name = old.getFileName().toString();
+                boolean keep = name.equals(release)
+                        || (previous != null && previous.getFileName().toString().equals(name));
+                if (!keep) {
+                    UserDockerService.deleteDirectory(old.toFile());
+                    blobStore.requestCollection();
+                }
+            }
+        }
+    }
+
+    /**
+     * Directory nginx serves for a site: the current release, or the html directory itself for older sites
+     */
+    public Path siteRoot(Path htmlDir) {
+        Path currentLink = htmlDir.resolve(CURRENT_LINK);
+        return Files.isSymbolicLink(currentLink) ? currentLink : htmlDir;
+    }
+
+    /**
+     * Whether a site directory uses the release layout (see install)
+     */
+    public boolean hasReleases(Path htmlDir) {
+        return Files.isSymbolicLink(htmlDir.resolve(CURRENT_LINK));
+    }
+
+    /**
+     * Deletes a site directory under BASE_HTML_DIR and releases its stored files
+     */
+    public void deleteSite(String siteDirectory) throws IOException {
+        File dir = new File(UserDockerService.BASE_HTML_DIR, siteDirectory);
+        installLocks.remove(dir.toPath().resolve("html").toAbsolutePath().normalize());
+        if (dir.exists()) {
+            UserDockerService.deleteDirectory(dir);
+            blobStore.requestCollection();
+            if (dir.exists()) {
+                throw new IOException("Could not delete site directory " + dir);
+            }
+            System.out.println("Directory cleaned: " + dir);
+        }
+    }
+
+    /**
+     * Deletes a staged upload or prepared tree that was not installed; a no-op once it has been
+     */
+    public void discard(Path staged) {
+        if (staged == null) {
+            return;
+        }
+        try {
+            if (Files.isDirectory(staged)) {
+                UserDockerService.deleteDirectory(staged.toFile());
+            } else {
+                Files.deleteIfExists(staged);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not delete staged upload " + staged + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Streams an archive into a directory one entry at a time, enforcing the entry and size limits
+     */
+    private void unpack(Path archive, Path targetDir) throws IOException {
+        long start = System.nanoTime();
+        Path root = targetDir.toAbsolutePath().normalize();
+        byte[] buffer = new byte[8192];
+        int entries = 0;
+        long unpackedBytes = 0;
+
+        try (ArchiveInputStream in = openArchive(archive)) {
+            ArchiveEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (++entries > maxArchiveEntries) {
+                    throw new IOException("Archive has more than " + maxArchiveEntries + " entries");
+                }
+                Path target = root.resolve(entry.getName()).normalize();
+                if (!target.startsWith(root)) {
+                    throw new IOException("Archive entry outside the site root: " + entry.getName());
+                }
+                if (entry.isDirectory() || target.equals(root)) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                if (!isRegularFile(entry)) {
+                    // Links and device entries could point outside the site, they are not unpacked
+                    continue;
+                }
+                if (!in.canReadEntryData(entry)) {
+                    throw new IOException("Unsupported archive entry: " + entry.getName());
+                }
+
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        unpackedBytes += read;
+                        if (unpackedBytes > maxUnpackedBytes) {
+                            throw new IOException("Archive unpacks to more than " + maxUnpackedBytes + " bytes");
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                }
+            }
+        }
+
+        unpackedEntries.record(entries);
+        unpackTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static ArchiveInputStream openArchive(Path archive) throws IOException {
+        String name = archive.getFileName().toString();
+        InputStream in = new BufferedInputStream(Files.newInputStream(archive));
+        try {
+            if (name.endsWith(".zip")) {
+                // Also accept stored entries written with a data descriptor (common with streaming zip tools)
+                return new ZipArchiveInputStream(in, "UTF-8", true, true);
+            }
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+                return new TarArchiveInputStream(new GzipCompressorInputStream(in));
+            }
+            return new TarArchiveInputStream(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static boolean isRegularFile(ArchiveEntry entry) {
+        if (entry instanceof TarArchiveEntry) {
+            TarArchiveEntry tarEntry = (TarArchiveEntry) entry;
+            // isFile() is also true for links and devices, which only differ by their type flag
+            return tarEntry.isFile() && !tarEntry.isSymbolicLink() && !tarEntry.isLink()
+                    && !tarEntry.isCharacterDevice() && !tarEntry.isBlockDevice() && !tarEntry.isFIFO();
+        }
+        if (entry instanceof ZipArchiveEntry) {
+            return !((ZipArchiveEntry) entry).isUnixSymlink();
+        }
+        return false;
+    }
+
+    /**
+     * Swaps an older site's content entry by entry; not atomic, but the site keeps serving
+     */
+    private static void replaceContents(Path siteTree, Path htmlDir) throws IOException {
+        List<Path> incoming;
+        try (Stream<Path> files = Files.list(siteTree)) {
+            incoming = files.collect(Collectors.toList());
+        }
+        for (Path child : incoming) {
+            Path target = htmlDir.resolve(child.getFileName().toString());
+            if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+                UserDockerService.deleteDirectory(target.toFile());
+            }
+            move(child, target);
+        }
+
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(htmlDir)) {
+            existing = files.collect(Collectors.toList());
+        }
+        for (Path old : existing) {
+            if (incoming.stream().noneMatch(c -> c.getFileName().equals(old.getFileName()))) {
+                if (Files.isDirectory(old, LinkOption.NOFOLLOW_LINKS)) {
+                    UserDockerService.deleteDirectory(old.toFile());
+                } else {
+                    Files.deleteIfExists(old);
+                }
+            }
+        }
+        Files.delete(siteTree);
+    }
+
+    private static boolean isEmpty(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.findAny().isEmpty();
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String uploadType(String filename) {
+        if (filename == null) {
+            return null;
+        }
+        String lower = filename.toLowerCase(Locale.ROOT);
+        for (String type : UPLOAD_TYPES) {
+            if (lower.endsWith(type)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * A way of serving a user's site. The backend that created a site is stored on
+ * its record (UserContainer.hostingBackend) and handles every later operation on it.
+ */
+public interface SiteHostingBackend {
+
+    /**
+     * Name stored on UserContainer.hostingBackend
+     */
+    String getName();
+
+    /**
+     * Makes the site reachable, reporting "starting" to the listener before it goes live.
+     * The prepared site tree (see SiteContentService) is moved into the site.
+     */
+    UserDockerService.ContainerCreationResult createSite(String userEmail, Path siteTree,
+                                                         Consumer<String> stageListener) throws IOException;
+
+    void restartSite(UserContainer site);
+
+    /**
+     * Replaces a live site's content with a prepared site tree, keeping its address and container
+     *
+     * @throws UnsupportedOperationException when the site can only be changed by redeploying it
+     */
+    void updateSite(UserContainer site, Path siteTree) throws IOException;
+
+    /**
+     * Stops serving the site and removes everything it used. Safe to repeat: parts that
+     * are already gone are skipped.
+     *
+     * @throws IOException when something could not be removed, so the teardown can be retried
+     */
+    void removeSite(UserContainer site) throws IOException;
+}
@@ -0,0 +1,723 @@
+package com.authapi.webhostingservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small non-blocking HTTP/1.1 server for static sites hosted inside the JVM.
+ *
+ * One selector thread serves every connection. Sites are routed by Host header,
+ * or by a /sites/{hostname}/ path prefix when DNS does not point at us. Small
+ * files are kept in an LRU cache of direct buffers; larger ones are sent with
+ * FileChannel.transferTo so their bytes never enter the heap.
+ *
+ * The selector thread never touches the filesystem: once a request's headers are
+ * in, resolving and opening the file runs on a small worker pool and the response
+ * is handed back to the selector to write. A connection must deliver its request
+ * headers within request-timeout-ms and a response must keep making progress, or
+ * the connection is closed; past max-connections no new connections are accepted
+ * until others close, so slow clients or a slow disk cannot stall every site.
+ */
+@Component
+public class StaticSiteServer {
+
+    private static final int MAX_REQUEST_HEADER_BYTES = 8192;
+    private static final String PATH_ROUTE_PREFIX = "/sites/";
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=utf-8"),
+            Map.entry("htm", "text/html; charset=utf-8"),
+            Map.entry("css", "text/css; charset=utf-8"),
+            Map.entry("js", "application/javascript; charset=utf-8"),
+            Map.entry("json", "application/json"),
+            Map.entry("txt", "text/plain; charset=utf-8"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"));
+
+    private final Map<String, Path> sites = new ConcurrentHashMap<>();
+    private final FileCache fileCache;
+    private final Counter requests;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter timeouts;
+    private final AtomicInteger openConnections = new AtomicInteger();
+    // Requests handled by a worker, waiting for the selector thread to write the response
+    private final Queue<SelectionKey> handled = new ConcurrentLinkedQueue<>();
+
+    @Value("${hosting.in-jvm.enabled:true}")
+    private boolean enabled;
+
+    @Value("${hosting.in-jvm.port:8060}")
+    private int port;
+
+    @Value("${hosting.in-jvm.cache.max-file-bytes:1048576}")
+    private long maxCachedFileBytes;
+
+    @Value("${hosting.in-jvm.request-timeout-ms:15000}")
+    private long requestTimeoutMillis;
+
+    @Value("${hosting.in-jvm.max-connections:10000}")
+    private int maxConnections;
+
+    private volatile boolean running = false;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private SelectionKey serverKey;
+    private Thread ioThread;
+    private final ThreadPoolExecutor fileWorkers;
+
+    public StaticSiteServer(MeterRegistry meterRegistry,
+                            @Value("${hosting.in-jvm.cache.max-bytes:67108864}") long maxCacheBytes,
+                            @Value("${hosting.in-jvm.file-threads:4}") int fileThreads,
+                            @Value("${hosting.in-jvm.file-queue-capacity:1000}") int fileQueueCapacity) {
+        this.fileCache = new FileCache(maxCacheBytes);
+        this.requests = meterRegistry.counter("hosting.injvm.requests");
+        this.cacheHits = meterRegistry.counter("hosting.injvm.cache.hits");
+        this.cacheMisses = meterRegistry.counter("hosting.injvm.cache.misses");
+        this.timeouts = meterRegistry.counter("hosting.injvm.timeouts");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fileWorkers = new ThreadPoolExecutor(
+                fileThreads, fileThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fileQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "static-site-file-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("hosting.injvm.connections", openConnections, AtomicInteger::get)
+                .description("Open connections to the in-JVM static site server")
+                .register(meterRegistry);
+        Gauge.builder("hosting.injvm.cache.bytes", fileCache, FileCache::getTotalBytes)
+                .description("Bytes held by the in-JVM hot file cache")
+                .register(meterRegistry);
+        Gauge.builder("hosting.injvm.sites", sites, Map::size)
+                .description("Sites served by the in-JVM engine")
+                .register(meterRegistry);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void registerSite(String hostname, Path root) {
+        sites.put(hostname.toLowerCase(Locale.ROOT), root.toAbsolutePath().normalize());
+    }
+
+    public void unregisterSite(String hostname) {
+        Path root = sites.remove(hostname.toLowerCase(Locale.ROOT));
+        if (root != null) {
+            fileCache.invalidateUnder(root);
+        }
+    }
+
+    /**
+     * Drops cached files of a site whose content changed
+     */
+    public void invalidateSite(String hostname) {
+        Path root = sites.get(hostname.toLowerCase(Locale.ROOT));
+        if (root != null) {
+            fileCache.invalidateUnder(root);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() throws IOException {
+        if (!enabled || running) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        serverKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        ioThread = new Thread(this::eventLoop, "static-site-server");
+        ioThread.setDaemon(true);
+        ioThread.start();
+        System.out.println("In-JVM static site server listening on port " + port);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        fileWorkers.shutdownNow();
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    private void eventLoop() {
+        // Deadlines are checked about every second; a client may overstay by that much
+        long sweepIntervalMillis = Math.max(1, Math.min(1000, requestTimeoutMillis));
+        long nextSweep = System.nanoTime();
+        while (running) {
+            try {
+                selector.select(sweepIntervalMillis);
+                SelectionKey done;
+                while ((done = handled.poll()) != null) {
+                    finishHandling(done);
+                }
+                if (System.nanoTime() - nextSweep >= 0) {
+                    closeExpired();
+                    nextSweep = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sweepIntervalMillis);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            read(key);
+                        } else if (key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        close(key);
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Static site server loop error: " + e.getMessage());
+            }
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                close(key);
+            }
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Error closing static site server: " + e.getMessage());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while (openConnections.get() < maxConnections && (channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            Connection connection = new Connection();
+            connection.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+            channel.register(selector, SelectionKey.OP_READ, connection);
+            openConnections.incrementAndGet();
+        }
+        if (openConnections.get() >= maxConnections) {
+            // Leave further connections in the listen backlog until some close
+            serverKey.interestOps(0);
+        }
+    }
+
+    /**
+     * Closes connections that did not send their request headers in time, or whose response stopped
+     * moving. Connections whose request is on a worker have no deadline until it comes back.
+     */
+    private void closeExpired() {
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection
+                    && !connection.handling && now - connection.deadline >= 0) {
+                timeouts.increment();
+                close(key);
+            }
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        // The deadline is not extended here: trickling header bytes must not keep a connection open
+        if (channel.read(connection.request) < 0) {
+            close(key);
+            return;
+        }
+        processRequest(key, connection);
+    }
+
+    /**
+     * Handles the buffered request if its headers are complete, then starts writing the response
+     */
+    private void processRequest(SelectionKey key, Connection connection) throws IOException {
+        int headerEnd = findHeaderEnd(connection.request);
+        if (headerEnd < 0) {
+            if (!connection.request.hasRemaining()) {
+                respondError(connection, 431, "Request Header Fields Too Large");
+                connection.keepAlive = false;
+                startWriting(key, connection);
+            }
+            return;
+        }
+
+        String head = new String(connection.request.array(), 0, headerEnd, StandardCharsets.ISO_8859_1);
+        // Keep pipelined bytes that follow this request's headers
+        int buffered = connection.request.position();
+        System.arraycopy(connection.request.array(), headerEnd, connection.request.array(), 0, buffered - headerEnd);
+        connection.request.position(buffered - headerEnd);
+
+        requests.increment();
+        // Nothing to read or write until a worker has prepared the response
+        key.interestOps(0);
+        connection.handling = true;
+        try {
+            fileWorkers.execute(() -> {
+                try {
+                    handle(connection, head);
+                } catch (IOException | RuntimeException e) {
+                    connection.failed = true;
+                }
+                handled.add(key);
+                selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            connection.handling = false;
+            connection.keepAlive = false;
+            respondError(connection, 503, "Service Unavailable");
+            startWriting(key, connection);
+        }
+    }
+
+    /**
+     * Back on the selector thread: starts writing the response a worker prepared
+     */
+    private void finishHandling(SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        connection.handling = false;
+        if (connection.closed) {
+            // Closed (server stopping) while the worker ran; release what it opened
+            connection.reset();
+            return;
+        }
+        if (!key.isValid() || connection.failed) {
+            close(key);
+            return;
+        }
+        try {
+            startWriting(key, connection);
+        } catch (IOException | RuntimeException e) {
+            close(key);
+        }
+    }
+
+    private void handle(Connection connection, String head) throws IOException {
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3) {
+            connection.keepAlive = false;
+            respondError(connection, 400, "Bad Request");
+            return;
+        }
+        String method = requestLine[0];
+        String target = requestLine[1];
+        String version = requestLine[2];
+
+        String host = null;
+        String connectionHeader = null;
+        boolean acceptsGzip = false;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            if (name.equals("host")) {
+                host = value;
+            } else if (name.equals("connection")) {
+                connectionHeader = value.toLowerCase(Locale.ROOT);
+            } else if (name.equals("accept-encoding")) {
+                acceptsGzip = acceptsGzip(value);
+            }
+        }
+        connection.keepAlive = "HTTP/1.1".equals(version)
+                ? !"close".equals(connectionHeader)
+                : "keep-alive".equals(connectionHeader);
+
+        boolean headOnly = method.equals("HEAD");
+        if (!headOnly && !method.equals("GET")) {
+            respondError(connection, 405, "Method Not Allowed");
+            return;
+        }
+
+        String path = target;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        try {
+            // '+' is literal in paths, only %-escapes are decoded
+            path = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            path = null;
+        }
+        if (path == null || !path.startsWith("/")) {
+            respondError(connection, 400, "Bad Request");
+            return;
+        }
+
+        Path root = null;
+        if (host != null) {
+            int portSeparator = host.lastIndexOf(':');
+            String hostname = portSeparator > 0 ? host.substring(0, portSeparator) : host;
+            root = sites.get(hostname.toLowerCase(Locale.ROOT));
+        }
+        if (root == null && path.startsWith(PATH_ROUTE_PREFIX)) {
+            int end = path.indexOf('/', PATH_ROUTE_PREFIX.length());
+            String hostname = end < 0 ? path.substring(PATH_ROUTE_PREFIX.length())
+                                      : path.substring(PATH_ROUTE_PREFIX.length(), end);
+            root = sites.get(hostname.toLowerCase(Locale.ROOT));
+            path = end < 0 ? "/" : path.substring(end);
+        }
+        if (root == null) {
+            respondError(connection, 404, "Not Found");
+            return;
+        }
+
+        Path file;
+        try {
+            file = root.resolve(path.substring(1)).normalize();
+        } catch (InvalidPathException e) {
+            file = null;
+        }
+        if (file == null || !file.startsWith(root)) {
+            respondError(connection, 404, "Not Found");
+            return;
+        }
+        if (Files.isDirectory(file)) {
+            file = file.resolve("index.html");
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            respondError(connection, 404, "Not Found");
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            respondError(connection, 404, "Not Found");
+            return;
+        }
+
+        // Serve the precompressed sibling written at upload time, like nginx gzip_static
+        String contentType = contentType(file);
+        String fileName = file.getFileName().toString();
+        Path compressed = file.resolveSibling(fileName + ".gz");
+        boolean hasCompressed = Files.isRegularFile(compressed);
+        String encoding = "";
+        if (hasCompressed && acceptsGzip) {
+            try {
+                attributes = Files.readAttributes(compressed, BasicFileAttributes.class);
+                file = compressed;
+                encoding = "Content-Encoding: gzip\r\n";
+            } catch (IOException e) {
+                // Fall back to the original
+            }
+        }
+
+        String header = "HTTP/1.1 200 OK\r\n" +
+                "Content-Type: " + contentType + "\r\n" +
+                "Content-Length: " + attributes.size() + "\r\n" +
+                encoding +
+                (hasCompressed ? "Vary: Accept-Encoding\r\n" : "") +
+                (AssetCompressor.isFingerprinted(fileName)
+                        ? "Cache-Control: " + AssetCompressor.IMMUTABLE_CACHE_CONTROL + "\r\n" : "") +
+                (connection.keepAlive ? "" : "Connection: close\r\n") +
+                "\r\n";
+        connection.header = ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1));
+        if (headOnly) {
+            return;
+        }
+
+        ByteBuffer cached = attributes.size() <= maxCachedFileBytes ? fileCache.get(file, attributes) : null;
+        if (cached != null) {
+            cacheHits.increment();
+            connection.body = cached;
+            return;
+        }
+        cacheMisses.increment();
+        if (attributes.size() <= maxCachedFileBytes) {
+            connection.body = fileCache.load(file, attributes);
+        } else {
+            // Zero-copy path for large files
+            connection.file = FileChannel.open(file, StandardOpenOption.READ);
+            connection.filePosition = 0;
+            connection.fileRemaining = attributes.size();
+        }
+    }
+
+    private void respondError(Connection connection, int status, String reason) {
+        byte[] body = (status + " " + reason + "\n").getBytes(StandardCharsets.UTF_8);
+        String header = "HTTP/1.1 " + status + " " + reason + "\r\n" +
+                "Content-Type: text/plain; charset=utf-8\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                (connection.keepAlive ? "" : "Connection: close\r\n") +
+                "\r\n";
+        connection.header = ByteBuffer.wrap(header.getBytes(StandardCharsets.ISO_8859_1));
+        connection.body = ByteBuffer.wrap(body);
+    }
+
+    private void startWriting(SelectionKey key, Connection connection) throws IOException {
+        connection.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+        key.interestOps(SelectionKey.OP_WRITE);
+        write(key);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        long progressDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+        if (connection.header != null) {
+            ByteBuffer[] buffers = connection.body != null
+                    ? new ByteBuffer[] { connection.header, connection.body }
+                    : new ByteBuffer[] { connection.header };
+            if (channel.write(buffers) > 0) {
+                connection.deadline = progressDeadline;
+            }
+            if (connection.header.hasRemaining() || (connection.body != null && connection.body.hasRemaining())) {
+                return;
+            }
+        }
+        while (connection.file != null && connection.fileRemaining > 0) {
+            long sent = connection.file.transferTo(connection.filePosition, connection.fileRemaining, channel);
+            if (sent <= 0) {
+                return;
+            }
+            connection.deadline = progressDeadline;
+            connection.filePosition += sent;
+            connection.fileRemaining -= sent;
+        }
+
+        boolean keepAlive = connection.keepAlive;
+        connection.reset();
+        if (!keepAlive) {
+            close(key);
+            return;
+        }
+        // The next request on this connection gets a fresh allowance
+        connection.deadline = progressDeadline;
+        key.interestOps(SelectionKey.OP_READ);
+        if (connection.request.position() > 0) {
+            processRequest(key, connection);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        Object attachment = key.attachment();
+        if (attachment instanceof Connection connection) {
+            if (connection.closed) {
+                return;
+            }
+            connection.closed = true;
+            // A worker may still be preparing its response; finishHandling releases it then
+            if (!connection.handling) {
+                connection.reset();
+            }
+            if (openConnections.decrementAndGet() < maxConnections && serverKey.isValid()) {
+                serverKey.interestOps(SelectionKey.OP_ACCEPT);
+            }
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Whether an Accept-Encoding value allows gzip (a q=0 entry rules it out)
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip") || parts[0].trim().equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim().replace(" ", "");
+                    if (param.equals("q=0") || param.matches("q=0\\.0*")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int findHeaderEnd(ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        for (int i = 3; i < buffer.position(); i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    /**
+     * Per-connection request buffer and pending response
+     */
+    private static class Connection {
+        private final ByteBuffer request = ByteBuffer.allocate(MAX_REQUEST_HEADER_BYTES);
+        private boolean keepAlive;
+        private ByteBuffer header;
+        private ByteBuffer body;
+        private FileChannel file;
+        private long filePosition;
+        private long fileRemaining;
+        // System.nanoTime() by which the request must be in, or the response must have moved
+        private long deadline;
+        // Set while a worker prepares the response; the hand-off queue publishes the worker's writes
+        private volatile boolean handling;
+        private boolean failed;
+        private boolean closed;
+
+        void reset() {
+            header = null;
+            body = null;
+            failed = false;
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+                file = null;
+            }
+        }
+    }
+
+    /**
+     * LRU cache of small files held in direct buffers, validated against size and modification time
+     */
+    private static class FileCache {
+        private final long maxBytes;
+        private long totalBytes = 0;
+        private final LinkedHashMap<Path, CachedFile> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+        FileCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized long getTotalBytes() {
+            return totalBytes;
+        }
+
+        synchronized ByteBuffer get(Path file, BasicFileAttributes attributes) {
+            CachedFile cached = entries.get(file);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.size != attributes.size() || cached.lastModified != attributes.lastModifiedTime().toMillis()) {
+                remove(file);
+                return null;
+            }
+            return cached.content.duplicate();
+        }
+
+        ByteBuffer load(Path file, BasicFileAttributes attributes) throws IOException {
+            ByteBuffer content = ByteBuffer.allocateDirect((int) attributes.size());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (content.hasRemaining() && channel.read(content) >= 0) {
+                    // keep reading until the buffer is full
+                }
+            }
+            content.flip();
+
+            synchronized (this) {
+                remove(file);
+                entries.put(file, new CachedFile(content, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                totalBytes += attributes.size();
+                Iterator<Map.Entry<Path, CachedFile>> eldest = entries.entrySet().iterator();
+                while (totalBytes > maxBytes && eldest.hasNext()) {
+                    totalBytes -= eldest.next().getValue().size;
+                    eldest.remove();
+                }
+            }
+            return content.duplicate();
+        }
+
+        synchronized void invalidateUnder(Path root) {
+            Iterator<Map.Entry<Path, CachedFile>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Path, CachedFile> entry = it.next();
+                if (entry.getKey().startsWith(root)) {
+                    totalBytes -= entry.getValue().size;
+                    it.remove();
+                }
+            }
+        }
+
+        private void remove(Path file) {
+            CachedFile removed = entries.remove(file);
+            if (removed != null) {
+                totalBytes -= removed.size;
+            }
+        }
+    }
+
+    private static class CachedFile {
+        private final ByteBuffer content;
+        private final long size;
+        private final long lastModified;
+
+        CachedFile(ByteBuffer content, long size, long lastModified) {
+            this.content = content;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
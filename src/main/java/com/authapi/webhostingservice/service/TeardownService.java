@@ -0,0 +1,158 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.repository.UserContainerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes deleted sites off the request thread.
+ *
+ * A deleted site's record is marked "deleting" and handed to a bounded pool that
+ * removes the container, image and directory through the site's backend, then the
+ * record. Removal is idempotent, so a failed attempt is simply retried by the
+ * periodic sweep, and records still marked "deleting" after a restart are picked up
+ * again. A site that keeps failing is left marked with the error after max-attempts.
+ */
+@Service
+public class TeardownService {
+
+    private final UserContainerRepository userContainerRepository;
+    private final HostingBackendRegistry backendRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Timer teardownTimer;
+    private final Counter failures;
+    // Record ids queued or running, so the sweep never submits a site twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    @Value("${hosting.teardown.max-attempts:5}")
+    private int maxAttempts;
+
+    public TeardownService(UserContainerRepository userContainerRepository,
+                           HostingBackendRegistry backendRegistry,
+                           MeterRegistry meterRegistry,
+                           @Value("${hosting.teardown.workers:2}") int workers,
+                           @Value("${hosting.teardown.queue-capacity:500}") int queueCapacity) {
+        this.userContainerRepository = userContainerRepository;
+        this.backendRegistry = backendRegistry;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "teardown-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.teardownTimer = meterRegistry.timer("hosting.teardown.duration");
+        this.failures = meterRegistry.counter("hosting.teardown.failures");
+        Gauge.builder("hosting.teardown.queue.depth", executor, e -> e.getQueue().size())
+                .description("Site teardowns waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("hosting.teardown.pending", inFlight, Set::size)
+                .description("Site teardowns queued or running")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the teardown of a site already marked "deleting". When the queue is full
+     * the site stays marked and the next sweep submits it.
+     */
+    public void submit(UserContainer site) {
+        if (!enqueue(site)) {
+            System.err.println("Teardown queue full, " + site.getContainerName() + " will be retried");
+        }
+    }
+
+    private boolean enqueue(UserContainer site) {
+        if (!inFlight.add(site.getId())) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    run(site);
+                } finally {
+                    inFlight.remove(site.getId());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(site.getId());
+            return false;
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private void run(UserContainer site) {
+        long start = System.nanoTime();
+        try {
+            backendRegistry.forSite(site).removeSite(site);
+            userContainerRepository.delete(site);
+            attempts.remove(site.getId());
+            teardownTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            failures.increment();
+            int attempt = attempts.merge(site.getId(), 1, Integer::sum);
+            System.err.println("Teardown of " + site.getContainerName() + " failed (attempt " + attempt + "/"
+                    + maxAttempts + "): " + e.getMessage());
+            site.setErrorMessage("Deletion failed: " + e.getMessage());
+            site.setUpdatedAt(LocalDateTime.now());
+            userContainerRepository.save(site);
+        }
+    }
+
+    /**
+     * Resubmits sites still marked "deleting": failed attempts, overflow, and teardowns
+     * interrupted by a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${hosting.teardown.retry-interval-ms:30000}",
+               initialDelayString = "${hosting.teardown.retry-interval-ms:30000}")
+    public void resumePending() {
+        List<UserContainer> pending;
+        try {
+            pending = userContainerRepository.findByStatusIn(List.of(UserContainer.STATUS_DELETING));
+        } catch (Exception e) {
+            System.err.println("Teardown sweep skipped: " + e.getMessage());
+            return;
+        }
+        for (UserContainer site : pending) {
+            // Stop at a full queue, the rest waits for the next sweep
+            if (attempts.getOrDefault(site.getId(), 0) < maxAttempts && !enqueue(site)) {
+                break;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
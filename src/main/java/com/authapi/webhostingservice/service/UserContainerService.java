@@ -2,55 +2,175 @@ package com.authapi.webhostingservice.service;
 
 import com.authapi.webhostingservice.model.UserContainer;
 import com.authapi.webhostingservice.repository.UserContainerRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class UserContainerService {
 
     private final UserContainerRepository userContainerRepository;
-    private final UserDockerService userDockerService;  // CHANGED
+    private final HostingBackendRegistry backendRegistry;
+    private final ProvisioningService provisioningService;
+    private final PortAllocator portAllocator;
+    private final ContainerStateCache containerStateCache;
+    private final SiteContentService siteContentService;
+    private final AdmissionController admissionController;
+    private final HibernationService hibernationService;
+    private final TeardownService teardownService;
+    private final DockerHostRegistry dockerHosts;
+
+    // Address users reach port-based sites on
+    @Value("${hosting.public-host:192.168.1.81}")
+    private String publicHost;
 
     public UserContainerService(UserContainerRepository userContainerRepository, 
-                               UserDockerService userDockerService) {  // CHANGED
+                               HostingBackendRegistry backendRegistry,
+                               ProvisioningService provisioningService,
+                               PortAllocator portAllocator,
+                               ContainerStateCache containerStateCache,
+                               SiteContentService siteContentService,
+                               AdmissionController admissionController,
+                               HibernationService hibernationService,
+                               TeardownService teardownService,
+                               DockerHostRegistry dockerHosts) {
         this.userContainerRepository = userContainerRepository;
-        this.userDockerService = userDockerService;  // CHANGED
+        this.backendRegistry = backendRegistry;
+        this.provisioningService = provisioningService;
+        this.portAllocator = portAllocator;
+        this.containerStateCache = containerStateCache;
+        this.siteContentService = siteContentService;
+        this.admissionController = admissionController;
+        this.hibernationService = hibernationService;
+        this.teardownService = teardownService;
+        this.dockerHosts = dockerHosts;
     }
 
+    /**
+     * A failed provisioning job does not count as an active container
+     */
     public boolean hasActiveContainer(String userEmail) {
-        return userContainerRepository.existsByUserEmail(userEmail);
+        return userContainerRepository.findByUserEmail(userEmail)
+                .filter(c -> !UserContainer.STATUS_FAILED.equals(c.getStatus()))
+                .isPresent();
     }
 
     public Optional<UserContainer> getUserContainer(String userEmail) {
         return userContainerRepository.findByUserEmail(userEmail);
     }
 
-    public UserContainer createContainer(String userEmail, String htmlContent) throws IOException {
-        // Check if user already has a container
-        if (hasActiveContainer(userEmail)) {
-            throw new IllegalStateException("User already has an active container");
+    public Set<String> getBackendNames() {
+        return backendRegistry.getBackendNames();
+    }
+
+    public Optional<UserContainer> getProvisioningJob(String jobId) {
+        return userContainerRepository.findById(jobId);
+    }
+
+    public UserContainer createContainer(String userEmail, Path content) {
+        return createContainer(userEmail, content, null);
+    }
+
+    /**
+     * Records a queued provisioning job and hands it to the provisioning pool.
+     * The returned record's id is the job id to poll.
+     *
+     * @param content staged upload (see SiteContentService), deleted if the job is not queued
+     * @param backend hosting backend name, null for the configured default
+     */
+    public UserContainer createContainer(String userEmail, Path content, String backend) {
+        try {
+            return queueProvisioning(userEmail, content, backend);
+        } catch (RuntimeException e) {
+            siteContentService.discard(content);
+            throw e;
+        }
+    }
+
+    private UserContainer queueProvisioning(String userEmail, Path content, String backend) {
+        // Check if user already has a container; a failed attempt is replaced
+        Optional<UserContainer> existing = userContainerRepository.findByUserEmail(userEmail);
+        if (existing.isPresent()) {
+            if (UserContainer.STATUS_DELETING.equals(existing.get().getStatus())) {
+                throw new IllegalStateException("The previous site is still being deleted, please try again shortly");
+            }
+            if (!UserContainer.STATUS_FAILED.equals(existing.get().getStatus())) {
+                throw new IllegalStateException("User already has an active container");
+            }
+            userContainerRepository.delete(existing.get());
         }
 
-        // Create Docker container using new service
-        UserDockerService.ContainerCreationResult result = 
-            userDockerService.createUserContainer(userEmail, htmlContent);
+        if (backend == null) {
+            backend = backendRegistry.getDefaultBackend();
+        }
+        backendRegistry.get(backend);
+        boolean dedicatedContainer = UserContainer.BACKEND_CONTAINER.equals(backend);
+        if (dedicatedContainer) {
+            if (portAllocator.getFreeCount() == 0) {
+                throw new PortAllocator.PortRangeExhaustedException("No available ports for new containers");
+            }
+            admissionController.admit();
+        }
+
+        UserContainer job = new UserContainer(userEmail, null, null, 0, UserContainer.STATUS_QUEUED);
+        job.setHostingBackend(backend);
+        try {
+            job = userContainerRepository.save(job);
+            provisioningService.submit(job, content);
+        } catch (RuntimeException e) {
+            if (job.getId() != null) {
+                userContainerRepository.delete(job);
+            }
+            if (dedicatedContainer) {
+                admissionController.release();
+            }
+            throw e;
+        }
+        return job;
+    }
 
-        // Save to MongoDB
-        UserContainer userContainer = new UserContainer(
-                userEmail,
-                result.getContainerId(),
-                result.getContainerName(),
-                result.getPort(),
-                result.getStatus()
-        );
+    /**
+     * Replaces the content of a user's running site in place: same port, container and record
+     *
+     * @param content staged upload (see SiteContentService), always consumed
+     * @return time taken to publish the new content, in milliseconds
+     */
+    public long updateContent(String userEmail, Path content) throws IOException {
+        Path siteTree = null;
+        try {
+            UserContainer container = userContainerRepository.findByUserEmail(userEmail)
+                    .orElseThrow(() -> new IllegalStateException("No container found for user"));
+            // A hibernated site's files can be replaced too, they are served once it wakes up
+            boolean serving = UserContainer.STATUS_RUNNING.equals(container.getStatus())
+                    || UserContainer.STATUS_HIBERNATED.equals(container.getStatus());
+            if (!container.isProvisioned() || !serving) {
+                throw new IllegalStateException("Site is not running (status: " + container.getStatus() + ")");
+            }
 
-        return userContainerRepository.save(userContainer);
+            long start = System.nanoTime();
+            siteTree = siteContentService.prepare(content);
+            backendRegistry.forSite(container).updateSite(container, siteTree);
+
+            container.setUpdatedAt(LocalDateTime.now());
+            userContainerRepository.save(container);
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            siteContentService.discard(content);
+            siteContentService.discard(siteTree);
+        }
     }
 
+    /**
+     * Marks the user's site "deleting" and queues its teardown; returns without waiting for Docker.
+     * Deleting a site that is already being deleted does nothing.
+     */
     public void deleteContainer(String userEmail) {
         Optional<UserContainer> containerOpt = userContainerRepository.findByUserEmail(userEmail);
         
@@ -59,27 +179,57 @@ public class UserContainerService {
         }
 
         UserContainer container = containerOpt.get();
-        
-        // Stop and remove Docker container with cleanup
-        userDockerService.stopAndRemoveContainer(
-            container.getContainerId(), 
-            container.getContainerName()
-        );
-        
-        // Remove from MongoDB
-        userContainerRepository.delete(container);
+        if (UserContainer.STATUS_DELETING.equals(container.getStatus())) {
+            return;
+        }
+
+        // Failed jobs already gave their capacity back
+        if (UserContainer.BACKEND_CONTAINER.equals(container.getHostingBackend())
+                && !UserContainer.STATUS_FAILED.equals(container.getStatus())) {
+            admissionController.release();
+        }
+
+        // Nothing to tear down yet (a job still provisioning cleans up after itself)
+        if (!container.isProvisioned()) {
+            userContainerRepository.delete(container);
+            return;
+        }
+
+        hibernationService.release(container);
+        container.setStatus(UserContainer.STATUS_DELETING);
+        container.setErrorMessage(null);
+        container.setUpdatedAt(LocalDateTime.now());
+        teardownService.submit(userContainerRepository.save(container));
     }
 
-    public void updateContainerStatus(String userEmail) {
-        Optional<UserContainer> containerOpt = userContainerRepository.findByUserEmail(userEmail);
-        
-        if (containerOpt.isPresent()) {
-            UserContainer container = containerOpt.get();
-            String status = userDockerService.getContainerStatus(container.getContainerId());
-            container.setStatus(status);
-            container.setUpdatedAt(LocalDateTime.now());
-            userContainerRepository.save(container);
+    /**
+     * Public URL of a site: host-based for virtual hosts, port-based otherwise
+     */
+    public String getSiteUrl(UserContainer container) {
+        String host = container.getHostname();
+        if (host == null) {
+            host = dockerHosts.getPublicAddress(container.getDockerHost());
+        }
+        if (host == null) {
+            host = publicHost;
         }
+        return "http://" + host + (container.getPort() == 80 ? "" : ":" + container.getPort());
+    }
+
+    /**
+     * Live status of a user's container, served from the event-fed state cache
+     */
+    public String getCurrentStatus(UserContainer container) {
+        if (container.getContainerId() == null || UserContainer.STATUS_DELETING.equals(container.getStatus())) {
+            // Still provisioning, failed, being deleted, or served in-JVM: the record is the source of truth
+            return container.getStatus();
+        }
+        String status = containerStateCache.getStatus(container.getContainerId());
+        if (UserContainer.STATUS_HIBERNATED.equals(container.getStatus()) && !UserContainer.STATUS_RUNNING.equals(status)) {
+            // Stopped on purpose, the next request starts it
+            return UserContainer.STATUS_HIBERNATED;
+        }
+        return status;
     }
 
     public void restartContainer(String userEmail) {
@@ -90,7 +240,14 @@ public class UserContainerService {
         }
 
         UserContainer container = containerOpt.get();
-        userDockerService.restartContainer(container.getContainerId());
+        if (UserContainer.STATUS_DELETING.equals(container.getStatus())) {
+            throw new IllegalStateException("Site is being deleted");
+        }
+        if (!container.isProvisioned()) {
+            throw new IllegalStateException("Site is not provisioned (" + container.getStatus() + ")");
+        }
+        hibernationService.release(container);
+        backendRegistry.forSite(container).restartSite(container);
         
         // Update status
         container.setStatus("running");
@@ -1,12 +1,15 @@
 package com.authapi.webhostingservice.service;
 
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.command.CreateContainerResponse;
-import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
-import com.github.dockerjava.transport.DockerHttpClient;
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
@@ -14,34 +17,66 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Duration;
-import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Random;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Service
-public class UserDockerService {
+public class UserDockerService implements SiteHostingBackend {
 
-    private final DockerClient dockerClient;
-    private static final String BASE_HTML_DIR = "/tmp/user-websites";
+    private final DockerHostRegistry dockerHosts;
+    private final DockerPlacement placement;
+    private final PortAllocator portAllocator;
+    private final SiteContentService siteContentService;
+    private final AdmissionController admissionController;
+    static final String BASE_HTML_DIR = "/tmp/user-websites";
+    private static final String NGINX_HTML_DIR = "/usr/share/nginx/html";
+    private static final String NGINX_CONFIG_FILE = "/etc/nginx/conf.d/default.conf";
+    static final String WARM_CONTAINER_PREFIX = "warm-";
 
-    public UserDockerService() {
-        // Initialize Docker client
-        DefaultDockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder()
-                .withDockerHost("unix:///var/run/docker.sock")
-                .build();
+    /**
+     * "shared-image" runs every site on one pinned nginx image with the site directory
+     * bind-mounted read-only; "image-build" builds a dedicated image per user (legacy).
+     */
+    @Value("${hosting.provisioning.mode:shared-image}")
+    private String provisioningMode;
+
+    @Value("${hosting.nginx.image:nginx:1.27-alpine}")
+    private String nginxImage;
 
-        DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
-                .dockerHost(config.getDockerHost())
-                .sslConfig(config.getSSLConfig())
-                .maxConnections(100)
-                .connectionTimeout(Duration.ofSeconds(30))
-                .responseTimeout(Duration.ofSeconds(45))
-                .build();
+    // Path of BASE_HTML_DIR as seen by the Docker daemon (differs when we run inside a container)
+    @Value("${hosting.sites.host-dir:" + BASE_HTML_DIR + "}")
+    private String hostSitesDir;
 
-        this.dockerClient = DockerClientBuilder.getInstance(config)
-                .withDockerHttpClient(httpClient)
-                .build();
+    // Hosts known to have the shared nginx image
+    private final Set<String> nginxImagePresent = ConcurrentHashMap.newKeySet();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter warmPoolHits;
+    private final Counter warmPoolMisses;
+    private final Queue<WarmContainer> warmPool = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean refilling = new AtomicBoolean(false);
+
+    public UserDockerService(DockerHostRegistry dockerHosts, DockerPlacement placement, PortAllocator portAllocator,
+                             SiteContentService siteContentService, AdmissionController admissionController,
+                             MeterRegistry meterRegistry) {
+        this.dockerHosts = dockerHosts;
+        this.placement = placement;
+        this.portAllocator = portAllocator;
+        this.siteContentService = siteContentService;
+        this.admissionController = admissionController;
+        this.meterRegistry = meterRegistry;
+        this.warmPoolHits = meterRegistry.counter("hosting.warmpool.hits");
+        this.warmPoolMisses = meterRegistry.counter("hosting.warmpool.misses");
+        Gauge.builder("hosting.warmpool.size", warmPool, Queue::size)
+                .description("Idle pre-started containers ready to be claimed")
+                .register(meterRegistry);
 
         // Create base directory for user websites
         File baseDir = new File(BASE_HTML_DIR);
@@ -50,94 +85,395 @@ public class UserDockerService {
         }
     }
 
+    @Override
+    public String getName() {
+        return UserContainer.BACKEND_CONTAINER;
+    }
+
+    @Override
+    public ContainerCreationResult createSite(String userEmail, Path content,
+                                              Consumer<String> stageListener) throws IOException {
+        return createUserContainer(userEmail, content, stageListener);
+    }
+
+    @Override
+    public void restartSite(UserContainer site) {
+        restartContainer(site.getDockerHost(), site.getContainerId());
+    }
+
+    /**
+     * Publishes new content into the mounted site directory; the container keeps running untouched
+     */
+    @Override
+    public void updateSite(UserContainer site, Path siteTree) throws IOException {
+        boolean mounted = dockerHosts.runtimeFor(site).inspect(site.getContainerId())
+                .getMountDestinations().contains(NGINX_HTML_DIR);
+        if (!mounted) {
+            throw new UnsupportedOperationException("Site content is built into its image, redeploy it instead");
+        }
+        siteContentService.install(siteTree, Paths.get(BASE_HTML_DIR, site.getSiteDirectory(), "html"));
+    }
+
     /**
-     * Creates a new container for a user with their HTML content
+     * Force-removes the container (no graceful stop, the site is going away), its per-user image
+     * and its directory. Parts already removed by an earlier attempt are skipped.
+     *
+     * The port and the host's placement slot are released only by the attempt that actually
+     * removed the container: on a retry they may already belong to a newer site. If a release
+     * is missed (crash right after removal), the periodic port and placement recounts fix it.
      */
-    public ContainerCreationResult createUserContainer(String userEmail, String htmlContent) throws IOException {
+    @Override
+    public void removeSite(UserContainer site) throws IOException {
+        ContainerRuntime runtime = dockerHosts.runtimeFor(site);
+        String containerId = site.getContainerId();
+        boolean removed;
+        try {
+            runtime.remove(containerId, true);
+            removed = true;
+            System.out.println("Container removed: " + containerId);
+        } catch (ContainerRuntime.NotFoundException e) {
+            // Already removed, and released, by an earlier attempt
+            removed = false;
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to remove container " + containerId + ": " + e.getMessage(), e);
+        }
+        if (removed) {
+            portAllocator.release(site.getPort());
+            placement.release(site.getDockerHost());
+        }
+
+        // Only sites created in image-build mode have their own image
+        String imageName = site.getContainerName() + ":latest";
+        try {
+            runtime.removeImage(imageName, true);
+            System.out.println("Image removed: " + imageName);
+        } catch (ContainerRuntime.NotFoundException e) {
+            // Shared-image site or already removed
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to remove image " + imageName + ": " + e.getMessage(), e);
+        }
+
+        siteContentService.deleteSite(site.getSiteDirectory());
+    }
+
+    /**
+     * Creates a new container for a user with their staged HTML content
+     */
+    public ContainerCreationResult createUserContainer(String userEmail, Path content) throws IOException {
+        return createUserContainer(userEmail, content, stage -> { });
+    }
+
+    /**
+     * Creates a new container on the host chosen by DockerPlacement, reporting "starting" to the
+     * listener once the image is ready. In shared-image mode a pre-started warm container on
+     * that host is claimed when one is available.
+     */
+    public ContainerCreationResult createUserContainer(String userEmail, Path content,
+                                                       Consumer<String> stageListener) throws IOException {
+        String host = placement.place(userEmail);
+        try {
+            return createUserContainer(host, userEmail, content, stageListener);
+        } catch (IOException | RuntimeException e) {
+            placement.release(host);
+            throw e;
+        }
+    }
+
+    private ContainerCreationResult createUserContainer(String host, String userEmail, Path content,
+                                                        Consumer<String> stageListener) throws IOException {
+        ContainerRuntime runtime = dockerHosts.runtime(host);
         // Generate unique container name based on email
-        String sanitizedEmail = userEmail.split("@")[0].replaceAll("[^a-zA-Z0-9]", "");
-        String containerName = "user-" + sanitizedEmail + "-" + System.currentTimeMillis();
-        
-        // Create directory for user's website
-        String userDir = BASE_HTML_DIR + "/" + containerName;
-        File userDirFile = new File(userDir);
-        userDirFile.mkdirs();
+        String containerName = "user-" + sanitizeEmail(userEmail) + "-" + System.currentTimeMillis();
+
+        long claimStart = System.nanoTime();
+        if (isSharedImageMode()) {
+            ContainerCreationResult claimed = claimWarmContainer(host, containerName, content);
+            if (claimed != null) {
+                stageListener.accept(UserContainer.STATUS_STARTING);
+                warmPoolHits.increment();
+                recordClaim("hit", claimStart);
+                return claimed;
+            }
+            warmPoolMisses.increment();
+        }
         
-        // Write HTML file
-        Path htmlPath = Paths.get(userDir, "index.html");
-        Files.writeString(htmlPath, htmlContent);
+        // Create directory for user's website: <dir>/html holds the content, <dir>/default.conf the nginx config
+        File userDirFile = new File(BASE_HTML_DIR + "/" + containerName);
+        writeSiteFiles(userDirFile.toPath(), content);
+
+        // Reserve a port, returned to the allocator if anything below fails
+        int port = portAllocator.allocate();
+        String imageName;
+        String containerId;
+        try {
+            if (isSharedImageMode()) {
+                // Reuse the pinned nginx image and mount the site read-only, no build needed
+                ensureNginxImagePresent(host);
+                imageName = nginxImage;
+                stageListener.accept(UserContainer.STATUS_STARTING);
+                containerId = createSharedImageContainer(runtime, containerName, containerName, port);
+            } else {
+                imageName = buildUserImage(runtime, containerName, userDirFile);
+                stageListener.accept(UserContainer.STATUS_STARTING);
+                containerId = runtime.create(admissionController.withLimits(
+                        new ContainerRuntime.ContainerSpec(imageName, containerName).withHostPort(port)));
+            }
+
+            // Start the container
+            runtime.start(containerId);
+        } catch (IOException | RuntimeException e) {
+            portAllocator.release(port);
+            throw e;
+        }
+        if (isSharedImageMode()) {
+            recordClaim("miss", claimStart);
+        }
+
+        return new ContainerCreationResult(
+                containerId,
+                containerName,
+                port,
+                UserContainer.STATUS_RUNNING,
+                imageName,
+                containerName,
+                null,
+                host
+        );
+    }
+
+    /**
+     * Writes the nginx config and, when given, moves the prepared site tree into a site directory
+     */
+    private void writeSiteFiles(Path siteDir, Path content) throws IOException {
+        Files.createDirectories(siteDir.resolve("html"));
+        if (content != null) {
+            siteContentService.install(content, siteDir.resolve("html"));
+        }
 
         // Create nginx config for better performance (optional)
         String nginxConfig = "server {\n" +
                 "    listen 80;\n" +
-                "    root /usr/share/nginx/html;\n" +
+                "    root " + NGINX_HTML_DIR + "/" + SiteContentService.CURRENT_LINK + ";\n" +
                 "    index index.html;\n" +
+                AssetCompressor.NGINX_DIRECTIVES +
                 "    location / {\n" +
                 "        try_files $uri $uri/ =404;\n" +
                 "    }\n" +
                 "}";
-        Path nginxConfigPath = Paths.get(userDir, "default.conf");
-        Files.writeString(nginxConfigPath, nginxConfig);
+        Files.writeString(siteDir.resolve("default.conf"), nginxConfig);
+    }
 
-        // Create Dockerfile
-        String dockerfile = "FROM nginx:alpine\n" +
-                           "COPY index.html /usr/share/nginx/html/index.html\n" +
-                           "COPY default.conf /etc/nginx/conf.d/default.conf\n" +
+    /**
+     * Creates (without starting) an nginx container on the shared image with the site directory mounted read-only
+     */
+    private String createSharedImageContainer(ContainerRuntime runtime, String containerName,
+                                              String siteDirectory, int port) {
+        String hostUserDir = hostSitesDir + "/" + siteDirectory;
+        return runtime.create(admissionController.withLimits(new ContainerRuntime.ContainerSpec(nginxImage, containerName)
+                .withReadOnlyBind(hostUserDir + "/html", NGINX_HTML_DIR)
+                .withReadOnlyBind(hostUserDir + "/default.conf", NGINX_CONFIG_FILE)
+                .withHostPort(port)));
+    }
+
+    /**
+     * Takes a warm container from the pool, fills it with the user's content and renames it.
+     * Returns null when the pool is empty or the claimed container could not be used.
+     */
+    private ContainerCreationResult claimWarmContainer(String host, String containerName, Path content) {
+        WarmContainer warm;
+        while ((warm = pollWarmContainer(host)) != null) {
+            try {
+                // Rename first so a failure leaves the staged content in place for the next attempt
+                dockerHosts.runtime(host).rename(warm.containerId, containerName);
+                // The html directory is bind-mounted, nginx serves the new file immediately
+                siteContentService.install(content, Paths.get(BASE_HTML_DIR, warm.siteDirectory, "html"));
+                return new ContainerCreationResult(
+                        warm.containerId,
+                        containerName,
+                        warm.port,
+                        UserContainer.STATUS_RUNNING,
+                        nginxImage,
+                        warm.siteDirectory,
+                        null,
+                        host
+                );
+            } catch (Exception e) {
+                System.err.println("Discarding warm container " + warm.containerId + ": " + e.getMessage());
+                stopAndRemoveContainer(host, warm.containerId, warm.siteDirectory, warm.siteDirectory, warm.port);
+            }
+        }
+        return null;
+    }
+
+    private WarmContainer pollWarmContainer(String host) {
+        for (WarmContainer warm : warmPool) {
+            // remove() succeeds for exactly one concurrent claimer
+            if (warm.host.equals(host) && warmPool.remove(warm)) {
+                return warm;
+            }
+        }
+        return null;
+    }
+
+    private void recordClaim(String outcome, long startNanos) {
+        Timer.builder("hosting.warmpool.claim")
+                .description("Time to hand a running container to a new site")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Keeps the warm pool of every Docker host at its target size and drops pooled containers that stopped running
+     */
+    @Scheduled(fixedDelayString = "${hosting.warm-pool.refill-interval-ms:5000}",
+               initialDelayString = "${hosting.warm-pool.refill-interval-ms:5000}")
+    public void refillWarmPool() {
+        // Zero in image-build mode; admission reserves exactly this much per host
+        int warmPoolSize = admissionController.getWarmPoolSize();
+        if (warmPoolSize <= 0) {
+            return;
+        }
+        if (!refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (WarmContainer warm : warmPool) {
+                if (!"running".equals(getContainerStatus(warm.host, warm.containerId)) && warmPool.remove(warm)) {
+                    stopAndRemoveContainer(warm.host, warm.containerId, warm.siteDirectory, warm.siteDirectory, warm.port);
+                }
+            }
+            for (String host : dockerHosts.getHostNames()) {
+                try {
+                    while (warmPool.stream().filter(warm -> warm.host.equals(host)).count() < warmPoolSize) {
+                        warmPool.add(startWarmContainer(host));
+                    }
+                } catch (Exception e) {
+                    System.err.println("Warm pool refill failed on " + host + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private WarmContainer startWarmContainer(String host) throws IOException {
+        ContainerRuntime runtime = dockerHosts.runtime(host);
+        ensureNginxImagePresent(host);
+        String name = WARM_CONTAINER_PREFIX + UUID.randomUUID().toString().substring(0, 8);
+        writeSiteFiles(Paths.get(BASE_HTML_DIR, name), null);
+
+        int port = portAllocator.allocate();
+        try {
+            String containerId = createSharedImageContainer(runtime, name, name, port);
+            runtime.start(containerId);
+            return new WarmContainer(host, containerId, name, port);
+        } catch (RuntimeException e) {
+            portAllocator.release(port);
+            deleteDirectory(new File(BASE_HTML_DIR, name));
+            throw e;
+        }
+    }
+
+    /**
+     * Warm containers left over from a previous run are not tracked anymore, remove them
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void removeStaleWarmContainers() {
+        for (String host : dockerHosts.getHostNames()) {
+            removeStaleWarmContainers(host);
+        }
+    }
+
+    private void removeStaleWarmContainers(String host) {
+        try {
+            for (ContainerRuntime.ContainerInfo container : dockerHosts.runtime(host).list(false)) {
+                String name = container.getName();
+                if (name != null && name.startsWith(WARM_CONTAINER_PREFIX)) {
+                    int port = container.getPublicPorts().isEmpty() ? 0 : container.getPublicPorts().get(0);
+                    stopAndRemoveContainer(host, container.getId(), name, name, port);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error removing stale warm containers on " + host + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void drainWarmPool() {
+        WarmContainer warm;
+        while ((warm = warmPool.poll()) != null) {
+            stopAndRemoveContainer(warm.host, warm.containerId, warm.siteDirectory, warm.siteDirectory, warm.port);
+        }
+    }
+
+    public int getWarmPoolSize() {
+        return warmPool.size();
+    }
+
+    /**
+     * Container ids and site directories of the idle warm containers, which have no record yet
+     */
+    public Set<String> getWarmPoolMembers() {
+        Set<String> members = new HashSet<>();
+        for (WarmContainer warm : warmPool) {
+            members.add(warm.containerId);
+            members.add(warm.siteDirectory);
+        }
+        return members;
+    }
+
+    /**
+     * Local part of an email reduced to characters safe in container, directory and host names
+     */
+    static String sanitizeEmail(String userEmail) {
+        return userEmail.split("@")[0].replaceAll("[^a-zA-Z0-9]", "");
+    }
+
+    private boolean isSharedImageMode() {
+        return !"image-build".equalsIgnoreCase(provisioningMode);
+    }
+
+    /**
+     * Builds a dedicated image containing the user's site (image-build mode)
+     */
+    private String buildUserImage(ContainerRuntime runtime, String containerName, File userDirFile) throws IOException {
+        String dockerfile = "FROM " + nginxImage + "\n" +
+                           "COPY html/ " + NGINX_HTML_DIR + "/\n" +
+                           "COPY default.conf " + NGINX_CONFIG_FILE + "\n" +
                            "EXPOSE 80";
-        Path dockerfilePath = Paths.get(userDir, "Dockerfile");
+        Path dockerfilePath = userDirFile.toPath().resolve("Dockerfile");
         Files.writeString(dockerfilePath, dockerfile);
 
-        // Find available port
-        int port = findAvailablePort();
-
-        // Build Docker image
         String imageName = containerName + ":latest";
-        try {
-            dockerClient.buildImageCmd()
-                    .withDockerfile(dockerfilePath.toFile())
-                    .withBaseDirectory(userDirFile)
-                    .withTags(new HashSet<>(Arrays.asList(imageName)))
-                    .start()
-                    .awaitCompletion();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Image build was interrupted", e);
-        }
-
-        // Create container with port binding
-        ExposedPort tcp80 = ExposedPort.tcp(80);
-        Ports portBindings = new Ports();
-        portBindings.bind(tcp80, Ports.Binding.bindPort(port));
-
-        CreateContainerResponse container = dockerClient.createContainerCmd(imageName)
-                .withName(containerName)
-                .withExposedPorts(tcp80)
-                .withHostConfig(HostConfig.newHostConfig()
-                        .withPortBindings(portBindings)
-                        .withRestartPolicy(RestartPolicy.unlessStoppedRestart()))
-                .exec();
-
-        // Start the container
-        dockerClient.startContainerCmd(container.getId()).exec();
+        runtime.buildImage(imageName, userDirFile, dockerfilePath.toFile());
+        return imageName;
+    }
 
-        return new ContainerCreationResult(
-                container.getId(),
-                containerName,
-                port,
-                "running",
-                imageName
-        );
+    /**
+     * Pulls the shared nginx image once if the default daemon does not have it yet
+     */
+    void ensureNginxImagePresent() throws IOException {
+        ensureNginxImagePresent(dockerHosts.getDefaultHost());
+    }
+
+    private synchronized void ensureNginxImagePresent(String host) throws IOException {
+        if (nginxImagePresent.contains(host)) {
+            return;
+        }
+        dockerHosts.runtime(host).ensureImage(nginxImage);
+        nginxImagePresent.add(host);
     }
 
     /**
      * Stops and removes a container completely
      */
-    public void stopAndRemoveContainer(String containerId, String containerName) {
+    public void stopAndRemoveContainer(String host, String containerId, String containerName, String siteDirectory, int port) {
+        ContainerRuntime runtime = dockerHosts.runtime(host);
         try {
             // Stop container (with 10 second timeout)
-            dockerClient.stopContainerCmd(containerId)
-                    .withTimeout(10)
-                    .exec();
+            runtime.stop(containerId, 10);
             
             System.out.println("Container stopped: " + containerId);
         } catch (Exception e) {
@@ -146,117 +482,73 @@ public class UserDockerService {
 
         try {
             // Remove container
-            dockerClient.removeContainerCmd(containerId)
-                    .withForce(true)
-                    .withRemoveVolumes(true)
-                    .exec();
+            runtime.remove(containerId, true);
             
             System.out.println("Container removed: " + containerId);
         } catch (Exception e) {
             System.err.println("Error removing container " + containerId + ": " + e.getMessage());
         }
+        portAllocator.release(port);
 
-        // Remove the image
+        // Remove the per-user image (only exists for sites created in image-build mode)
         try {
             String imageName = containerName + ":latest";
-            dockerClient.removeImageCmd(imageName)
-                    .withForce(true)
-                    .exec();
+            runtime.removeImage(imageName, true);
             
             System.out.println("Image removed: " + imageName);
+        } catch (ContainerRuntime.NotFoundException e) {
+            // Shared-image site, nothing to remove
         } catch (Exception e) {
             System.err.println("Error removing image: " + e.getMessage());
         }
 
         // Clean up directory
         try {
-            String userDir = BASE_HTML_DIR + "/" + containerName;
-            File dir = new File(userDir);
-            if (dir.exists()) {
-                deleteDirectory(dir);
-                System.out.println("Directory cleaned: " + userDir);
-            }
+            siteContentService.deleteSite(siteDirectory);
         } catch (Exception e) {
             System.err.println("Error cleaning directory: " + e.getMessage());
         }
     }
 
     /**
-     * Gets the current status of a container
+     * Gets the current status of a container on whichever host runs it
      */
     public String getContainerStatus(String containerId) {
-        try {
-            var inspection = dockerClient.inspectContainerCmd(containerId).exec();
-            if (inspection.getState() != null) {
-                return inspection.getState().getStatus();
+        for (String host : dockerHosts.getHostNames()) {
+            String status = getContainerStatus(host, containerId);
+            if (!"not_found".equals(status)) {
+                return status;
             }
-            return "unknown";
-        } catch (Exception e) {
-            return "not_found";
         }
+        return "not_found";
     }
 
     /**
-     * Restarts a container
+     * Gets the current status of a container on a host
      */
-    public void restartContainer(String containerId) {
+    public String getContainerStatus(String host, String containerId) {
         try {
-            dockerClient.restartContainerCmd(containerId)
-                    .withTimeout(10)
-                    .exec();
+            return dockerHosts.runtime(host).inspect(containerId).getState();
         } catch (Exception e) {
-            throw new RuntimeException("Failed to restart container: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Finds an available port in the range 8081-9000
-     */
-    private int findAvailablePort() {
-        Random random = new Random();
-        int maxAttempts = 100;
-        
-        for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            int port = 8081 + random.nextInt(920); // 8081-9000
-            
-            if (!isPortInUse(port)) {
-                return port;
-            }
+            return "not_found";
         }
-        
-        throw new RuntimeException("No available ports found in range 8081-9000");
     }
 
     /**
-     * Checks if a port is already in use by any container
+     * Restarts a container
      */
-    private boolean isPortInUse(int port) {
+    public void restartContainer(String host, String containerId) {
         try {
-            var containers = dockerClient.listContainersCmd()
-                    .withShowAll(true)
-                    .exec();
-            
-            for (var container : containers) {
-                if (container.getPorts() != null) {
-                    for (var containerPort : container.getPorts()) {
-                        if (containerPort.getPublicPort() != null && 
-                            containerPort.getPublicPort() == port) {
-                            return true;
-                        }
-                    }
-                }
-            }
-            return false;
+            dockerHosts.runtime(host).restart(containerId, 10);
         } catch (Exception e) {
-            System.err.println("Error checking port " + port + ": " + e.getMessage());
-            return false;
+            throw new RuntimeException("Failed to restart container: " + e.getMessage());
         }
     }
 
     /**
      * Recursively deletes a directory and its contents
      */
-    private void deleteDirectory(File directory) {
+    static void deleteDirectory(File directory) {
         File[] files = directory.listFiles();
         if (files != null) {
             for (File file : files) {
@@ -279,13 +571,30 @@ public class UserDockerService {
         private final int port;
         private final String status;
         private final String imageName;
+        private final String siteDirectory;
+        private final String hostname;
+        private final String dockerHost;
+
+        public ContainerCreationResult(String containerId, String containerName, int port, String status,
+                                       String imageName, String siteDirectory) {
+            this(containerId, containerName, port, status, imageName, siteDirectory, null);
+        }
+
+        public ContainerCreationResult(String containerId, String containerName, int port, String status,
+                                       String imageName, String siteDirectory, String hostname) {
+            this(containerId, containerName, port, status, imageName, siteDirectory, hostname, null);
+        }
 
-        public ContainerCreationResult(String containerId, String containerName, int port, String status, String imageName) {
+        public ContainerCreationResult(String containerId, String containerName, int port, String status,
+                                       String imageName, String siteDirectory, String hostname, String dockerHost) {
             this.containerId = containerId;
             this.containerName = containerName;
             this.port = port;
             this.status = status;
             this.imageName = imageName;
+            this.siteDirectory = siteDirectory;
+            this.hostname = hostname;
+            this.dockerHost = dockerHost;
         }
 
         public String getContainerId() { return containerId; }
@@ -293,5 +602,26 @@ public class UserDockerService {
         public int getPort() { return port; }
         public String getStatus() { return status; }
         public String getImageName() { return imageName; }
+        public String getSiteDirectory() { return siteDirectory; }
+        public String getHostname() { return hostname; }
+        // Null for sites not running in their own container
+        public String getDockerHost() { return dockerHost; }
+    }
+
+    /**
+     * Idle running container waiting in the warm pool
+     */
+    private static class WarmContainer {
+        private final String host;
+        private final String containerId;
+        private final String siteDirectory;
+        private final int port;
+
+        WarmContainer(String host, String containerId, String siteDirectory, int port) {
+            this.host = host;
+            this.containerId = containerId;
+            this.siteDirectory = siteDirectory;
+            this.port = port;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,311 @@
+package com.authapi.webhostingservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Listens on the host ports of hibernated sites and wakes a site on its first connection.
+ *
+ * A hibernated container's port is free, so the proxy binds it itself. The first
+ * accepted connection is held, the port is handed back, the wake action starts
+ * the container, and every held connection is then piped to it. Later
+ * connections reach the container directly. One selector thread watches all
+ * listening ports; waking and piping run on a separate pool.
+ */
+@Component
+public class WakeOnRequestProxy {
+
+    private static final byte[] UNAVAILABLE = ("HTTP/1.1 503 Service Unavailable\r\n" +
+            "Retry-After: 5\r\nContent-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<Integer, Listener> listeners = new ConcurrentHashMap<>();
+    private final Queue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final ExecutorService workers;
+
+    // Where woken containers are reached; the service must share the host's network to bind their ports
+    @Value("${hosting.hibernation.upstream-host:127.0.0.1}")
+    private String upstreamHost;
+
+    private volatile boolean running = false;
+    private Selector selector;
+
+    public WakeOnRequestProxy() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "wake-proxy-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Called on a worker thread once the port is free; returns when the site accepts connections
+     */
+    @FunctionalInterface
+    public interface WakeAction {
+        void wake() throws Exception;
+    }
+
+    public int getListenerCount() {
+        return listeners.size();
+    }
+
+    /**
+     * Starts holding connections on a port until the first one wakes the site
+     */
+    public void listen(int port, WakeAction action) throws IOException {
+        ensureStarted();
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(port), 128);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        Listener listener = new Listener(port, channel, action);
+        if (listeners.putIfAbsent(port, listener) != null) {
+            channel.close();
+            return;
+        }
+        onSelectorThread(() -> channel.register(selector, SelectionKey.OP_ACCEPT, listener));
+    }
+
+    /**
+     * Stops listening on a port without waking anything (site deleted or started by other means)
+     */
+    public void release(int port) {
+        Listener listener = listeners.get(port);
+        if (listener != null && !listener.waking) {
+            listeners.remove(port, listener);
+            closeListener(listener);
+        }
+    }
+
+    private synchronized void ensureStarted() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        running = true;
+        Thread ioThread = new Thread(this::eventLoop, "wake-proxy-selector");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    private void eventLoop() {
+        while (running) {
+            try {
+                Runnable change;
+                while ((change = pendingChanges.poll()) != null) {
+                    change.run();
+                }
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept((Listener) key.attachment());
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Wake proxy loop error: " + e.getMessage());
+            }
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            System.err.println("Error closing wake proxy: " + e.getMessage());
+        }
+    }
+
+    private void accept(Listener listener) {
+        SocketChannel client;
+        try {
+            while ((client = listener.channel.accept()) != null) {
+                listener.held.add(client);
+            }
+        } catch (IOException e) {
+            System.err.println("Wake proxy accept failed on port " + listener.port + ": " + e.getMessage());
+        }
+        if (!listener.waking && !listener.held.isEmpty()) {
+            listener.waking = true;
+            workers.execute(() -> wake(listener));
+        }
+    }
+
+    private void wake(Listener listener) {
+        // Docker cannot bind the port while we hold it
+        closeListener(listener);
+        listeners.remove(listener.port, listener);
+
+        List<SocketChannel> held;
+        synchronized (listener.held) {
+            held = new ArrayList<>(listener.held);
+        }
+        try {
+            listener.action.wake();
+        } catch (Exception e) {
+            System.err.println("Could not wake site on port " + listener.port + ": " + e.getMessage());
+            held.forEach(WakeOnRequestProxy::rejectQuietly);
+            return;
+        }
+        for (SocketChannel client : held) {
+            try {
+                forward(client, listener.port);
+            } catch (IOException e) {
+                rejectQuietly(client);
+            }
+        }
+    }
+
+    /**
+     * Closes a listening channel on the selector thread, so the port is free when this returns
+     */
+    private void closeListener(Listener listener) {
+        try {
+            onSelectorThread(() -> {
+                SelectionKey key = listener.channel.keyFor(selector);
+                if (key != null) {
+                    key.cancel();
+                }
+                listener.channel.close();
+                // Deregisters the cancelled key, which is when the socket is really closed
+                selector.selectNow();
+            });
+        } catch (IOException e) {
+            System.err.println("Error closing listener on port " + listener.port + ": " + e.getMessage());
+        }
+    }
+
+    private void onSelectorThread(IoChange change) throws IOException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        pendingChanges.add(() -> {
+            try {
+                change.run();
+                done.complete(null);
+            } catch (IOException e) {
+                done.completeExceptionally(e);
+            }
+        });
+        selector.wakeup();
+        try {
+            done.get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the wake proxy", e);
+        } catch (Exception e) {
+            throw new IOException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e);
+        }
+    }
+
+    private void forward(SocketChannel client, int port) throws IOException {
+        client.configureBlocking(true);
+        SocketChannel upstream = SocketChannel.open(new InetSocketAddress(upstreamHost, port));
+        AtomicInteger open = new AtomicInteger(2);
+        workers.execute(() -> pipe(client, upstream, open));
+        workers.execute(() -> pipe(upstream, client, open));
+    }
+
+    /**
+     * Copies one direction until EOF, then half-closes; the last direction to finish closes both
+     */
+    private static void pipe(SocketChannel from, SocketChannel to, AtomicInteger open) {
+        ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+        try {
+            while (from.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    to.write(buffer);
+                }
+                buffer.clear();
+            }
+            to.shutdownOutput();
+        } catch (IOException e) {
+            // Peer went away, tear down both sides below
+            open.set(1);
+        }
+        if (open.decrementAndGet() <= 0) {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static void rejectQuietly(SocketChannel client) {
+        try {
+            client.configureBlocking(true);
+            client.write(ByteBuffer.wrap(UNAVAILABLE));
+        } catch (IOException e) {
+            // Client already gone
+        }
+        closeQuietly(client);
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        workers.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface IoChange {
+        void run() throws IOException;
+    }
+
+    /**
+     * A hibernated site's port and the connections waiting for it to wake
+     */
+    private static class Listener {
+        private final int port;
+        private final ServerSocketChannel channel;
+        private final WakeAction action;
+        private final List<SocketChannel> held = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean waking = false;
+
+        Listener(int port, ServerSocketChannel channel, WakeAction action) {
+            this.port = port;
+            this.channel = channel;
+            this.action = action;
+        }
+    }
+}
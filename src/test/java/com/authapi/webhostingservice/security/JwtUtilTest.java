@@ -0,0 +1,149 @@
+package com.authapi.webhostingservice.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class JwtUtilTest {
+
+    private static final String OLD_SECRET = "old-secret-old-secret-old-secret-0001";
+    private static final String NEW_SECRET = "new-secret-new-secret-new-secret-0002";
+    private static final long EXPIRATION = 60_000;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenFromRetiredKeyVerifiesAfterRotation() {
+        String issuedBeforeRotation = new JwtUtil(OLD_SECRET, EXPIRATION, "k1", "").generateToken("user@example.com");
+
+        JwtUtil rotated = new JwtUtil(NEW_SECRET, EXPIRATION, "k2", "k1=" + OLD_SECRET);
+
+        assertEquals("user@example.com", rotated.parse(issuedBeforeRotation).getUsername());
+        assertEquals("user@example.com", rotated.parse(rotated.generateToken("user@example.com")).getUsername());
+    }
+
+    @Test
+    void tokenFromDroppedKeyIsRejected() {
+        String issuedBeforeRotation = new JwtUtil(OLD_SECRET, EXPIRATION, "k1", "").generateToken("user@example.com");
+
+        JwtUtil rotated = new JwtUtil(NEW_SECRET, EXPIRATION, "k2", "");
+
+        assertThrows(JwtException.class, () -> rotated.parse(issuedBeforeRotation));
+    }
+
+    @Test
+    void wrongKeyUnderKnownKidIsRejected() {
+        // Signed with the current secret but naming the retired kid
+        String forged = new JwtUtil(NEW_SECRET, EXPIRATION, "k1", "").generateToken("user@example.com");
+
+        JwtUtil rotated = new JwtUtil(NEW_SECRET, EXPIRATION, "k2", "k1=" + OLD_SECRET);
+
+        assertThrows(JwtException.class, () -> rotated.parse(forged));
+    }
+
+    @Test
+    void tokenWithoutKidIsVerifiedWithCurrentKey() {
+        long now = System.currentTimeMillis();
+        String legacy = Jwts.builder()
+                .setSubject("admin@example.com")
+                .claim("role", "ADMIN")
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + EXPIRATION))
+                .signWith(Keys.hmacShaKeyFor(NEW_SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+
+        JwtUtil.JwtPrincipal principal = new JwtUtil(NEW_SECRET, EXPIRATION, "k2", "k1=" + OLD_SECRET).parse(legacy);
+
+        assertEquals("admin@example.com", principal.getUsername());
+        assertEquals("ADMIN", principal.getRole());
+    }
+
+    @Test
+    void newTokensCarryCurrentKid() {
+        String token = new JwtUtil(NEW_SECRET, EXPIRATION, "k2", "k1=" + OLD_SECRET).generateToken("user@example.com");
+
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                StandardCharsets.UTF_8);
+
+        assertTrue(header.contains("\"" + JwsHeader.KEY_ID + "\":\"k2\""), header);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String expired = new JwtUtil(NEW_SECRET, -1000, "k2", "").generateToken("user@example.com");
+
+        assertThrows(ExpiredJwtException.class, () -> new JwtUtil(NEW_SECRET, EXPIRATION, "k2", "").parse(expired));
+    }
+
+    @Test
+    void malformedPreviousSecretsFailsStartup() {
+        assertThrows(IllegalArgumentException.class, () -> new JwtUtil(NEW_SECRET, EXPIRATION, "k2", OLD_SECRET));
+    }
+
+    @Test
+    void requestFilterVerifiesTokenOnce() throws Exception {
+        JwtUtil jwtUtil = spy(new JwtUtil(NEW_SECRET, EXPIRATION, "k2", ""));
+        SecurityConfig config = securityConfig(jwtUtil);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/users");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken("admin@example.com", "ADMIN"));
+        config.jwtFilter().doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(jwtUtil, times(1)).parse(anyString());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("admin@example.com", authentication.getName());
+        assertInstanceOf(JwtUtil.JwtPrincipal.class, authentication.getDetails());
+    }
+
+    @Test
+    void requestFilterIgnoresTokenFromUnknownKey() throws Exception {
+        SecurityConfig config = securityConfig(new JwtUtil(NEW_SECRET, EXPIRATION, "k2", ""));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/users");
+        request.addHeader("Authorization", "Bearer "
+                + new JwtUtil(OLD_SECRET, EXPIRATION, "k2", "").generateToken("admin@example.com", "ADMIN"));
+        config.jwtFilter().doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    // Stateless mode builds the principal from the claims, so no repositories are needed
+    private static SecurityConfig securityConfig(JwtUtil jwtUtil) {
+        SecurityConfig config = new SecurityConfig(null, null, jwtUtil, mock(RateLimitFilter.class),
+                new TokenDenylist(EXPIRATION, new SimpleMeterRegistry()), null);
+        ReflectionTestUtils.setField(config, "stateless", true);
+        return config;
+    }
+}
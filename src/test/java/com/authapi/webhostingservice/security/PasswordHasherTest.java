@@ -0,0 +1,144 @@
+package com.authapi.webhostingservice.security;
+
+import com.authapi.webhostingservice.controller.UserAuthController;
+import com.authapi.webhostingservice.model.User;
+import com.authapi.webhostingservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Counted down when the hash of "block" starts, and to let it finish
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (hasher != null) {
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    void fullQueueRaisesOverloadedWithRetryAfter() throws Exception {
+        hasher = new PasswordHasher(blockingEncoder(), meterRegistry, 1, 1, 10_000, 7);
+        startBlockedHash();
+        // Takes the only queue slot
+        CompletableFuture.runAsync(() -> hasher.encode("queued"));
+        awaitQueueDepth(1);
+
+        PasswordHasher.OverloadedException e =
+                assertThrows(PasswordHasher.OverloadedException.class, () -> hasher.encode("rejected"));
+        assertEquals(7, e.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.counter("hosting.auth.password.rejected").count());
+    }
+
+    @Test
+    void hashQueuedPastMaxWaitRaisesOverloaded() throws Exception {
+        hasher = new PasswordHasher(blockingEncoder(), meterRegistry, 1, 4, 100, 3);
+        startBlockedHash();
+
+        long start = System.nanoTime();
+        PasswordHasher.OverloadedException e =
+                assertThrows(PasswordHasher.OverloadedException.class, () -> hasher.encode("waits"));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertTrue(waitedMillis >= 100 && waitedMillis < 5_000, "waited " + waitedMillis + " ms");
+    }
+
+    @Test
+    void overloadedLoginAnswers503WithRetryAfter() {
+        PasswordHasher overloaded = mock(PasswordHasher.class);
+        when(overloaded.matches(anyString(), anyString(), any()))
+                .thenThrow(new PasswordHasher.OverloadedException("Password hashing queue is full", 7));
+        UserRepository userRepository = mock(UserRepository.class);
+        User user = new User();
+        user.setEmail("user@example.com");
+        user.setPassword("hash");
+        when(userRepository.findByEmail("user@example.com")).thenReturn(user);
+        UserAuthController controller = new UserAuthController(userRepository, overloaded, null, null);
+
+        UserAuthController.LoginRequest login = new UserAuthController.LoginRequest();
+        login.setEmail("user@example.com");
+        login.setPassword("correct-horse");
+        ResponseEntity<?> response = controller.login(login);
+
+        assertEquals(503, response.getStatusCode().value());
+        assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void legacyCostHashIsRehashedOnMatch() throws Exception {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(10), new SimpleMeterRegistry(), 2, 8, 10_000, 5);
+        String legacy = new BCryptPasswordEncoder(4).encode("correct-horse");
+        CompletableFuture<String> rehashed = new CompletableFuture<>();
+
+        assertTrue(hasher.matches("correct-horse", legacy, rehashed::complete));
+
+        String upgraded = rehashed.get(10, TimeUnit.SECONDS);
+        assertTrue(upgraded.startsWith("$2a$10$"), upgraded);
+        assertTrue(new BCryptPasswordEncoder().matches("correct-horse", upgraded));
+    }
+
+    @Test
+    void noRehashOnMismatchOrCurrentCost() throws Exception {
+        hasher = new PasswordHasher(new BCryptPasswordEncoder(10), new SimpleMeterRegistry(), 2, 8, 10_000, 5);
+        CompletableFuture<String> rehashed = new CompletableFuture<>();
+
+        assertFalse(hasher.matches("wrong-horse", new BCryptPasswordEncoder(4).encode("correct-horse"),
+                rehashed::complete));
+        assertTrue(hasher.matches("correct-horse", new BCryptPasswordEncoder(10).encode("correct-horse"),
+                rehashed::complete));
+
+        assertThrows(TimeoutException.class, () -> rehashed.get(500, TimeUnit.MILLISECONDS));
+    }
+
+    // encode("block") holds its hashing thread until the test ends
+    private PasswordEncoder blockingEncoder() {
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            if ("block".equals(invocation.getArgument(0))) {
+                blocked.countDown();
+                release.await();
+            }
+            return "hash";
+        });
+        return encoder;
+    }
+
+    private void startBlockedHash() throws InterruptedException {
+        CompletableFuture.runAsync(() -> hasher.encode("block"));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("hosting.auth.password.queue.depth").gauge().value() < depth) {
+            assertTrue(System.currentTimeMillis() < deadline, "hash never queued");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.authapi.webhostingservice.security;
+
+import io.github.bucket4j.Bucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitBucketStoreTest {
+
+    @Test
+    void floodOfDistinctKeysStaysWithinMaxEntries() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitBucketStore store = new RateLimitBucketStore(5, 5, 1, 1_000, 0, meterRegistry);
+
+        for (int i = 0; i < 10_000; i++) {
+            store.resolve("10.0." + (i >> 8) + "." + (i & 255)).tryConsume(1);
+            assertTrue(store.size() <= 1_000, "size " + store.size() + " after " + (i + 1) + " keys");
+        }
+
+        assertEquals(1_000, store.size());
+        assertEquals(9_000, meterRegistry.counter("hosting.ratelimit.evictions", "cause", "size").count());
+        assertEquals(1_000.0 * RateLimitBucketStore.ESTIMATED_ENTRY_BYTES,
+                meterRegistry.get("hosting.ratelimit.memory").gauge().value());
+    }
+
+    @Test
+    void floodEvictsLeastRecentlyUsedFirst() {
+        RateLimitBucketStore store = new RateLimitBucketStore(5, 5, 1, 3, 0, new SimpleMeterRegistry());
+        Bucket active = store.resolve("10.0.0.1");
+        active.tryConsume(5);
+        store.resolve("10.0.0.2");
+        store.resolve("10.0.0.3");
+
+        store.resolve("10.0.0.1");
+        store.resolve("10.0.0.4");
+
+        // The active client keeps its drained bucket; 10.0.0.2 was the eldest
+        assertSame(active, store.resolve("10.0.0.1"));
+        assertFalse(active.tryConsume(1));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void idleBucketsExpire() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RateLimitBucketStore store = new RateLimitBucketStore(5, 5, 1, 1_000, 100, meterRegistry);
+        Bucket drained = store.resolve("10.0.0.1");
+        assertTrue(drained.tryConsume(5));
+        store.resolve("10.0.0.2");
+
+        Thread.sleep(150);
+        store.purgeIdle();
+
+        assertEquals(0, store.size());
+        assertEquals(2, meterRegistry.counter("hosting.ratelimit.evictions", "cause", "idle").count());
+        Bucket fresh = store.resolve("10.0.0.1");
+        assertNotSame(drained, fresh);
+        assertTrue(fresh.tryConsume(5));
+    }
+
+    @Test
+    void expiredBucketIsReplacedOnAccessWithoutPurge() throws InterruptedException {
+        RateLimitBucketStore store = new RateLimitBucketStore(5, 5, 1, 1_000, 100, new SimpleMeterRegistry());
+        Bucket drained = store.resolve("10.0.0.1");
+        drained.tryConsume(5);
+
+        Thread.sleep(150);
+
+        assertNotSame(drained, store.resolve("10.0.0.1"));
+    }
+
+    @Test
+    void defaultIdleExpiryIsTimeToRefillCompletely() {
+        // 10 tokens at 5 per minute: an empty bucket is full again after two minutes
+        RateLimitBucketStore store = new RateLimitBucketStore(10, 5, 1, 1_000, 0, new SimpleMeterRegistry());
+
+        assertEquals(120_000L, ReflectionTestUtils.getField(store, "idleExpiryMillis"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.authapi.webhostingservice.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitBucketStore store;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = spy(new RateLimitBucketStore(2, 2, 1, 1_000, 0, meterRegistry));
+        filter = new RateLimitFilter(store, meterRegistry, "127.0.0.1, 10.0.0.0/8");
+    }
+
+    @Test
+    void untrustedPeerCannotChooseBucketWithForwardedFor() throws Exception {
+        for (int i = 1; i <= 2; i++) {
+            assertEquals(200, login("203.0.113.7", "198.51.100." + i, null));
+        }
+        assertEquals(429, login("203.0.113.7", "198.51.100.3", "198.51.100.4"));
+
+        assertEquals(1, store.size());
+        assertEquals(1, meterRegistry.counter("hosting.ratelimit.rejected").count());
+    }
+
+    @Test
+    void trustedProxyForwardsNearestUntrustedHop() throws Exception {
+        // The client prepended a spoofed hop; the proxies appended the real one
+        login("127.0.0.1", "6.6.6.6, 198.51.100.9, 10.0.0.5", null);
+
+        verify(store).resolve("198.51.100.9");
+    }
+
+    @Test
+    void trustedProxyFallsBackToRealIp() throws Exception {
+        login("127.0.0.1", null, "198.51.100.9");
+
+        verify(store).resolve("198.51.100.9");
+    }
+
+    @Test
+    void nonAuthPathsAreNotLimited() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/sites");
+            request.setRemoteAddr("203.0.113.7");
+            filter.doFilter(request, response, new MockFilterChain());
+        }
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0, store.size());
+    }
+
+    private int login(String peer, String forwardedFor, String realIp) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/user/login");
+        request.setRemoteAddr(peer);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        if (realIp != null) {
+            request.addHeader("X-Real-IP", realIp);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
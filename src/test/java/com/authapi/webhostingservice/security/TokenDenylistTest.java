@@ -0,0 +1,104 @@
+package com.authapi.webhostingservice.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class TokenDenylistTest {
+
+    private static final long LIFETIME = 60_000;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void revokingRejectsTokensIssuedBefore() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+        JwtUtil.JwtPrincipal earlier = principal("user@example.com", now - 30_000);
+        JwtUtil.JwtPrincipal sameSecond = principal("user@example.com", now);
+
+        denylist.revoke("user@example.com");
+
+        assertTrue(denylist.isRevoked(earlier));
+        assertTrue(denylist.isRevoked(sameSecond));
+        assertFalse(denylist.isRevoked(principal("other@example.com", now - 30_000)));
+    }
+
+    @Test
+    void tokensFromLaterLoginAreAccepted() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME, new SimpleMeterRegistry());
+
+        denylist.revoke("user@example.com");
+
+        // iat has second precision, so the next login is at least one second on
+        assertFalse(denylist.isRevoked(principal("user@example.com", System.currentTimeMillis() + 1_000)));
+    }
+
+    @Test
+    void tokenWithoutIssuedAtIsRejectedOnceRevoked() {
+        TokenDenylist denylist = new TokenDenylist(LIFETIME, new SimpleMeterRegistry());
+
+        denylist.revoke("user@example.com");
+
+        assertTrue(denylist.isRevoked(principal("user@example.com", null)));
+    }
+
+    @Test
+    void entryIsPurgedOnceCoveredTokensExpired() {
+        TokenDenylist current = new TokenDenylist(LIFETIME, new SimpleMeterRegistry());
+        current.revoke("user@example.com");
+        current.purgeExpired();
+        assertEquals(1, current.size());
+
+        // A negative lifetime puts the cutoff past the revocation, as if the tokens had long expired
+        TokenDenylist expired = new TokenDenylist(-2_000, new SimpleMeterRegistry());
+        expired.revoke("user@example.com");
+        expired.purgeExpired();
+        assertEquals(0, expired.size());
+    }
+
+    @Test
+    void requestFilterRejectsRevokedToken() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil("denylist-secret-denylist-secret-0001", LIFETIME, "k1", "");
+        TokenDenylist denylist = new TokenDenylist(LIFETIME, new SimpleMeterRegistry());
+        SecurityConfig config = new SecurityConfig(null, null, jwtUtil, mock(RateLimitFilter.class), denylist, null);
+        ReflectionTestUtils.setField(config, "stateless", true);
+        String token = jwtUtil.generateToken("user@example.com");
+
+        filter(config, token);
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+
+        denylist.revoke("user@example.com");
+        filter(config, token);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private static void filter(SecurityConfig config, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/sites");
+        request.addHeader("Authorization", "Bearer " + token);
+        config.jwtFilter().doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private static JwtUtil.JwtPrincipal principal(String username, Long issuedAtMillis) {
+        Date issuedAt = issuedAtMillis != null ? new Date(issuedAtMillis) : null;
+        return new JwtUtil.JwtPrincipal(username, null, issuedAt, new Date(System.currentTimeMillis() + LIFETIME));
+    }
+}
@@ -0,0 +1,199 @@
+package com.authapi.webhostingservice.security;
+
+import com.authapi.webhostingservice.controller.AdminUserController;
+import com.authapi.webhostingservice.controller.UserAuthController;
+import com.authapi.webhostingservice.model.User;
+import com.authapi.webhostingservice.repository.UserRepository;
+import com.authapi.webhostingservice.service.BulkOperationService;
+import com.authapi.webhostingservice.service.UserContainerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserDetailsCacheTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    // Stands in for the users table behind both the loader and the mocked repository
+    private final Map<String, String> passwords = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> {
+            String email = invocation.getArgument(0);
+            String password = passwords.get(email);
+            if (password == null) {
+                return null;
+            }
+            User user = new User();
+            user.setEmail(email);
+            user.setPassword(password);
+            return user;
+        });
+        doAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            passwords.put(user.getEmail(), user.getPassword());
+            return null;
+        }).when(userRepository).save(any(User.class));
+        doAnswer(invocation -> passwords.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(userRepository).updatePassword(anyString(), anyString());
+        doAnswer(invocation -> passwords.remove(invocation.getArgument(0)))
+                .when(userRepository).deleteByEmail(anyString());
+    }
+
+    @Test
+    void hitDoesNotReload() {
+        UserDetailsCache cache = cache(60_000, 60_000);
+        passwords.put(EMAIL, "hash-1");
+
+        cache.get(EMAIL, loader());
+        UserDetails second = cache.get(EMAIL, loader());
+
+        assertEquals(1, loads.get());
+        assertEquals("hash-1", second.getPassword());
+    }
+
+    @Test
+    void unknownEmailIsCachedForNegativeTtlOnly() throws InterruptedException {
+        UserDetailsCache cache = cache(60_000, 100);
+        passwords.put("known@example.com", "hash-1");
+        cache.get("known@example.com", loader());
+
+        assertThrows(UsernameNotFoundException.class, () -> cache.get(EMAIL, loader()));
+        assertThrows(UsernameNotFoundException.class, () -> cache.get(EMAIL, loader()));
+        assertEquals(2, loads.get());
+
+        // Registered elsewhere: visible once the negative entry expires, while the account stays cached
+        passwords.put(EMAIL, "hash-2");
+        Thread.sleep(150);
+
+        assertEquals("hash-2", cache.get(EMAIL, loader()).getPassword());
+        cache.get("known@example.com", loader());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void signupInvalidatesCachedUnknownEmail() {
+        UserDetailsCache cache = cache(60_000, 60_000);
+        PasswordHasher passwordHasher = mock(PasswordHasher.class);
+        when(passwordHasher.encode(anyString())).thenReturn("hash-1");
+        UserAuthController controller = new UserAuthController(userRepository, passwordHasher, null, cache);
+
+        assertThrows(UsernameNotFoundException.class, () -> cache.get(EMAIL, loader()));
+
+        UserAuthController.SignupRequest signup = new UserAuthController.SignupRequest();
+        signup.setEmail(EMAIL);
+        signup.setPassword("correct-horse");
+        assertEquals(201, controller.signup(signup).getStatusCode().value());
+
+        assertEquals("hash-1", cache.get(EMAIL, loader()).getPassword());
+    }
+
+    @Test
+    void deleteInvalidatesCachedAccount() {
+        UserDetailsCache cache = cache(60_000, 60_000);
+        passwords.put(EMAIL, "hash-1");
+        BulkOperationService bulkOperationService = new BulkOperationService(mock(UserContainerService.class),
+                userRepository, new TokenDenylist(60_000, new SimpleMeterRegistry()), cache, new ObjectMapper(),
+                new SimpleMeterRegistry(), 1);
+        AdminUserController controller = new AdminUserController(userRepository, bulkOperationService);
+        cache.get(EMAIL, loader());
+
+        assertEquals(200, controller.deleteUser(EMAIL).getStatusCode().value());
+        bulkOperationService.shutdown();
+
+        assertThrows(UsernameNotFoundException.class, () -> cache.get(EMAIL, loader()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rehashOnLoginInvalidatesCachedAccount() {
+        UserDetailsCache cache = cache(60_000, 60_000);
+        passwords.put(EMAIL, "hash-cost-4");
+        PasswordHasher passwordHasher = mock(PasswordHasher.class);
+        // Runs the rehash callback inline instead of on the hashing pool
+        when(passwordHasher.matches(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<String>>getArgument(2).accept("hash-cost-10");
+            return true;
+        });
+        UserAuthController controller = new UserAuthController(userRepository, passwordHasher,
+                new JwtUtil("cache-test-secret-cache-test-secret-01", 60_000, "k1", ""), cache);
+        cache.get(EMAIL, loader());
+
+        UserAuthController.LoginRequest login = new UserAuthController.LoginRequest();
+        login.setEmail(EMAIL);
+        login.setPassword("correct-horse");
+        assertEquals(200, controller.login(login).getStatusCode().value());
+
+        assertEquals("hash-cost-10", cache.get(EMAIL, loader()).getPassword());
+    }
+
+    @Test
+    void deleteDuringLoadIsNotUndone() {
+        UserDetailsCache cache = cache(60_000, 60_000);
+        passwords.put(EMAIL, "hash-1");
+
+        // The account is read, then deleted and invalidated before the load stores it
+        UserDetails loaded = cache.get(EMAIL, email -> {
+            UserDetails account = loader().apply(email);
+            passwords.remove(email);
+            cache.invalidate(email);
+            return account;
+        });
+
+        assertEquals("hash-1", loaded.getPassword());
+        assertEquals(0, cache.size());
+        assertThrows(UsernameNotFoundException.class, () -> cache.get(EMAIL, loader()));
+    }
+
+    @Test
+    void signupDuringNegativeLoadIsNotUndone() {
+        UserDetailsCache cache = cache(60_000, 60_000);
+
+        assertThrows(UsernameNotFoundException.class, () -> cache.get(EMAIL, email -> {
+            UserDetails account = loader().apply(email);
+            passwords.put(email, "hash-1");
+            cache.invalidate(email);
+            return account;
+        }));
+
+        assertEquals(0, cache.size());
+        assertEquals("hash-1", cache.get(EMAIL, loader()).getPassword());
+    }
+
+    private UserDetailsCache cache(long ttlMillis, long negativeTtlMillis) {
+        return new UserDetailsCache(true, 100, ttlMillis, negativeTtlMillis, new SimpleMeterRegistry());
+    }
+
+    private Function<String, UserDetails> loader() {
+        return email -> {
+            loads.incrementAndGet();
+            User user = userRepository.findByEmail(email);
+            return user == null ? null : org.springframework.security.core.userdetails.User
+                    .withUsername(user.getEmail())
+                    .password(user.getPassword())
+                    .authorities("ROLE_USER")
+                    .build();
+        };
+    }
+}
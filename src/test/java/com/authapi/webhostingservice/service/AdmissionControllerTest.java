@@ -0,0 +1,97 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class AdmissionControllerTest {
+
+    private MongoTemplate mongoTemplate;
+    private AdmissionController admission;
+
+    @BeforeEach
+    void setUp() {
+        DockerHostRegistry dockerHosts = mock(DockerHostRegistry.class);
+        when(dockerHosts.size()).thenReturn(1);
+        mongoTemplate = mock(MongoTemplate.class);
+        admission = new AdmissionController(dockerHosts, mongoTemplate, new SimpleMeterRegistry());
+        setField(admission, "memoryLimitBytes", 100L);
+        setField(admission, "configuredMemoryBytes", 1000L);
+        setField(admission, "memoryOvercommit", 1.0);
+        setField(admission, "retryAfterSeconds", 120);
+    }
+
+    @Test
+    void rejectsAdmitPastCapacity() {
+        for (int i = 0; i < 10; i++) {
+            admission.admit();
+        }
+
+        AdmissionController.CapacityExceededException e =
+                assertThrows(AdmissionController.CapacityExceededException.class, admission::admit);
+        assertEquals(120, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    void reservesWarmPoolInSharedImageMode() {
+        setField(admission, "warmPoolSize", 2);
+        setField(admission, "provisioningMode", "shared-image");
+        for (int i = 0; i < 8; i++) {
+            admission.admit();
+        }
+
+        assertThrows(AdmissionController.CapacityExceededException.class, admission::admit);
+    }
+
+    @Test
+    void reservesNoWarmPoolInImageBuildMode() {
+        // UserDockerService never builds a pool in this mode, so all ten slots go to sites
+        setField(admission, "warmPoolSize", 2);
+        setField(admission, "provisioningMode", "image-build");
+        for (int i = 0; i < 10; i++) {
+            admission.admit();
+        }
+
+        assertEquals(0, admission.getWarmPoolSize());
+        assertThrows(AdmissionController.CapacityExceededException.class, admission::admit);
+    }
+
+    @Test
+    void recountReplacesDriftedCount() {
+        admission.admit();
+        admission.admit();
+        when(mongoTemplate.count(any(Query.class), eq(UserContainer.class))).thenReturn(5L);
+
+        admission.recount();
+
+        assertEquals(5, getField(admission, "committedSites"));
+    }
+
+    @Test
+    void admitsDuringRecountAreNotLost() {
+        admission.admit();
+        when(mongoTemplate.count(any(Query.class), eq(UserContainer.class))).thenAnswer(invocation -> {
+            // Two creates are admitted, and one delete released, while Mongo is counting
+            admission.admit();
+            admission.admit();
+            admission.release();
+            return 1L;
+        });
+
+        admission.recount();
+
+        assertEquals(2, getField(admission, "committedSites"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.authapi.webhostingservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BlobStore blobStore;
+    // Unique per test so blobs of other runs are never shared
+    private String content;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        blobStore = new BlobStore(meterRegistry);
+        setField(blobStore, "enabled", true);
+        setField(blobStore, "sitesRoot", tempDir);
+        content = "body { color: red; } /* " + UUID.randomUUID() + " */";
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        UserDockerService.deleteDirectory(tempDir.toFile());
+        blobStore.collectGarbage();
+    }
+
+    @Test
+    void sharesIdenticalFilesAcrossSites() throws IOException {
+        Path first = upload("a", Instant.parse("2024-01-01T00:00:00Z"), false);
+        Path second = upload("b", Instant.parse("2024-06-01T00:00:00Z"), false);
+
+        blobStore.deduplicate(first);
+        blobStore.deduplicate(second);
+
+        assertEquals(Files.getAttribute(first.resolve("style.css"), "unix:ino"),
+                Files.getAttribute(second.resolve("style.css"), "unix:ino"));
+    }
+
+    @Test
+    void compressedSiblingKeepsOriginalsTimestampWhenShared() throws IOException {
+        Path first = upload("a", Instant.parse("2024-01-01T00:00:00Z"), true);
+        // Same content uploaded later, so its files are newer than the stored blobs
+        Path second = upload("b", Instant.parse("2024-06-01T00:00:00Z"), true);
+
+        blobStore.deduplicate(first);
+        blobStore.deduplicate(second);
+
+        for (Path site : new Path[] { first, second }) {
+            assertEquals(Files.getLastModifiedTime(site.resolve("style.css")),
+                    Files.getLastModifiedTime(site.resolve("style.css.gz")));
+        }
+        assertEquals(Files.getAttribute(first.resolve("style.css.gz"), "unix:ino"),
+                Files.getAttribute(second.resolve("style.css.gz"), "unix:ino"));
+    }
+
+    @Test
+    void siblingOfDifferentOriginalIsNotSharedByContent() throws IOException {
+        // Identical .gz bytes next to different originals must not share one stamped inode
+        Path first = upload("a", Instant.parse("2024-01-01T00:00:00Z"), true);
+        Path second = Files.createDirectories(tempDir.resolve("c"));
+        Files.writeString(second.resolve("other.css"), content + " ");
+        Files.copy(first.resolve("style.css.gz"), second.resolve("other.css.gz"));
+
+        blobStore.deduplicate(first);
+        blobStore.deduplicate(second);
+
+        assertNotEquals(Files.getAttribute(first.resolve("style.css.gz"), "unix:ino"),
+                Files.getAttribute(second.resolve("other.css.gz"), "unix:ino"));
+        assertEquals(Files.getLastModifiedTime(second.resolve("other.css")),
+                Files.getLastModifiedTime(second.resolve("other.css.gz")));
+    }
+
+    @Test
+    void savedBytesCountOnlyCurrentReleases() throws IOException {
+        // site-a keeps its previous release next to the current one, both with the same file
+        Path previous = release("site-a", "r0", false);
+        Path current = release("site-a", "r1", true);
+        Path other = release("site-b", "r1", true);
+        blobStore.deduplicate(previous);
+        blobStore.deduplicate(current);
+        blobStore.deduplicate(other);
+
+        blobStore.collectGarbage();
+
+        // Two current releases share style.css: one copy saved, however many links the blob has
+        assertEquals(4, Files.getAttribute(current.resolve("style.css"), "unix:nlink"));
+        assertEquals((double) content.length(), meterRegistry.get("hosting.blobs.saved.bytes").gauge().value());
+    }
+
+    private Path release(String site, String release, boolean current) throws IOException {
+        Path html = tempDir.resolve(site).resolve("html");
+        Path tree = Files.createDirectories(html.resolve("releases").resolve(release));
+        Files.writeString(tree.resolve("style.css"), content);
+        if (current) {
+            Files.createSymbolicLink(html.resolve(SiteContentService.CURRENT_LINK), Path.of("releases", release));
+        }
+        return tree;
+    }
+
+    private Path upload(String name, Instant modified, boolean withSibling) throws IOException {
+        Path site = Files.createDirectories(tempDir.resolve(name));
+        Path file = Files.writeString(site.resolve("style.css"), content);
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+        if (withSibling) {
+            // Not a real gzip stream; the store only looks at names and bytes
+            Path sibling = Files.writeString(site.resolve("style.css.gz"), "gz:" + content);
+            Files.setLastModifiedTime(sibling, FileTime.from(modified.plusSeconds(5)));
+        }
+        return site;
+    }
+}
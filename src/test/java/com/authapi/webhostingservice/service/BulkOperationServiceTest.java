@@ -0,0 +1,101 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.controller.AdminUserController;
+import com.authapi.webhostingservice.model.User;
+import com.authapi.webhostingservice.model.UserContainer;
+import com.authapi.webhostingservice.repository.UserRepository;
+import com.authapi.webhostingservice.security.JwtUtil;
+import com.authapi.webhostingservice.security.TokenDenylist;
+import com.authapi.webhostingservice.security.UserDetailsCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkOperationServiceTest {
+
+    private static final String EMAIL = "user@example.com";
+
+    private UserContainerService userContainerService;
+    private UserRepository userRepository;
+    private TokenDenylist tokenDenylist;
+    private UserDetailsCache userDetailsCache;
+    private BulkOperationService bulkOperationService;
+
+    @BeforeEach
+    void setUp() {
+        userContainerService = mock(UserContainerService.class);
+        userRepository = mock(UserRepository.class);
+        userDetailsCache = mock(UserDetailsCache.class);
+        tokenDenylist = new TokenDenylist(60_000, new SimpleMeterRegistry());
+        bulkOperationService = new BulkOperationService(userContainerService, userRepository, tokenDenylist,
+                userDetailsCache, new ObjectMapper(), new SimpleMeterRegistry(), 2);
+
+        User user = new User();
+        user.setEmail(EMAIL);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(user);
+        when(userContainerService.getUserContainer(EMAIL)).thenReturn(Optional.of(
+                new UserContainer(EMAIL, "c0ffee", "user-site", 8123, UserContainer.STATUS_RUNNING)));
+        doThrow(new RuntimeException("Mongo unavailable")).when(userContainerService).deleteContainer(EMAIL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkOperationService.shutdown();
+    }
+
+    @Test
+    void singleDeleteRemovesAccountWhenTeardownCannotBeQueued() {
+        AdminUserController controller = new AdminUserController(userRepository, bulkOperationService);
+
+        assertEquals(200, controller.deleteUser(EMAIL).getStatusCode().value());
+
+        assertAccountDeleted();
+    }
+
+    @Test
+    void bulkDeleteRemovesAccountWhenTeardownCannotBeQueued() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        bulkOperationService.run(BulkOperationService.Action.DELETE_USER, List.of(EMAIL), out);
+
+        String lines = out.toString(StandardCharsets.UTF_8);
+        assertTrue(lines.contains("\"ok\":true"), lines);
+        assertTrue(lines.contains("\"succeeded\":1"), lines);
+        assertAccountDeleted();
+    }
+
+    @Test
+    void unknownUserIsReportedByBoth() throws Exception {
+        AdminUserController controller = new AdminUserController(userRepository, bulkOperationService);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(404, controller.deleteUser("nobody@example.com").getStatusCode().value());
+        bulkOperationService.run(BulkOperationService.Action.DELETE_USER, List.of("nobody@example.com"), out);
+
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("User not found"));
+        verify(userRepository, never()).deleteByEmail("nobody@example.com");
+    }
+
+    private void assertAccountDeleted() {
+        verify(userRepository).deleteByEmail(EMAIL);
+        verify(userDetailsCache).invalidate(EMAIL);
+        assertTrue(tokenDenylist.isRevoked(new JwtUtil.JwtPrincipal(
+                EMAIL, null, new Date(System.currentTimeMillis() - 1_000), new Date())));
+    }
+}
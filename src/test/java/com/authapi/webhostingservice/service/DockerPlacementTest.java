@@ -0,0 +1,79 @@
+package com.authapi.webhostingservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DockerPlacementTest {
+
+    private static final long GB = 1L << 30;
+
+    @Test
+    void leastLoadedSkipsHostsWithUnknownCapacity() {
+        Map<String, Long> memory = new LinkedHashMap<>();
+        memory.put("edge1", 8 * GB);
+        memory.put("edge2", 0L);
+        memory.put("edge3", 4 * GB);
+        DockerPlacement placement = placement(memory);
+
+        Map<String, Integer> placed = placeAll(placement, 30);
+
+        // Shared 2:1 by memory; the host whose capacity read failed gets nothing
+        assertEquals(20, placed.get("edge1"));
+        assertEquals(10, placed.get("edge3"));
+        assertNull(placed.get("edge2"));
+    }
+
+    @Test
+    void leastLoadedCountsSitesWhenNoCapacityIsKnown() {
+        Map<String, Long> memory = new LinkedHashMap<>();
+        memory.put("edge1", 0L);
+        memory.put("edge2", 0L);
+        memory.put("edge3", 0L);
+        DockerPlacement placement = placement(memory);
+
+        Map<String, Integer> placed = placeAll(placement, 30);
+
+        assertEquals(10, placed.get("edge1"));
+        assertEquals(10, placed.get("edge2"));
+        assertEquals(10, placed.get("edge3"));
+    }
+
+    private static Map<String, Integer> placeAll(DockerPlacement placement, int sites) {
+        Map<String, Integer> placed = new HashMap<>();
+        for (int i = 0; i < sites; i++) {
+            placed.merge(placement.place("user" + i + "@example.com"), 1, Integer::sum);
+        }
+        return placed;
+    }
+
+    // A host with 0 bytes fails its capacity read and stays unknown
+    private static DockerPlacement placement(Map<String, Long> memory) {
+        Map<String, String> endpoints = new LinkedHashMap<>();
+        Map<String, ContainerRuntime> runtimes = new HashMap<>();
+        for (Map.Entry<String, Long> host : memory.entrySet()) {
+            String endpoint = "tcp://" + host.getKey() + ":2375";
+            ContainerRuntime runtime = mock(ContainerRuntime.class);
+            if (host.getValue() > 0) {
+                when(runtime.capacity()).thenReturn(new ContainerRuntime.HostCapacity(host.getValue(), 4));
+            } else {
+                when(runtime.capacity()).thenThrow(new RuntimeException("connection refused"));
+            }
+            endpoints.put(host.getKey(), endpoint);
+            runtimes.put(endpoint, runtime);
+        }
+        DockerHostRegistry dockerHosts = new DockerHostRegistry(endpoints, Map.of(), runtimes::get);
+        dockerHosts.detectCapacity();
+        return new DockerPlacement(dockerHosts, mock(MongoTemplate.class), mock(AdmissionController.class),
+                new SimpleMeterRegistry(), DockerPlacement.LEAST_LOADED);
+    }
+}
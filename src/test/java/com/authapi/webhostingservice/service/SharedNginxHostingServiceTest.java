@@ -0,0 +1,37 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.repository.UserContainerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class SharedNginxHostingServiceTest {
+
+    private final PortAllocator portAllocator = new PortAllocator(mock(DockerHostRegistry.class),
+            mock(UserContainerRepository.class), new SimpleMeterRegistry(), 8081, 9000, 300);
+
+    @Test
+    void instancePortsBelowContainerRangeAreAccepted() {
+        assertDoesNotThrow(() -> service(11, 8070));
+    }
+
+    @Test
+    void instancePortsReachingContainerRangeFailStartup() {
+        // 8070..8081: the twelfth instance would take the first container port
+        assertThrows(IllegalArgumentException.class, () -> service(12, 8070));
+        assertThrows(IllegalArgumentException.class, () -> service(2, 9000));
+    }
+
+    @Test
+    void instancePortsAboveContainerRangeAreAccepted() {
+        assertDoesNotThrow(() -> service(4, 9001));
+    }
+
+    private SharedNginxHostingService service(int instances, int basePort) {
+        return new SharedNginxHostingService(mock(DockerHostRegistry.class), mock(UserDockerService.class),
+                mock(SiteContentService.class), portAllocator, instances, basePort);
+    }
+}
@@ -0,0 +1,105 @@
+package com.authapi.webhostingservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulatedContainerRuntimeTest {
+
+    private SimulatedContainerRuntime runtime;
+
+    @BeforeEach
+    void setUp() {
+        runtime = new SimulatedContainerRuntime("sim", 0, 0, 0, 0, 8L << 30, 4);
+        runtime.ensureImage("nginx:1.27-alpine");
+    }
+
+    @Test
+    void slowListenerDoesNotBlockCalls() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener slow = new RecordingListener(release);
+        RecordingListener fast = new RecordingListener(null);
+        runtime.subscribe(slow);
+        runtime.subscribe(fast);
+
+        // Delivered inline, the first create would wait for the slow listener forever
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 20; i++) {
+                String id = runtime.create(new ContainerRuntime.ContainerSpec("nginx:1.27-alpine", "site-" + i)
+                        .withHostPort(8081 + i));
+                runtime.start(id);
+            }
+        });
+
+        // The slow listener is still stuck on its first event, the fast one is not held up by it
+        assertTrue(fast.received.await(5, TimeUnit.SECONDS));
+        assertEquals(1, slow.actions.size());
+        assertEquals(40, fast.actions.size());
+
+        release.countDown();
+        assertTrue(slow.received.await(5, TimeUnit.SECONDS));
+        assertEquals(fast.actions, slow.actions);
+    }
+
+    @Test
+    void eventsArriveInOrderOffTheCallingThread() throws Exception {
+        RecordingListener listener = new RecordingListener(null);
+        Closeable subscription = runtime.subscribe(listener);
+
+        String id = runtime.create(new ContainerRuntime.ContainerSpec("nginx:1.27-alpine", "site").withHostPort(8081));
+        runtime.start(id);
+        runtime.stop(id, 10);
+        runtime.remove(id, false);
+        subscription.close();
+
+        assertTrue(listener.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("create", "start", "die", "stop", "destroy"), listener.actions);
+        assertNotEquals(Thread.currentThread().getName(), listener.threadName);
+    }
+
+    /**
+     * Records actions; when given a latch, its first event waits for it
+     */
+    private static class RecordingListener implements ContainerRuntime.ContainerEvents {
+        private final List<String> actions = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        // Counted down once all 40 events of slowListenerDoesNotBlockCalls arrived
+        private final CountDownLatch received = new CountDownLatch(40);
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile String threadName;
+
+        RecordingListener(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void onEvent(String containerId, String action) {
+            threadName = Thread.currentThread().getName();
+            actions.add(action);
+            received.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onClosed(Throwable error) {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.authapi.webhostingservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SiteContentServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BlobStore blobStore;
+    private SiteContentService service;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = mock(BlobStore.class);
+        service = new SiteContentService(blobStore, mock(AssetCompressor.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "maxArchiveEntries", 10);
+        ReflectionTestUtils.setField(service, "maxUnpackedBytes", 1024L);
+    }
+
+    @Test
+    void stagesUploadOnDisk() throws IOException {
+        byte[] page = "<h1>hello</h1>".getBytes(StandardCharsets.UTF_8);
+        Path staged = service.stage(new MockMultipartFile("file", "Site.HTML", "text/html", page));
+        try {
+            assertTrue(staged.startsWith(Path.of(SiteContentService.STAGING_DIR)));
+            assertTrue(staged.getFileName().toString().endsWith(".html"));
+            assertEquals("<h1>hello</h1>", Files.readString(staged));
+        } finally {
+            service.discard(staged);
+        }
+        assertFalse(Files.exists(staged));
+    }
+
+    @Test
+    void rejectsUnsupportedUploadType() {
+        MockMultipartFile file = new MockMultipartFile("file", "site.exe", "application/octet-stream", new byte[1]);
+        assertFalse(service.isSupportedUpload("site.exe"));
+        assertThrows(IllegalArgumentException.class, () -> service.stage(file));
+    }
+
+    @Test
+    void preparesSingleHtmlFileAsIndex() throws IOException {
+        Path staged = Files.writeString(tempDir.resolve("upload.html"), "<p>page</p>");
+
+        Path siteTree = service.prepare(staged);
+
+        assertEquals("<p>page</p>", Files.readString(siteTree.resolve(SiteContentService.INDEX_FILE)));
+        // The upload was moved, not copied
+        assertFalse(Files.exists(staged));
+    }
+
+    @Test
+    void discardIsNoOpForMissingPath() {
+        service.discard(tempDir.resolve("never-staged.html"));
+        service.discard(null);
+    }
+
+    @Test
+    void unpacksZipArchive() throws IOException {
+        Path zip = zip("site.zip", Map.of("index.html", "<p>home</p>", "css/app.css", "body{}"));
+
+        Path siteTree = service.prepare(zip);
+
+        assertEquals("<p>home</p>", Files.readString(siteTree.resolve("index.html")));
+        assertEquals("body{}", Files.readString(siteTree.resolve("css/app.css")));
+        assertFalse(Files.exists(zip));
+    }
+
+    @Test
+    void unpacksTarGzArchive() throws IOException {
+        Path archive = tempDir.resolve("site.tar.gz");
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(
+                new GzipCompressorOutputStream(Files.newOutputStream(archive)))) {
+            byte[] page = "<p>tar</p>".getBytes(StandardCharsets.UTF_8);
+            TarArchiveEntry entry = new TarArchiveEntry("index.html");
+            entry.setSize(page.length);
+            tar.putArchiveEntry(entry);
+            tar.write(page);
+            tar.closeArchiveEntry();
+        }
+
+        Path siteTree = service.prepare(archive);
+
+        assertEquals("<p>tar</p>", Files.readString(siteTree.resolve("index.html")));
+    }
+
+    @Test
+    void rejectsEntryOutsideSiteRoot() throws IOException {
+        Path zip = zip("evil.zip", Map.of("index.html", "ok", "../../escaped.html", "pwned"));
+
+        IOException e = assertThrows(IOException.class, () -> service.prepare(zip));
+
+        assertTrue(e.getMessage().contains("outside the site root"));
+        assertFalse(Files.exists(tempDir.getParent().resolve("escaped.html")));
+        // The partially unpacked tree is cleaned up
+        assertFalse(Files.exists(tempDir.resolve("evil.zip.d")));
+    }
+
+    @Test
+    void rejectsTooManyEntries() throws IOException {
+        Map<String, String> files = new java.util.HashMap<>();
+        files.put("index.html", "ok");
+        for (int i = 0; i < 10; i++) {
+            files.put("page" + i + ".html", "x");
+        }
+        Path zip = zip("many.zip", files);
+
+        IOException e = assertThrows(IOException.class, () -> service.prepare(zip));
+
+        assertTrue(e.getMessage().contains("more than 10 entries"));
+    }
+
+    @Test
+    void rejectsArchiveUnpackingPastSizeLimit() throws IOException {
+        Path zip = zip("bomb.zip", Map.of("index.html", "a".repeat(2048)));
+
+        IOException e = assertThrows(IOException.class, () -> service.prepare(zip));
+
+        assertTrue(e.getMessage().contains("more than 1024 bytes"));
+    }
+
+    @Test
+    void rejectsArchiveWithoutIndex() throws IOException {
+        Path zip = zip("noindex.zip", Map.of("about.html", "x"));
+
+        assertThrows(IOException.class, () -> service.prepare(zip));
+    }
+
+    @Test
+    void skipsSymlinkEntries() throws IOException {
+        Path archive = tempDir.resolve("links.tar");
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(Files.newOutputStream(archive))) {
+            TarArchiveEntry link = new TarArchiveEntry("passwd", TarArchiveEntry.LF_SYMLINK);
+            link.setLinkName("/etc/passwd");
+            tar.putArchiveEntry(link);
+            tar.closeArchiveEntry();
+            byte[] page = "ok".getBytes(StandardCharsets.UTF_8);
+            TarArchiveEntry index = new TarArchiveEntry("index.html");
+            index.setSize(page.length);
+            tar.putArchiveEntry(index);
+            tar.write(page);
+            tar.closeArchiveEntry();
+        }
+
+        Path siteTree = service.prepare(archive);
+
+        assertFalse(Files.exists(siteTree.resolve("passwd"), java.nio.file.LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    void installsOfDifferentSitesDoNotWaitForEachOther() throws Exception {
+        Path slowTree = prepareTree("slow");
+        Path fastTree = prepareTree("fast");
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0, Path.class).equals(slowTree)) {
+                slowStarted.countDown();
+                releaseSlow.await(10, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(blobStore).deduplicate(any());
+
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> {
+            try {
+                service.install(slowTree, tempDir.resolve("site-a/html"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(slowStarted.await(10, TimeUnit.SECONDS));
+
+        // Completes while site-a's install is still in progress
+        service.install(fastTree, tempDir.resolve("site-b/html"));
+        assertFalse(slow.isDone());
+
+        releaseSlow.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void installPublishesReleaseBehindCurrentLink() throws IOException {
+        Path htmlDir = tempDir.resolve("site/html");
+
+        service.install(prepareTree("v1"), htmlDir);
+
+        Path current = htmlDir.resolve(SiteContentService.CURRENT_LINK);
+        assertTrue(Files.isSymbolicLink(current));
+        assertTrue(service.hasReleases(htmlDir));
+        assertEquals(current, service.siteRoot(htmlDir));
+        // Relative, so it also resolves where html/ is mounted into a container
+        assertFalse(Files.readSymbolicLink(current).isAbsolute());
+        assertEquals("v1", Files.readString(current.resolve("index.html")));
+    }
+
+    @Test
+    void updateSwapsLinkAndKeepsOnlyPreviousRelease() throws IOException {
+        Path htmlDir = tempDir.resolve("site/html");
+        service.install(prepareTree("v1"), htmlDir);
+        Path v1 = Files.readSymbolicLink(htmlDir.resolve(SiteContentService.CURRENT_LINK));
+        service.install(prepareTree("v2"), htmlDir);
+        Path v2 = Files.readSymbolicLink(htmlDir.resolve(SiteContentService.CURRENT_LINK));
+
+        service.install(prepareTree("v3"), htmlDir);
+
+        Path current = htmlDir.resolve(SiteContentService.CURRENT_LINK);
+        assertEquals("v3", Files.readString(current.resolve("index.html")));
+        // v2 may still be read by requests that resolved it before the swap; v1 is gone
+        assertTrue(Files.isDirectory(htmlDir.resolve(v2)));
+        assertFalse(Files.exists(htmlDir.resolve(v1)));
+        try (Stream<Path> releases = Files.list(htmlDir.resolve("releases"))) {
+            assertEquals(2, releases.count());
+        }
+        // No temporary links are left next to current
+        try (Stream<Path> entries = Files.list(htmlDir)) {
+            assertEquals(2, entries.count());
+        }
+    }
+
+    @Test
+    void readersNeverSeeAMissingIndexDuringSwaps() throws Exception {
+        Path htmlDir = tempDir.resolve("site/html");
+        service.install(prepareTree("v0"), htmlDir);
+        Path index = htmlDir.resolve(SiteContentService.CURRENT_LINK).resolve("index.html");
+
+        AtomicBoolean swapping = new AtomicBoolean(true);
+        AtomicInteger failedReads = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (swapping.get()) {
+                try {
+                    Files.readString(index);
+                } catch (IOException e) {
+                    failedReads.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 50; i++) {
+            service.install(prepareTree("v" + i), htmlDir);
+        }
+        swapping.set(false);
+        reader.join();
+
+        assertEquals(0, failedReads.get());
+        assertEquals("v50", Files.readString(index));
+    }
+
+    @Test
+    void updatesLegacySiteInPlace() throws IOException {
+        Path htmlDir = Files.createDirectories(tempDir.resolve("legacy/html"));
+        Files.writeString(htmlDir.resolve("index.html"), "old");
+        Files.writeString(htmlDir.resolve("stale.html"), "remove me");
+
+        service.install(prepareTree("new"), htmlDir);
+
+        assertFalse(service.hasReleases(htmlDir));
+        assertEquals(htmlDir, service.siteRoot(htmlDir));
+        assertEquals("new", Files.readString(htmlDir.resolve("index.html")));
+        assertFalse(Files.exists(htmlDir.resolve("stale.html")));
+    }
+
+    private Path prepareTree(String name) throws IOException {
+        Path tree = Files.createDirectories(tempDir.resolve(name + ".d"));
+        Files.writeString(tree.resolve("index.html"), name);
+        return tree;
+    }
+
+    private Path zip(String name, Map<String, String> files) throws IOException {
+        Path zip = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(file.getKey()));
+                zipOut.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
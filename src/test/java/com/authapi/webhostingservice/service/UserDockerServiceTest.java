@@ -0,0 +1,80 @@
+package com.authapi.webhostingservice.service;
+
+import com.authapi.webhostingservice.model.UserContainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserDockerServiceTest {
+
+    private ContainerRuntime runtime;
+    private DockerPlacement placement;
+    private PortAllocator portAllocator;
+    private SiteContentService siteContentService;
+    private UserDockerService service;
+    private UserContainer site;
+
+    @BeforeEach
+    void setUp() {
+        runtime = mock(ContainerRuntime.class);
+        DockerHostRegistry dockerHosts = mock(DockerHostRegistry.class);
+        placement = mock(DockerPlacement.class);
+        portAllocator = mock(PortAllocator.class);
+        siteContentService = mock(SiteContentService.class);
+        service = new UserDockerService(dockerHosts, placement, portAllocator, siteContentService,
+                mock(AdmissionController.class), new SimpleMeterRegistry());
+
+        site = new UserContainer("user@example.com", "c0ffee", "user-site", 8123, UserContainer.STATUS_DELETING);
+        site.setDockerHost("edge1");
+        site.setSiteDirectory("site-user-1");
+        when(dockerHosts.runtimeFor(site)).thenReturn(runtime);
+    }
+
+    @Test
+    void releasesPortAndPlacementWhenContainerIsRemoved() throws IOException {
+        service.removeSite(site);
+
+        verify(runtime).remove("c0ffee", true);
+        verify(portAllocator).release(8123);
+        verify(placement).release("edge1");
+        verify(siteContentService).deleteSite("site-user-1");
+    }
+
+    @Test
+    void retryAfterLaterStepFailedDoesNotReleaseAgain() throws IOException {
+        doThrow(new RuntimeException("daemon busy")).when(runtime).removeImage(anyString(), anyBoolean());
+        assertThrows(IOException.class, () -> service.removeSite(site));
+
+        // The teardown retry finds the container gone
+        doThrow(new ContainerRuntime.NotFoundException("no such container")).when(runtime).remove("c0ffee", true);
+        doNothing().when(runtime).removeImage(anyString(), anyBoolean());
+        service.removeSite(site);
+
+        verify(portAllocator, times(1)).release(8123);
+        verify(placement, times(1)).release("edge1");
+        verify(siteContentService).deleteSite("site-user-1");
+    }
+
+    @Test
+    void containerGoneBeforeFirstAttemptLeavesReleaseToRecount() throws IOException {
+        doThrow(new ContainerRuntime.NotFoundException("no such container")).when(runtime).remove("c0ffee", true);
+
+        service.removeSite(site);
+
+        verify(portAllocator, never()).release(8123);
+        verify(placement, never()).release("edge1");
+    }
+}